@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads recorded Geocoding API responses checked in under the "fixtures" resource directory.
+ * Also used by the stub server of the loadtest module.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the bytes of the fixture
+     *
+     * @param name the fixture name without the ".json" extension
+     * @return the response body
+     * @throws IOException if the fixture does not exist or can't be read
+     */
+    @NonNull
+    public static byte[] load(@NonNull final String name) throws IOException {
+        final String path = "fixtures/" + name + ".json";
+        final InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(path);
+        if (in == null) {
+            throw new FileNotFoundException(path);
+        }
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(32768);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
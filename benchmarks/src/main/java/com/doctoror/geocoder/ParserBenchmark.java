@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Parser} over successful responses
+ *
+ * The fixtures are reverse geocoding responses with 1, 5 and 12 results and a forward geocoding
+ * response. Each is parsed from a byte array, as cached bodies are, and from a stream, as
+ * network bodies are.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    private static final int MAX_RESULTS = 20;
+
+    @Param({"reverse_1", "reverse_5", "reverse_12", "forward"})
+    public String fixture;
+
+    @Param({"true", "false"})
+    public boolean parseAddressComponents;
+
+    private byte[] mData;
+
+    @Setup
+    public void setUp() throws IOException {
+        mData = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public List<Address> parseBytes() throws GeocoderException {
+        return Parser.parseJson(mData, MAX_RESULTS, parseAddressComponents);
+    }
+
+    @Benchmark
+    public List<Address> parseStream() throws GeocoderException {
+        return Parser.parseJson(new ByteArrayInputStream(mData), MAX_RESULTS,
+                parseAddressComponents);
+    }
+}
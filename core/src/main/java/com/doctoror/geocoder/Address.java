@@ -0,0 +1,1016 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The Geocoder response value object
+ */
+public class Address {
+
+    private String mFormattedAddress;
+
+    /*
+     * Address components. Most of them are absent in any given result, so only the present
+     * ones are stored, in the order of AddressComponent ordinals. The Google Geocoding API may
+     * return types that are not listed.
+     */
+
+    private static final String[] NO_COMPONENTS = new String[0];
+
+    private static final int COMPONENT_COUNT = AddressComponent.values().length;
+
+    /**
+     * Bit per {@link AddressComponent} that is present
+     */
+    private long mComponentMask;
+
+    /**
+     * Values of the present components
+     */
+    private String[] mComponents = NO_COMPONENTS;
+
+    /*
+     * Geometry, kept as plain doubles. Location, Viewport and Bounds objects are only created
+     * when their getters are called.
+     */
+
+    private static final int HAS_LOCATION = 1;
+
+    private static final int HAS_VIEWPORT = 1 << 1;
+
+    private static final int HAS_BOUNDS = 1 << 2;
+
+    private int mGeometryFlags;
+
+    private double mLatitude;
+
+    private double mLongitude;
+
+    private double mViewportSouthwestLatitude;
+
+    private double mViewportSouthwestLongitude;
+
+    private double mViewportNortheastLatitude;
+
+    private double mViewportNortheastLongitude;
+
+    private double mBoundsSouthwestLatitude;
+
+    private double mBoundsSouthwestLongitude;
+
+    private double mBoundsNortheastLatitude;
+
+    private double mBoundsNortheastLongitude;
+
+    private String mLocationType;
+
+    public Address() {
+
+    }
+
+    /**
+     * Returns the bitmask of present components, bit per {@link AddressComponent} ordinal
+     */
+    long getComponentMask() {
+        return mComponentMask;
+    }
+
+    /**
+     * Returns the values of the present components, in ordinal order. Must not be modified.
+     */
+    @NonNull
+    String[] getComponentValues() {
+        return mComponents;
+    }
+
+    /**
+     * Replaces all components with already compacted values, one for each bit of the mask
+     */
+    void setComponents(final long mask, @NonNull final String[] values) {
+        if (Long.bitCount(mask) != values.length) {
+            throw new IllegalArgumentException("values.length == " + values.length);
+        }
+        mComponentMask = mask;
+        mComponents = values.length == 0 ? NO_COMPONENTS : values;
+    }
+
+    /**
+     * Replaces all components with the values indexed by {@link AddressComponent} ordinal, null
+     * for absent ones, compacting them at once
+     *
+     * @param offset index of the value of the first component in values
+     */
+    void setComponents(@NonNull final String[] values, final int offset) {
+        long mask = 0;
+        for (int i = 0; i < COMPONENT_COUNT; i++) {
+            if (values[offset + i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        final String[] components = mask == 0
+                ? NO_COMPONENTS : new String[Long.bitCount(mask)];
+        int index = 0;
+        for (int i = 0; i < COMPONENT_COUNT; i++) {
+            if (values[offset + i] != null) {
+                components[index++] = values[offset + i];
+            }
+        }
+        mComponentMask = mask;
+        mComponents = components;
+    }
+
+    /**
+     * Returns the value of the component, or null if it is absent
+     */
+    @Nullable
+    String get(@NonNull final AddressComponent component) {
+        final long bit = 1L << component.ordinal();
+        if ((mComponentMask & bit) == 0) {
+            return null;
+        }
+        return mComponents[Long.bitCount(mComponentMask & (bit - 1))];
+    }
+
+    /**
+     * Sets the value of the component, null to remove it
+     */
+    void set(@NonNull final AddressComponent component, @Nullable final String value) {
+        final long bit = 1L << component.ordinal();
+        final int index = Long.bitCount(mComponentMask & (bit - 1));
+        final String[] components = mComponents;
+        if ((mComponentMask & bit) != 0) {
+            if (value != null) {
+                components[index] = value;
+                return;
+            }
+            final String[] smaller = components.length == 1
+                    ? NO_COMPONENTS : new String[components.length - 1];
+            System.arraycopy(components, 0, smaller, 0, index);
+            System.arraycopy(components, index + 1, smaller, index,
+                    components.length - index - 1);
+            mComponents = smaller;
+            mComponentMask &= ~bit;
+        } else if (value != null) {
+            final String[] larger = new String[components.length + 1];
+            System.arraycopy(components, 0, larger, 0, index);
+            larger[index] = value;
+            System.arraycopy(components, index, larger, index + 1, components.length - index);
+            mComponents = larger;
+            mComponentMask |= bit;
+        }
+    }
+
+    /**
+     * A string containing the human-readable address of this location. Often this address is
+     * equivalent to the "postal address," which sometimes differs from country to country. (Note
+     * that some countries, such as the United Kingdom, do not allow distribution of true postal
+     * addresses due to licensing restrictions.) This address is generally composed of one or more
+     * address components. For example, the address "111 8th Avenue, New York, NY" contains
+     * separate
+     * address components for "111" (the street number, "8th Avenue" (the route), "New York" (the
+     * city) and "NY" (the US state).
+     */
+    public String getFormattedAddress() {
+        return mFormattedAddress;
+    }
+
+    public void setFormattedAddress(final String formattedAddress) {
+        mFormattedAddress = formattedAddress;
+    }
+
+    /**
+     * Precise street address
+     *
+     * @return precise street address
+     */
+    public String getStreetAddress() {
+        return get(AddressComponent.STREET_ADDRESS);
+    }
+
+    public void setStreetAddress(final String streetAddress) {
+        set(AddressComponent.STREET_ADDRESS, streetAddress);
+    }
+
+    /**
+     * Named route (such as "US 101").
+     *
+     * @return a named route (such as "US 101").
+     */
+    public String getRoute() {
+        return get(AddressComponent.ROUTE);
+    }
+
+    public void setRoute(final String route) {
+        set(AddressComponent.ROUTE, route);
+    }
+
+    /**
+     * Indicates a major intersection, usually of two major roads.
+     *
+     * @return a major intersection, usually of two major roads.
+     */
+    public String getIntersection() {
+        return get(AddressComponent.INTERSECTION);
+    }
+
+    public void setIntersection(final String intersection) {
+        set(AddressComponent.INTERSECTION, intersection);
+    }
+
+    /**
+     * A political entity. Usually, this type indicates a polygon of some civil administration.
+     *
+     * @return a political entity.
+     */
+    public String getPolitical() {
+        return get(AddressComponent.POLITICAL);
+    }
+
+    public void setPolitical(final String political) {
+        set(AddressComponent.POLITICAL, political);
+    }
+
+    /**
+     * The national political entity, and is typically the highest order type returned by the
+     * Geocoder.
+     *
+     * @return The national political entity
+     */
+    public String getCountry() {
+        return get(AddressComponent.COUNTRY);
+    }
+
+    public void setCountry(final String country) {
+        set(AddressComponent.COUNTRY, country);
+    }
+
+    /**
+     * A first-order civil entity below the country level. Within the United States, these
+     * administrative levels are states. Not all nations exhibit these administrative levels.
+     *
+     * @return A first-order civil entity below the country level.
+     */
+    public String getAdministrativeAreaLevel1() {
+        return get(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_1);
+    }
+
+    public void setAdministrativeAreaLevel1(final String administrativeAreaLevel1) {
+        set(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_1, administrativeAreaLevel1);
+    }
+
+    /**
+     * A second-order civil entity below the country level. Within the United States, these
+     * administrative levels are counties. Not all nations exhibit these administrative levels.
+     *
+     * @return A second-order civil entity below the country level.
+     */
+    public String getAdministrativeAreaLevel2() {
+        return get(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_2);
+    }
+
+    public void setAdministrativeAreaLevel2(final String administrativeAreaLevel2) {
+        set(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_2, administrativeAreaLevel2);
+    }
+
+    /**
+     * A third-order civil entity below the country level. This type indicates a minor civil
+     * division. Not all nations exhibit these administrative levels.
+     *
+     * @return A third-order civil entity below the country level.
+     */
+    public String getAdministrativeAreaLevel3() {
+        return get(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_3);
+    }
+
+    public void setAdministrativeAreaLevel3(final String administrativeAreaLevel3) {
+        set(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_3, administrativeAreaLevel3);
+    }
+
+    /**
+     * A fourth-order civil entity below the country level. This type indicates a minor civil
+     * division. Not all nations exhibit these administrative levels.
+     *
+     * @return A fourth-order civil entity below the country level.
+     */
+    public String getAdministrativeAreaLevel4() {
+        return get(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_4);
+    }
+
+    public void setAdministrativeAreaLevel4(final String administrativeAreaLevel4) {
+        set(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_4, administrativeAreaLevel4);
+    }
+
+    /**
+     * A fifth-order civil entity below the country level. This type indicates a minor civil
+     * division. Not all nations exhibit these administrative levels.
+     *
+     * @return A fifth-order civil entity below the country level.
+     */
+    public String getAdministrativeAreaLevel5() {
+        return get(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_5);
+    }
+
+    public void setAdministrativeAreaLevel5(final String administrativeAreaLevel5) {
+        set(AddressComponent.ADMINISTRATIVE_AREA_LEVEL_5, administrativeAreaLevel5);
+    }
+
+    /**
+     * A commonly-used alternative name for the entity.
+     *
+     * @return commonly-used alternative name for the entity.
+     */
+    public String getColloquialArea() {
+        return get(AddressComponent.COLLOQUIAL_AREA);
+    }
+
+    public void setColloquialArea(final String colloquialArea) {
+        set(AddressComponent.COLLOQUIAL_AREA, colloquialArea);
+    }
+
+    /**
+     * An incorporated city or town political entity.
+     *
+     * @return incorporated city or town political entity.
+     */
+    public String getLocality() {
+        return get(AddressComponent.LOCALITY);
+    }
+
+    public void setLocality(final String locality) {
+        set(AddressComponent.LOCALITY, locality);
+    }
+
+    /**
+     * A specific type of Japanese locality, to facilitate distinction between multiple locality
+     * components within a Japanese address.
+     *
+     * @return Ward
+     */
+    public String getWard() {
+        return get(AddressComponent.WARD);
+    }
+
+    public void setWard(final String ward) {
+        set(AddressComponent.WARD, ward);
+    }
+
+    /**
+     * A a first-order civil entity below a locality.
+     * For some locations may receive one of the additional types: {@link #getSubLocalityLevel1()},
+     * {@link #getSubLocalityLevel2()}, {@link #getSubLocalityLevel3()}, {@link
+     * #getSubLocalityLevel4()}, {@link #getSubLocalityLevel5()} Each sublocality level is a civil
+     * entity. Larger numbers indicate a smaller geographic area.
+     *
+     * @return a first-order civil entity below a locality.
+     */
+    public String getSubLocality() {
+        return get(AddressComponent.SUB_LOCALITY);
+    }
+
+    public void setSubLocality(final String subLocality) {
+        set(AddressComponent.SUB_LOCALITY, subLocality);
+    }
+
+    /**
+     * @return Sublocality level 1
+     * @see #getSubLocality()
+     */
+    public String getSubLocalityLevel1() {
+        return get(AddressComponent.SUB_LOCALITY_LEVEL_1);
+    }
+
+    public void setSubLocalityLevel1(final String subLocalityLevel1) {
+        set(AddressComponent.SUB_LOCALITY_LEVEL_1, subLocalityLevel1);
+    }
+
+    /**
+     * @return Sublocality level 2
+     * @see #getSubLocality()
+     */
+    public String getSubLocalityLevel2() {
+        return get(AddressComponent.SUB_LOCALITY_LEVEL_2);
+    }
+
+    public void setSubLocalityLevel2(final String subLocalityLevel2) {
+        set(AddressComponent.SUB_LOCALITY_LEVEL_2, subLocalityLevel2);
+    }
+
+    /**
+     * @return Sublocality level 3
+     * @see #getSubLocality()
+     */
+    public String getSubLocalityLevel3() {
+        return get(AddressComponent.SUB_LOCALITY_LEVEL_3);
+    }
+
+    public void setSubLocalityLevel3(final String subLocalityLevel3) {
+        set(AddressComponent.SUB_LOCALITY_LEVEL_3, subLocalityLevel3);
+    }
+
+    /**
+     * @return Sublocality level 4
+     * @see #getSubLocality()
+     */
+    public String getSubLocalityLevel4() {
+        return get(AddressComponent.SUB_LOCALITY_LEVEL_4);
+    }
+
+    public void setSubLocalityLevel4(final String subLocalityLevel4) {
+        set(AddressComponent.SUB_LOCALITY_LEVEL_4, subLocalityLevel4);
+    }
+
+    /**
+     * @return Sublocality level 5
+     * @see #getSubLocality()
+     */
+    public String getSubLocalityLevel5() {
+        return get(AddressComponent.SUB_LOCALITY_LEVEL_5);
+    }
+
+    public void setSubLocalityLevel5(final String subLocalityLevel5) {
+        set(AddressComponent.SUB_LOCALITY_LEVEL_5, subLocalityLevel5);
+    }
+
+    /**
+     * A named neighborhood
+     *
+     * @return named neighbourhood
+     */
+    public String getNeighborhood() {
+        return get(AddressComponent.NEIGHBORHOOD);
+    }
+
+    public void setNeighborhood(final String neighborhood) {
+        set(AddressComponent.NEIGHBORHOOD, neighborhood);
+    }
+
+    /**
+     * A named location, usually a building or collection of buildings with a common name
+     *
+     * @return A named location
+     */
+    public String getPremise() {
+        return get(AddressComponent.PREMISE);
+    }
+
+    public void setPremise(final String premise) {
+        set(AddressComponent.PREMISE, premise);
+    }
+
+    /**
+     * A first-order entity below a named location, usually a singular building within a collection
+     * of buildings with a common name
+     *
+     * @return A first-order entity below a named location
+     */
+    public String getSubPremise() {
+        return get(AddressComponent.SUB_PREMISE);
+    }
+
+    public void setSubPremise(final String subPremise) {
+        set(AddressComponent.SUB_PREMISE, subPremise);
+    }
+
+    /**
+     * A postal code as used to address postal mail within the country.
+     *
+     * @return a postal code as used to address postal mail within the country.
+     */
+    public String getPostalCode() {
+        return get(AddressComponent.POSTAL_CODE);
+    }
+
+    public void setPostalCode(final String postalCode) {
+        set(AddressComponent.POSTAL_CODE, postalCode);
+    }
+
+    /**
+     * A prominent natural feature.
+     *
+     * @return a prominent natural feature.
+     */
+    public String getNaturalFeature() {
+        return get(AddressComponent.NATURAL_FEATURE);
+    }
+
+    public void setNaturalFeature(final String naturalFeature) {
+        set(AddressComponent.NATURAL_FEATURE, naturalFeature);
+    }
+
+    /**
+     * An airport
+     *
+     * @return an airport.
+     */
+    public String getAirport() {
+        return get(AddressComponent.AIRPORT);
+    }
+
+    public void setAirport(final String airport) {
+        set(AddressComponent.AIRPORT, airport);
+    }
+
+    /**
+     * A named park.
+     *
+     * @return a named park.
+     */
+    public String getPark() {
+        return get(AddressComponent.PARK);
+    }
+
+    public void setPark(final String park) {
+        set(AddressComponent.PARK, park);
+    }
+
+    /**
+     * A named point of interest. Typically, these "POI"s are prominent local entities that don't
+     * easily fit in another category, such as "Empire State Building" or "Statue of Liberty."
+     *
+     * @return a named point of interest.
+     */
+    public String getPointOfInterest() {
+        return get(AddressComponent.POINT_OF_INTEREST);
+    }
+
+    public void setPointOfInterest(final String pointOfInterest) {
+        set(AddressComponent.POINT_OF_INTEREST, pointOfInterest);
+    }
+
+    /**
+     * The floor of a building address.
+     *
+     * @return the floor of a building address.
+     */
+    public String getFloor() {
+        return get(AddressComponent.FLOOR);
+    }
+
+    public void setFloor(final String floor) {
+        set(AddressComponent.FLOOR, floor);
+    }
+
+    /**
+     * A place that has not yet been categorized.
+     *
+     * @return a place that has not yet been categorized.
+     */
+    public String getEstablishment() {
+        return get(AddressComponent.ESTABLISHMENT);
+    }
+
+    public void setEstablishment(final String establishment) {
+        set(AddressComponent.ESTABLISHMENT, establishment);
+    }
+
+    /**
+     * A parking lot or parking structure.
+     *
+     * @return a parking lot or parking structure.
+     */
+    public String getParking() {
+        return get(AddressComponent.PARKING);
+    }
+
+    public void setParking(final String parking) {
+        set(AddressComponent.PARKING, parking);
+    }
+
+    /**
+     * A specific postal box.
+     *
+     * @return a specific postal box.
+     */
+    public String getPostBox() {
+        return get(AddressComponent.POST_BOX);
+    }
+
+    public void setPostBox(final String postBox) {
+        set(AddressComponent.POST_BOX, postBox);
+    }
+
+    /**
+     * A grouping of geographic areas, such as locality and sublocality, used for mailing addresses
+     * in some countries.
+     *
+     * @return Post town
+     */
+    public String getPostTown() {
+        return get(AddressComponent.POST_TOWN);
+    }
+
+    public void setPostTown(final String postTown) {
+        set(AddressComponent.POST_TOWN, postTown);
+    }
+
+    /**
+     * The room of a building address.
+     *
+     * @return the room of a building address.
+     */
+    public String getRoom() {
+        return get(AddressComponent.ROOM);
+    }
+
+    public void setRoom(final String room) {
+        set(AddressComponent.ROOM, room);
+    }
+
+    /**
+     * The precise street number.
+     *
+     * @return the precise street number.
+     */
+    public String getStreetNumber() {
+        return get(AddressComponent.STREET_NUMBER);
+    }
+
+    public void setStreetNumber(final String streetNumber) {
+        set(AddressComponent.STREET_NUMBER, streetNumber);
+    }
+
+    /**
+     * The location of a bus stop
+     *
+     * @return location of a bus stop
+     */
+    public String getBusStation() {
+        return get(AddressComponent.BUS_STATION);
+    }
+
+    public void setBusStation(final String busStation) {
+        set(AddressComponent.BUS_STATION, busStation);
+    }
+
+    /**
+     * The location of a train station
+     *
+     * @return location of a train station
+     */
+    public String getTrainStation() {
+        return get(AddressComponent.TRAIN_STATION);
+    }
+
+    public void setTrainStation(final String trainStation) {
+        set(AddressComponent.TRAIN_STATION, trainStation);
+    }
+
+    /**
+     * Location of transition station
+     *
+     * @return transition station
+     */
+    public String getTransitStation() {
+        return get(AddressComponent.TRANSIT_STATION);
+    }
+
+    public void setTransitStation(final String transitStation) {
+        set(AddressComponent.TRANSIT_STATION, transitStation);
+    }
+
+    /**
+     * Returns the geocoded latitude,longitude value. A new object is created on every call, use
+     * {@link #getLatitude()} and {@link #getLongitude()} to avoid that.
+     *
+     * @return the location, or null if absent
+     */
+    public Location getLocation() {
+        if ((mGeometryFlags & HAS_LOCATION) == 0) {
+            return null;
+        }
+        return new Location(mLatitude, mLongitude);
+    }
+
+    public void setLocation(final Location location) {
+        if (location == null) {
+            mGeometryFlags &= ~HAS_LOCATION;
+        } else {
+            setLocation(location.latitude, location.longitude);
+        }
+    }
+
+    void setLocation(final double latitude, final double longitude) {
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mGeometryFlags |= HAS_LOCATION;
+    }
+
+    public boolean hasLocation() {
+        return (mGeometryFlags & HAS_LOCATION) != 0;
+    }
+
+    /**
+     * @return latitude of the location, or {@link Double#NaN} if absent
+     */
+    public double getLatitude() {
+        return hasLocation() ? mLatitude : Double.NaN;
+    }
+
+    /**
+     * @return longitude of the location, or {@link Double#NaN} if absent
+     */
+    public double getLongitude() {
+        return hasLocation() ? mLongitude : Double.NaN;
+    }
+
+    /**
+     * Contains the recommended viewport for displaying the returned result, specified as two
+     * latitude,longitude values defining the southwest and northeast corner of the viewport
+     * bounding box. Generally the viewport is used to frame a result when displaying it to a user.
+     *
+     * A new object is created on every call, use {@link #getViewportSouthwestLatitude()} and
+     * the like to avoid that.
+     *
+     * @return Viewport, or null if absent
+     */
+    public Viewport getViewport() {
+        if ((mGeometryFlags & HAS_VIEWPORT) == 0) {
+            return null;
+        }
+        return new Viewport(
+                new Location(mViewportSouthwestLatitude, mViewportSouthwestLongitude),
+                new Location(mViewportNortheastLatitude, mViewportNortheastLongitude));
+    }
+
+    public void setViewport(final Viewport viewport) {
+        if (viewport == null || viewport.southwest == null || viewport.northeast == null) {
+            mGeometryFlags &= ~HAS_VIEWPORT;
+        } else {
+            setViewport(viewport.southwest.latitude, viewport.southwest.longitude,
+                    viewport.northeast.latitude, viewport.northeast.longitude);
+        }
+    }
+
+    void setViewport(final double southwestLatitude, final double southwestLongitude,
+            final double northeastLatitude, final double northeastLongitude) {
+        mViewportSouthwestLatitude = southwestLatitude;
+        mViewportSouthwestLongitude = southwestLongitude;
+        mViewportNortheastLatitude = northeastLatitude;
+        mViewportNortheastLongitude = northeastLongitude;
+        mGeometryFlags |= HAS_VIEWPORT;
+    }
+
+    public boolean hasViewport() {
+        return (mGeometryFlags & HAS_VIEWPORT) != 0;
+    }
+
+    /**
+     * @return latitude of the southwest corner of the viewport, or {@link Double#NaN} if absent
+     */
+    public double getViewportSouthwestLatitude() {
+        return hasViewport() ? mViewportSouthwestLatitude : Double.NaN;
+    }
+
+    /**
+     * @return longitude of the southwest corner of the viewport, or {@link Double#NaN} if absent
+     */
+    public double getViewportSouthwestLongitude() {
+        return hasViewport() ? mViewportSouthwestLongitude : Double.NaN;
+    }
+
+    /**
+     * @return latitude of the northeast corner of the viewport, or {@link Double#NaN} if absent
+     */
+    public double getViewportNortheastLatitude() {
+        return hasViewport() ? mViewportNortheastLatitude : Double.NaN;
+    }
+
+    /**
+     * @return longitude of the northeast corner of the viewport, or {@link Double#NaN} if absent
+     */
+    public double getViewportNortheastLongitude() {
+        return hasViewport() ? mViewportNortheastLongitude : Double.NaN;
+    }
+
+    /**
+     * Stores the bounding box which can fully contain the returned result.
+     * Note that these bounds may not match the recommended viewport. (For example, San Francisco
+     * includes the Farallon islands, which are technically part of the city, but probably should
+     * not be returned in the viewport.) Optionally returned.
+     *
+     * A new object is created on every call, use {@link #getBoundsSouthwestLatitude()} and
+     * the like to avoid that.
+     *
+     * @return Bounds, or null if absent
+     */
+    public Bounds getBounds() {
+        if ((mGeometryFlags & HAS_BOUNDS) == 0) {
+            return null;
+        }
+        return new Bounds(
+                new Location(mBoundsSouthwestLatitude, mBoundsSouthwestLongitude),
+                new Location(mBoundsNortheastLatitude, mBoundsNortheastLongitude));
+    }
+
+    public void setBounds(final Bounds bounds) {
+        if (bounds == null || bounds.southwest == null || bounds.northeast == null) {
+            mGeometryFlags &= ~HAS_BOUNDS;
+        } else {
+            setBounds(bounds.southwest.latitude, bounds.southwest.longitude,
+                    bounds.northeast.latitude, bounds.northeast.longitude);
+        }
+    }
+
+    void setBounds(final double southwestLatitude, final double southwestLongitude,
+            final double northeastLatitude, final double northeastLongitude) {
+        mBoundsSouthwestLatitude = southwestLatitude;
+        mBoundsSouthwestLongitude = southwestLongitude;
+        mBoundsNortheastLatitude = northeastLatitude;
+        mBoundsNortheastLongitude = northeastLongitude;
+        mGeometryFlags |= HAS_BOUNDS;
+    }
+
+    public boolean hasBounds() {
+        return (mGeometryFlags & HAS_BOUNDS) != 0;
+    }
+
+    /**
+     * @return latitude of the southwest corner of the bounds, or {@link Double#NaN} if absent
+     */
+    public double getBoundsSouthwestLatitude() {
+        return hasBounds() ? mBoundsSouthwestLatitude : Double.NaN;
+    }
+
+    /**
+     * @return longitude of the southwest corner of the bounds, or {@link Double#NaN} if absent
+     */
+    public double getBoundsSouthwestLongitude() {
+        return hasBounds() ? mBoundsSouthwestLongitude : Double.NaN;
+    }
+
+    /**
+     * @return latitude of the northeast corner of the bounds, or {@link Double#NaN} if absent
+     */
+    public double getBoundsNortheastLatitude() {
+        return hasBounds() ? mBoundsNortheastLatitude : Double.NaN;
+    }
+
+    /**
+     * @return longitude of the northeast corner of the bounds, or {@link Double#NaN} if absent
+     */
+    public double getBoundsNortheastLongitude() {
+        return hasBounds() ? mBoundsNortheastLongitude : Double.NaN;
+    }
+
+    /**
+     * Additional data about the specified location. The following values are currently supported:
+     *
+     * "ROOFTOP" indicates that the returned result is a precise geocode for which we have location
+     * information accurate down to street address precision.
+     *
+     * "RANGE_INTERPOLATED" indicates that the returned result reflects an approximation (usually
+     * on
+     * a road) interpolated between two precise points (such as intersections). Interpolated
+     * results
+     * are generally returned when rooftop geocodes are unavailable for a street address.
+     *
+     * "GEOMETRIC_CENTER" indicates that the returned result is the geometric center of a result
+     * such as a polyline (for example, a street) or polygon (region).
+     *
+     * "APPROXIMATE" indicates that the returned result is approximate.
+     *
+     * @return The location type
+     */
+    public String getLocationType() {
+        return mLocationType;
+    }
+
+    public void setLocationType(final String locationType) {
+        mLocationType = locationType;
+    }
+
+
+    public String getCountryCode() {
+        return get(AddressComponent.COUNTRY_CODE);
+    }
+
+    public void setCountryCode(final String countryCode) {
+        set(AddressComponent.COUNTRY_CODE, countryCode);
+    }
+
+    @Override
+    public String toString() {
+        return "Address{" +
+                "mFormattedAddress='" + mFormattedAddress + '\'' +
+                ", mStreetAddress='" + getStreetAddress() + '\'' +
+                ", mRoute='" + getRoute() + '\'' +
+                ", mIntersection='" + getIntersection() + '\'' +
+                ", mPolitical='" + getPolitical() + '\'' +
+                ", mCountry='" + getCountry() + '\'' +
+                ", mCountryCode='" + getCountryCode() + '\'' +
+                ", mAdministrativeAreaLevel1='" + getAdministrativeAreaLevel1() + '\'' +
+                ", mAdministrativeAreaLevel2='" + getAdministrativeAreaLevel2() + '\'' +
+                ", mAdministrativeAreaLevel3='" + getAdministrativeAreaLevel3() + '\'' +
+                ", mAdministrativeAreaLevel4='" + getAdministrativeAreaLevel4() + '\'' +
+                ", mAdministrativeAreaLevel5='" + getAdministrativeAreaLevel5() + '\'' +
+                ", mColloquialArea='" + getColloquialArea() + '\'' +
+                ", mLocality='" + getLocality() + '\'' +
+                ", mWard='" + getWard() + '\'' +
+                ", mSubLocality='" + getSubLocality() + '\'' +
+                ", mSubLocalityLevel1='" + getSubLocalityLevel1() + '\'' +
+                ", mSubLocalityLevel2='" + getSubLocalityLevel2() + '\'' +
+                ", mSubLocalityLevel3='" + getSubLocalityLevel3() + '\'' +
+                ", mSubLocalityLevel4='" + getSubLocalityLevel4() + '\'' +
+                ", mSubLocalityLevel5='" + getSubLocalityLevel5() + '\'' +
+                ", mNeighborhood='" + getNeighborhood() + '\'' +
+                ", mPremise='" + getPremise() + '\'' +
+                ", mSubPremise='" + getSubPremise() + '\'' +
+                ", mPostalCode='" + getPostalCode() + '\'' +
+                ", mNaturalFeature='" + getNaturalFeature() + '\'' +
+                ", mAirport='" + getAirport() + '\'' +
+                ", mPark='" + getPark() + '\'' +
+                ", mPointOfInterest='" + getPointOfInterest() + '\'' +
+                ", mFloor='" + getFloor() + '\'' +
+                ", mEstablishment='" + getEstablishment() + '\'' +
+                ", mParking='" + getParking() + '\'' +
+                ", mPostBox='" + getPostBox() + '\'' +
+                ", mPostTown='" + getPostTown() + '\'' +
+                ", mRoom='" + getRoom() + '\'' +
+                ", mStreetNumber='" + getStreetNumber() + '\'' +
+                ", mBusStation='" + getBusStation() + '\'' +
+                ", mTrainStation='" + getTrainStation() + '\'' +
+                ", mTransitStation='" + getTransitStation() + '\'' +
+                ", mLocation=" + getLocation() +
+                ", mLocationType='" + mLocationType + '\'' +
+                ", mViewport=" + getViewport() +
+                ", mBounds=" + getBounds() +
+                '}';
+    }
+
+    public static final class Location {
+
+        public final double latitude;
+
+        public final double longitude;
+
+        public Location(final double latitude, final double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public String toString() {
+            return "Location{" +
+                    "latitude=" + latitude +
+                    ", longitude=" + longitude +
+                    '}';
+        }
+    }
+
+    public static final class Viewport {
+
+        public final Location southwest;
+
+        public final Location northeast;
+
+        Viewport(final Location southwest, final Location northeast) {
+            this.southwest = southwest;
+            this.northeast = northeast;
+        }
+
+        @Override
+        public String toString() {
+            return "Viewport{" +
+                    "southwest=" + southwest +
+                    ", northeast=" + northeast +
+                    '}';
+        }
+    }
+
+    public static final class Bounds {
+
+        public final Location southwest;
+
+        public final Location northeast;
+
+        Bounds(final Location southwest, final Location northeast) {
+            this.southwest = southwest;
+            this.northeast = northeast;
+        }
+
+        @Override
+        public String toString() {
+            return "Bounds{" +
+                    "southwest=" + southwest +
+                    ", northeast=" + northeast +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of {@link Address} lists
+ *
+ * Each address is written as a bitmask of the fields that are present followed by only those
+ * fields, strings first and then geometry as raw doubles. Stored encodings must be checked
+ * against {@link #VERSION} before reading.
+ */
+final class AddressCodec {
+
+    private static final AddressComponent[] COMPONENTS = AddressComponent.values();
+
+    /**
+     * Bump on any change of the layout other than adding an {@link AddressComponent}
+     */
+    private static final int REVISION = 1;
+
+    /**
+     * Version of the encoding, 16 bits. The bits of the mask are assigned by component
+     * ordinal, so the layout also changes whenever a component is added.
+     */
+    static final int VERSION = (REVISION << 8) | COMPONENTS.length;
+
+    /**
+     * Formatted address, the components and location type
+     */
+    private static final int STRING_FIELD_COUNT = COMPONENTS.length + 2;
+
+    private static final long FLAG_LOCATION = 1L << STRING_FIELD_COUNT;
+
+    private static final long FLAG_VIEWPORT = 1L << (STRING_FIELD_COUNT + 1);
+
+    private static final long FLAG_BOUNDS = 1L << (STRING_FIELD_COUNT + 2);
+
+    private AddressCodec() {
+    }
+
+    static void writeList(@NonNull final DataOutput out, @NonNull final List<Address> addresses)
+            throws IOException {
+        out.writeInt(addresses.size());
+        final String[] strings = new String[STRING_FIELD_COUNT];
+        for (int i = 0; i < addresses.size(); i++) {
+            write(out, addresses.get(i), strings);
+        }
+    }
+
+    @NonNull
+    static List<Address> readList(@NonNull final DataInput in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative list size " + size);
+        }
+        final List<Address> addresses = new ArrayList<>(size);
+        final String[] strings = new String[STRING_FIELD_COUNT];
+        for (int i = 0; i < size; i++) {
+            addresses.add(read(in, strings));
+        }
+        return addresses;
+    }
+
+    private static void write(@NonNull final DataOutput out, @NonNull final Address a,
+            @NonNull final String[] strings) throws IOException {
+        getStrings(a, strings);
+        long mask = 0;
+        for (int i = 0; i < STRING_FIELD_COUNT; i++) {
+            if (strings[i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        if (a.hasLocation()) {
+            mask |= FLAG_LOCATION;
+        }
+        if (a.hasViewport()) {
+            mask |= FLAG_VIEWPORT;
+        }
+        if (a.hasBounds()) {
+            mask |= FLAG_BOUNDS;
+        }
+
+        out.writeLong(mask);
+        for (int i = 0; i < STRING_FIELD_COUNT; i++) {
+            if (strings[i] != null) {
+                out.writeUTF(strings[i]);
+            }
+        }
+        if (a.hasLocation()) {
+            out.writeDouble(a.getLatitude());
+            out.writeDouble(a.getLongitude());
+        }
+        if (a.hasViewport()) {
+            out.writeDouble(a.getViewportSouthwestLatitude());
+            out.writeDouble(a.getViewportSouthwestLongitude());
+            out.writeDouble(a.getViewportNortheastLatitude());
+            out.writeDouble(a.getViewportNortheastLongitude());
+        }
+        if (a.hasBounds()) {
+            out.writeDouble(a.getBoundsSouthwestLatitude());
+            out.writeDouble(a.getBoundsSouthwestLongitude());
+            out.writeDouble(a.getBoundsNortheastLatitude());
+            out.writeDouble(a.getBoundsNortheastLongitude());
+        }
+    }
+
+    @NonNull
+    private static Address read(@NonNull final DataInput in, @NonNull final String[] strings)
+            throws IOException {
+        final long mask = in.readLong();
+        for (int i = 0; i < STRING_FIELD_COUNT; i++) {
+            strings[i] = (mask & (1L << i)) != 0 ? in.readUTF() : null;
+        }
+        final Address a = new Address();
+        setStrings(a, strings);
+        if ((mask & FLAG_LOCATION) != 0) {
+            a.setLocation(in.readDouble(), in.readDouble());
+        }
+        if ((mask & FLAG_VIEWPORT) != 0) {
+            a.setViewport(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        }
+        if ((mask & FLAG_BOUNDS) != 0) {
+            a.setBounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        }
+        return a;
+    }
+
+    private static void getStrings(@NonNull final Address a, @NonNull final String[] strings) {
+        strings[0] = a.getFormattedAddress();
+        for (final AddressComponent component : COMPONENTS) {
+            strings[component.ordinal() + 1] = a.get(component);
+        }
+        strings[STRING_FIELD_COUNT - 1] = a.getLocationType();
+    }
+
+    private static void setStrings(@NonNull final Address a, @NonNull final String[] strings) {
+        a.setFormattedAddress(strings[0]);
+        a.setComponents(strings, 1);
+        a.setLocationType(strings[STRING_FIELD_COUNT - 1]);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+/**
+ * Address component types stored by {@link Address}. The ordinals index the component bitmask,
+ * so new types must be added at the end. Adding a type changes {@link AddressCodec#VERSION},
+ * which discards disk caches written before; any other change needs its revision bumped.
+ */
+enum AddressComponent {
+
+    STREET_ADDRESS,
+
+    ROUTE,
+
+    INTERSECTION,
+
+    POLITICAL,
+
+    COUNTRY,
+
+    COUNTRY_CODE,
+
+    ADMINISTRATIVE_AREA_LEVEL_1,
+
+    ADMINISTRATIVE_AREA_LEVEL_2,
+
+    ADMINISTRATIVE_AREA_LEVEL_3,
+
+    ADMINISTRATIVE_AREA_LEVEL_4,
+
+    ADMINISTRATIVE_AREA_LEVEL_5,
+
+    COLLOQUIAL_AREA,
+
+    LOCALITY,
+
+    WARD,
+
+    SUB_LOCALITY,
+
+    SUB_LOCALITY_LEVEL_1,
+
+    SUB_LOCALITY_LEVEL_2,
+
+    SUB_LOCALITY_LEVEL_3,
+
+    SUB_LOCALITY_LEVEL_4,
+
+    SUB_LOCALITY_LEVEL_5,
+
+    NEIGHBORHOOD,
+
+    PREMISE,
+
+    SUB_PREMISE,
+
+    POSTAL_CODE,
+
+    NATURAL_FEATURE,
+
+    AIRPORT,
+
+    PARK,
+
+    POINT_OF_INTEREST,
+
+    FLOOR,
+
+    ESTABLISHMENT,
+
+    PARKING,
+
+    POST_BOX,
+
+    POST_TOWN,
+
+    ROOM,
+
+    STREET_NUMBER,
+
+    BUS_STATION,
+
+    TRAIN_STATION,
+
+    TRANSIT_STATION
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a single item of a batch query
+ *
+ * Either {@link #getAddresses()} or {@link #getException()} is not null
+ */
+public final class BatchResult {
+
+    @Nullable
+    private final List<Address> mAddresses;
+
+    @Nullable
+    private final GeocoderException mException;
+
+    BatchResult(@NonNull final List<Address> addresses) {
+        mAddresses = addresses;
+        mException = null;
+    }
+
+    BatchResult(@NonNull final GeocoderException exception) {
+        mAddresses = null;
+        mException = exception;
+    }
+
+    /**
+     * Returns a result for another item of the batch with the same coordinates. It gets its own
+     * list, with the same {@link Address} objects in it.
+     */
+    @NonNull
+    BatchResult copy() {
+        if (mException != null) {
+            return new BatchResult(mException.copy());
+        }
+        //noinspection ConstantConditions
+        return new BatchResult(new ArrayList<>(mAddresses));
+    }
+
+    public boolean isSuccessful() {
+        return mException == null;
+    }
+
+    /**
+     * Returns the addresses found for this item
+     *
+     * @return the addresses, or null if the query failed
+     */
+    @Nullable
+    public List<Address> getAddresses() {
+        return mAddresses;
+    }
+
+    /**
+     * Returns the reason this item failed
+     *
+     * @return the exception, or null if the query succeeded
+     */
+    @Nullable
+    public GeocoderException getException() {
+        return mException;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "mAddresses=" + mAddresses +
+                ", mException=" + mException +
+                '}';
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the {@link Transport.Call}s currently executed for a query, or for a group of queries,
+ * so that they can be aborted from another thread
+ */
+final class Cancellation {
+
+    /**
+     * How often waits that can not be woken by {@link #cancel()} check whether they were canceled
+     */
+    static final long CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * How often canceled tasks are removed from the timer queue where the timer can't remove
+     * them on cancel
+     */
+    private static final long PURGE_INTERVAL_SECONDS = 10;
+
+    private static ScheduledExecutorService sTimer;
+
+    private final List<Transport.Call> mCalls = new ArrayList<>(1);
+
+    private final List<Cancellation> mChildren = new ArrayList<>(1);
+
+    private final List<Runnable> mListeners = new ArrayList<>(1);
+
+    @Nullable
+    private final Cancellation mParent;
+
+    private final long mDeadline;
+
+    @Nullable
+    private ScheduledFuture<?> mTimeout;
+
+    private boolean mCanceled;
+
+    private boolean mTimedOut;
+
+    Cancellation() {
+        mParent = null;
+        mDeadline = Long.MAX_VALUE;
+    }
+
+    private Cancellation(@Nullable final Cancellation parent, final long deadline) {
+        mParent = parent;
+        mDeadline = deadline;
+    }
+
+    /**
+     * Creates a cancellation that is canceled when the parent is canceled. {@link #close()} must
+     * be called when it is no longer used.
+     *
+     * @param parent the parent, may be null
+     * @return the new cancellation
+     */
+    @NonNull
+    static Cancellation child(@Nullable final Cancellation parent) {
+        final Cancellation cancellation = new Cancellation(parent,
+                parent != null ? parent.mDeadline : Long.MAX_VALUE);
+        if (parent != null) {
+            parent.attachChild(cancellation);
+        }
+        return cancellation;
+    }
+
+    /**
+     * Creates a cancellation that is canceled when the parent is canceled or when the timeout
+     * passes. {@link #close()} must be called when it is no longer used.
+     *
+     * @param parent  the parent, may be null
+     * @param timeout the timeout in nanoseconds
+     * @return the new cancellation. Its deadline is the earlier of the timeout and the deadline
+     * of the parent.
+     */
+    @NonNull
+    static Cancellation withTimeout(@Nullable final Cancellation parent, final long timeout) {
+        long deadline = System.nanoTime() + timeout;
+        if (parent != null && parent.mDeadline != Long.MAX_VALUE
+                && parent.mDeadline - deadline < 0) {
+            deadline = parent.mDeadline;
+        }
+        final Cancellation cancellation = new Cancellation(parent, deadline);
+        if (parent != null) {
+            parent.attachChild(cancellation);
+        }
+        final ScheduledFuture<?> future = schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                cancellation.timeOut();
+            }
+        }, timeout);
+        synchronized (cancellation) {
+            cancellation.mTimeout = future;
+        }
+        return cancellation;
+    }
+
+    /**
+     * Runs the task on a shared timer thread after the delay. The task must not block.
+     *
+     * @param task  the task
+     * @param delay the delay in nanoseconds
+     * @return the future to cancel the task with
+     */
+    @NonNull
+    static ScheduledFuture<?> schedule(@NonNull final Runnable task, final long delay) {
+        return timer().schedule(task, delay, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    private static synchronized ScheduledExecutorService timer() {
+        if (sTimer == null) {
+            final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(@NonNull final Runnable r) {
+                            final Thread thread = new Thread(r, "Geocoder timeout");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            // A canceled timeout would otherwise stay queued until its delay passes, keeping
+            // its Cancellation and calls reachable
+            try {
+                timer.setRemoveOnCancelPolicy(true);
+            } catch (NoSuchMethodError e) {
+                // Android before API 21
+                timer.scheduleWithFixedDelay(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        timer.purge();
+                    }
+                }, PURGE_INTERVAL_SECONDS, PURGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+            sTimer = timer;
+        }
+        return sTimer;
+    }
+
+    /**
+     * Registers the call that is about to be executed
+     *
+     * @throws InterruptedIOException if already canceled
+     */
+    synchronized void attach(@NonNull final Transport.Call call) throws InterruptedIOException {
+        if (mCanceled) {
+            throw new InterruptedIOException("Canceled");
+        }
+        mCalls.add(call);
+    }
+
+    /**
+     * Unregisters the call after it is finished
+     */
+    synchronized void detach(@NonNull final Transport.Call call) {
+        mCalls.remove(call);
+    }
+
+    /**
+     * Registers a task to run when this is canceled, such as waking a wait on another monitor.
+     * Runs it right away if already canceled. The task is run on the canceling thread without
+     * this object locked.
+     */
+    void addListener(@NonNull final Runnable listener) {
+        synchronized (this) {
+            if (!mCanceled) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    synchronized void removeListener(@NonNull final Runnable listener) {
+        mListeners.remove(listener);
+    }
+
+    synchronized boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * Returns whether this was canceled because its timeout passed
+     */
+    synchronized boolean isTimedOut() {
+        return mTimedOut;
+    }
+
+    /**
+     * Returns the time left until the timeout, or {@link Long#MAX_VALUE} if there is none
+     */
+    long remainingNanos() {
+        if (mDeadline == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mDeadline - System.nanoTime());
+    }
+
+    /**
+     * Waits for the given time or until canceled, whichever comes first
+     *
+     * @param nanos the time to wait
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void sleep(final long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (!mCanceled && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Cancels the current calls, if any, and all calls attached afterwards
+     */
+    void cancel() {
+        final Transport.Call[] calls;
+        final Cancellation[] children;
+        final Runnable[] listeners;
+        synchronized (this) {
+            mCanceled = true;
+            notifyAll();
+            calls = mCalls.toArray(new Transport.Call[mCalls.size()]);
+            mCalls.clear();
+            children = mChildren.toArray(new Cancellation[mChildren.size()]);
+            mChildren.clear();
+            listeners = mListeners.toArray(new Runnable[mListeners.size()]);
+            mListeners.clear();
+        }
+        for (final Transport.Call call : calls) {
+            call.cancel();
+        }
+        for (final Cancellation child : children) {
+            child.cancel();
+        }
+        for (final Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Stops the timeout and unlinks this from the parent
+     */
+    void close() {
+        final ScheduledFuture<?> timeout;
+        synchronized (this) {
+            timeout = mTimeout;
+            mTimeout = null;
+        }
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        if (mParent != null) {
+            mParent.detachChild(this);
+        }
+    }
+
+    private void timeOut() {
+        synchronized (this) {
+            if (mCanceled) {
+                return;
+            }
+            mTimedOut = true;
+        }
+        cancel();
+    }
+
+    private void attachChild(@NonNull final Cancellation child) {
+        final boolean canceled;
+        synchronized (this) {
+            canceled = mCanceled;
+            if (!canceled) {
+                mChildren.add(child);
+            }
+        }
+        if (canceled) {
+            child.cancel();
+        }
+    }
+
+    private synchronized void detachChild(@NonNull final Cancellation child) {
+        mChildren.remove(child);
+    }
+}
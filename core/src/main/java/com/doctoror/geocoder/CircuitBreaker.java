@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to the endpoint while it is failing
+ *
+ * The breaker is closed at first and records whether each of the last {@code windowSize}
+ * requests failed. A request fails if the endpoint answers {@link Status#UNKNOWN_ERROR} or if it
+ * can not be reached, see {@link GeocoderException#isCausedByNetworkError()}. When the failure
+ * rate reaches the threshold the breaker opens and queries fail with
+ * {@link CircuitOpenException} right away. After the open duration it becomes half-open and
+ * lets a single trial request through, which closes it on success or opens it again on failure.
+ *
+ * A breaker may be shared by several {@link GeocoderEngine}s.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Returned by {@link #tryAcquire()} when the request may not be sent
+     */
+    static final long REJECTED = -1;
+
+    private final int mMinimumCalls;
+
+    private final int mFailureRatePercent;
+
+    private final long mOpenNanos;
+
+    /**
+     * Ring of the last outcomes, true for a failure
+     */
+    @NonNull
+    private final boolean[] mOutcomes;
+
+    private int mNext;
+
+    private int mCalls;
+
+    private int mFailures;
+
+    @NonNull
+    private State mState = State.CLOSED;
+
+    private long mOpenedAt;
+
+    private boolean mTrialInFlight;
+
+    /**
+     * Incremented on every state change. Outcomes of requests admitted in an earlier generation
+     * are ignored, so that a slow request from before the breaker opened can not close it.
+     */
+    private long mGeneration;
+
+    /**
+     * Constructs a closed breaker
+     *
+     * @param windowSize         number of last requests the failure rate is computed over
+     * @param minimumCalls       min number of recorded requests before the breaker may open
+     * @param failureRatePercent the failure rate that opens the breaker, 1 to 100
+     * @param openDuration       how long the breaker stays open before a trial request
+     * @param unit               the unit of openDuration
+     */
+    public CircuitBreaker(final int windowSize, final int minimumCalls,
+            final int failureRatePercent, final long openDuration, @NonNull final TimeUnit unit) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize == " + windowSize);
+        }
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls == " + minimumCalls);
+        }
+        if (failureRatePercent < 1 || failureRatePercent > 100) {
+            throw new IllegalArgumentException("failureRatePercent == " + failureRatePercent);
+        }
+        if (openDuration < 0) {
+            throw new IllegalArgumentException("openDuration == " + openDuration);
+        }
+        mOutcomes = new boolean[windowSize];
+        mMinimumCalls = minimumCalls;
+        mFailureRatePercent = failureRatePercent;
+        mOpenNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * Returns the current state
+     */
+    @NonNull
+    public synchronized State getState() {
+        if (mState == State.OPEN && System.nanoTime() - mOpenedAt >= mOpenNanos) {
+            return State.HALF_OPEN;
+        }
+        return mState;
+    }
+
+    /**
+     * Checks whether a request may be sent. If it may, it must be followed by one of
+     * {@link #onSuccess(long)}, {@link #onFailure(long)} or {@link #onIgnore(long)}.
+     *
+     * @return the tag of the request, to pass to the outcome, or {@link #REJECTED} if the request
+     * may not be sent
+     */
+    synchronized long tryAcquire() {
+        switch (mState) {
+            case CLOSED:
+                return mGeneration;
+
+            case OPEN:
+                if (System.nanoTime() - mOpenedAt < mOpenNanos) {
+                    return REJECTED;
+                }
+                mState = State.HALF_OPEN;
+                mGeneration++;
+                mTrialInFlight = true;
+                return mGeneration;
+
+            case HALF_OPEN:
+                if (mTrialInFlight) {
+                    return REJECTED;
+                }
+                mTrialInFlight = true;
+                return mGeneration;
+
+            default:
+                throw new IllegalStateException("Unexpected state: " + mState);
+        }
+    }
+
+    /**
+     * Records a request the endpoint answered
+     *
+     * @param tag the tag returned by {@link #tryAcquire()}
+     */
+    synchronized void onSuccess(final long tag) {
+        if (tag != mGeneration) {
+            return;
+        }
+        if (mState == State.HALF_OPEN) {
+            close();
+        } else if (mState == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a request that failed because of the endpoint
+     *
+     * @param tag the tag returned by {@link #tryAcquire()}
+     */
+    synchronized void onFailure(final long tag) {
+        if (tag != mGeneration) {
+            return;
+        }
+        if (mState == State.HALF_OPEN) {
+            open();
+        } else if (mState == State.CLOSED) {
+            record(true);
+            if (mCalls >= mMinimumCalls && mFailures * 100 >= mCalls * mFailureRatePercent) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Releases a request whose outcome says nothing about the endpoint, like a canceled one
+     *
+     * @param tag the tag returned by {@link #tryAcquire()}
+     */
+    synchronized void onIgnore(final long tag) {
+        if (tag == mGeneration && mState == State.HALF_OPEN) {
+            mTrialInFlight = false;
+        }
+    }
+
+    private void record(final boolean failure) {
+        if (mCalls == mOutcomes.length) {
+            if (mOutcomes[mNext]) {
+                mFailures--;
+            }
+        } else {
+            mCalls++;
+        }
+        mOutcomes[mNext] = failure;
+        if (failure) {
+            mFailures++;
+        }
+        mNext = (mNext + 1) % mOutcomes.length;
+    }
+
+    private void open() {
+        mState = State.OPEN;
+        mGeneration++;
+        mOpenedAt = System.nanoTime();
+        mTrialInFlight = false;
+    }
+
+    private void close() {
+        mState = State.CLOSED;
+        mGeneration++;
+        mTrialInFlight = false;
+        mCalls = 0;
+        mFailures = 0;
+        mNext = 0;
+    }
+}
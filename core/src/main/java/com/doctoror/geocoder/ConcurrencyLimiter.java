@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limit on the number of requests in flight that adapts to what the server accepts
+ *
+ * The limit grows by about one for every limit's worth of healthy responses and shrinks
+ * multiplicatively when the server answers {@link Status#OVER_QUERY_LIMIT} or when a response
+ * takes much longer than usual (AIMD). Only requests started after the last decrease can
+ * decrease the limit again, so a burst of overloaded responses to requests that were in flight
+ * together counts once. Queries that find the limit reached wait for a request to finish, so
+ * batch and async workloads settle on the concurrency the server sustains.
+ *
+ * A limiter may be shared by several {@link GeocoderEngine}s with the same API key.
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * Factor applied to the limit on {@link Status#OVER_QUERY_LIMIT}
+     */
+    private static final double OVERLOAD_BACKOFF = 0.5;
+
+    /**
+     * Factor applied to the limit on a slow response
+     */
+    private static final double LATENCY_BACKOFF = 0.9;
+
+    /**
+     * A response is slow if it takes this many times longer than the average
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Number of responses to average before latency affects the limit
+     */
+    private static final int LATENCY_WARMUP = 8;
+
+    private final int mMinLimit;
+
+    private final int mMaxLimit;
+
+    private double mLimit;
+
+    private int mInFlight;
+
+    private double mAverageLatencyNanos;
+
+    private int mLatencySamples;
+
+    /**
+     * Number of decreases so far. Requests are tagged with it when acquired.
+     */
+    private long mDecreases;
+
+    /**
+     * Constructs a limiter
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit     the limit never shrinks below this
+     * @param maxLimit     the limit never grows above this
+     */
+    public ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("minLimit == " + minLimit);
+        }
+        if (maxLimit < minLimit) {
+            throw new IllegalArgumentException("maxLimit == " + maxLimit);
+        }
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("initialLimit == " + initialLimit);
+        }
+        mMinLimit = minLimit;
+        mMaxLimit = maxLimit;
+        mLimit = initialLimit;
+    }
+
+    /**
+     * Returns the current limit
+     */
+    public synchronized int getLimit() {
+        return (int) mLimit;
+    }
+
+    /**
+     * Returns the number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return mInFlight;
+    }
+
+    /**
+     * Waits until a request may be started and counts it as in flight. Must be followed by one
+     * of {@link #onSuccess(long, long)}, {@link #onOverload(long)} or {@link #onIgnore()}.
+     *
+     * @param cancellation aborts the wait when canceled, may be null
+     * @return the tag of the request, to pass to {@link #onSuccess(long, long)} or
+     * {@link #onOverload(long)}
+     * @throws InterruptedException   if interrupted while waiting
+     * @throws InterruptedIOException if canceled while waiting
+     */
+    synchronized long acquire(@Nullable final Cancellation cancellation)
+            throws InterruptedException, InterruptedIOException {
+        if (mInFlight >= (int) mLimit) {
+            await(cancellation);
+        }
+        mInFlight++;
+        return mDecreases;
+    }
+
+    private void await(@Nullable final Cancellation cancellation)
+            throws InterruptedException, InterruptedIOException {
+        final Runnable wakeup = cancellation == null ? null : new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized (ConcurrencyLimiter.this) {
+                    ConcurrencyLimiter.this.notifyAll();
+                }
+            }
+        };
+        if (cancellation != null) {
+            cancellation.addListener(wakeup);
+        }
+        boolean acquired = false;
+        try {
+            while (mInFlight >= (int) mLimit) {
+                if (cancellation != null && cancellation.isCanceled()) {
+                    throw new InterruptedIOException("Canceled");
+                }
+                wait();
+            }
+            acquired = true;
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeListener(wakeup);
+            }
+            if (!acquired && mInFlight < (int) mLimit) {
+                // This thread may have consumed the notification for the free slot
+                notify();
+            }
+        }
+    }
+
+    /**
+     * Releases a request that got a response
+     *
+     * @param tag          the tag returned by {@link #acquire(Cancellation)}
+     * @param latencyNanos the time the request took
+     */
+    synchronized void onSuccess(final long tag, final long latencyNanos) {
+        final boolean slow = mLatencySamples >= LATENCY_WARMUP
+                && latencyNanos > mAverageLatencyNanos * LATENCY_TOLERANCE;
+        if (mLatencySamples == 0) {
+            mAverageLatencyNanos = latencyNanos;
+        } else {
+            mAverageLatencyNanos += (latencyNanos - mAverageLatencyNanos) / LATENCY_WARMUP;
+        }
+        if (mLatencySamples < LATENCY_WARMUP) {
+            mLatencySamples++;
+        }
+
+        if (slow) {
+            decrease(tag, LATENCY_BACKOFF);
+        } else if (mInFlight * 2 >= (int) mLimit) {
+            // Grow only while the limit is actually used, not while the caller is idle
+            final int before = (int) mLimit;
+            mLimit = Math.min(mMaxLimit, mLimit + 1.0 / mLimit);
+            if ((int) mLimit > before) {
+                notify();
+            }
+        }
+        release();
+    }
+
+    /**
+     * Releases a request that was answered with {@link Status#OVER_QUERY_LIMIT}
+     *
+     * @param tag the tag returned by {@link #acquire(Cancellation)}
+     */
+    synchronized void onOverload(final long tag) {
+        decrease(tag, OVERLOAD_BACKOFF);
+        release();
+    }
+
+    /**
+     * Releases a request that failed for a reason that says nothing about server load
+     */
+    synchronized void onIgnore() {
+        release();
+    }
+
+    /**
+     * Decreases the limit, unless it was decreased after the request was started
+     */
+    private void decrease(final long tag, final double factor) {
+        if (tag == mDecreases) {
+            mLimit = Math.max(mMinLimit, mLimit * factor);
+            mDecreases++;
+        }
+    }
+
+    private void release() {
+        mInFlight--;
+        // Every waiter waits for the same thing, so one is enough
+        notify();
+    }
+}
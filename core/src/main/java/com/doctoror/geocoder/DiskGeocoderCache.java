@@ -0,0 +1,784 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of geocoding results that survives process restarts
+ *
+ * Set with {@link GeocoderEngine#setDiskCache(DiskGeocoderCache)}. It is consulted after the
+ * in-memory caches miss and before making a request. On Android use a directory in the app
+ * storage, such as {@code Context.getCacheDir()}; on the JVM any writable directory. Only one
+ * instance may use a directory at a time, which is enforced with a file lock.
+ *
+ * Results are appended to a log file, which is memory-mapped for reading, and located through
+ * an index that is rebuilt by scanning the log when the cache is opened. Every record carries a
+ * checksum, so a record torn by a crash is detected and the log is truncated before it. Once
+ * the log outgrows {@code maxBytes}, or most of it is taken by replaced and expired records,
+ * the live records are copied to a new log which atomically replaces the old one, dropping the
+ * oldest records if needed to fit.
+ *
+ * Lookups read the log on the calling thread without blocking each other or the writes. Stores
+ * are written and the log is compacted on a background thread, so a stored result may not be
+ * found until it is written. I/O errors are not reported; a failed lookup is a cache miss and a
+ * failed store is ignored.
+ */
+public final class DiskGeocoderCache implements Closeable {
+
+    private static final String LOG_FILE = "geocoder.log";
+
+    private static final String COMPACT_FILE = "geocoder.log.tmp";
+
+    private static final String LOCK_FILE = "geocoder.lock";
+
+    /**
+     * "GE" followed by the {@link AddressCodec#VERSION} of the values. Records of another version
+     * do not match, so recovery discards a log written with a different layout.
+     */
+    private static final int MAGIC = 0x47450000 | (AddressCodec.VERSION & 0xffff);
+
+    /**
+     * Magic and CRC32 of the body, followed by the body: key length, value length, expiration
+     * time, max results, key and value
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 4;
+
+    /**
+     * The log is compacted when replaced and expired records take at least this share of it
+     */
+    private static final int COMPACT_DEAD_PERCENT = 50;
+
+    /**
+     * Min log size to compact for dead records
+     */
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
+
+    /**
+     * Compaction drops the oldest records until the log takes at most this share of maxBytes
+     */
+    private static final int COMPACT_TARGET_PERCENT = 75;
+
+    /**
+     * Stores beyond this many waiting to be written are dropped rather than queued
+     */
+    private static final int MAX_PENDING_WRITES = 256;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @NonNull
+    private final File mDirectory;
+
+    private final long mMaxBytes;
+
+    private final long mTtlMillis;
+
+    @NonNull
+    private final RandomAccessFile mLockFile;
+
+    @NonNull
+    private final ThreadPoolExecutor mWriter;
+
+    /**
+     * Held while the files are modified: by the writer thread, {@link #clear()} and
+     * {@link #close()}. Lookups only lock this object, for as long as it takes to find a record.
+     */
+    private final Object mWriteLock = new Object();
+
+    private final AtomicInteger mPendingWrites = new AtomicInteger();
+
+    /**
+     * The open log, or null if closed or if reopening it after a compaction failed
+     */
+    @Nullable
+    private Log mLog;
+
+    private boolean mClosed;
+
+    /**
+     * Opens the cache, recovering the records that were stored before
+     *
+     * @param directory the directory for the cache files, created if missing
+     * @param maxBytes  max size of the cache files
+     * @param ttl       how long a result is valid for, or 0 for no expiration
+     * @param unit      the unit of ttl
+     * @throws IOException if the directory or the log can not be opened, or if another instance
+     *                     uses the directory
+     */
+    public DiskGeocoderCache(@NonNull final File directory, final long maxBytes, final long ttl,
+            @NonNull final TimeUnit unit) throws IOException {
+        // The log is memory-mapped as a whole, which limits it to 2 GB
+        if (maxBytes < 1 || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes == " + maxBytes);
+        }
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl == " + ttl);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mTtlMillis = unit.toMillis(ttl);
+
+        mLockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        try {
+            FileLock lock;
+            try {
+                lock = mLockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Held by another instance in this process
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException(directory + " is used by another DiskGeocoderCache");
+            }
+
+            // Left over by a compaction that did not finish; the log is still intact
+            final File compactFile = new File(directory, COMPACT_FILE);
+            if (compactFile.exists() && !compactFile.delete()) {
+                throw new IOException("Can not delete " + compactFile);
+            }
+            mLog = Log.open(new File(directory, LOG_FILE));
+        } catch (IOException e) {
+            // Releases the lock
+            mLockFile.close();
+            throw e;
+        }
+
+        final ThreadFactory threadFactory = new ThreadFactory() {
+
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                final Thread thread = new Thread(r, "Geocoder disk cache");
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // The thread exits when idle
+        mWriter = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        mWriter.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the size of the log in bytes
+     */
+    public synchronized long size() {
+        return mLog != null ? mLog.mSize : 0;
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void clear() {
+        synchronized (mWriteLock) {
+            synchronized (this) {
+                if (mClosed) {
+                    return;
+                }
+            }
+            final File emptyFile = new File(mDirectory, COMPACT_FILE);
+            try {
+                final RandomAccessFile empty = new RandomAccessFile(emptyFile, "rw");
+                try {
+                    empty.setLength(0);
+                } finally {
+                    empty.close();
+                }
+                replaceLog(emptyFile, new HashMap<String, Record>(), 0);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Writes the pending stores and closes the log
+     *
+     * @throws InterruptedIOException if interrupted while waiting for the pending stores
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        final Log log;
+        synchronized (mWriteLock) {
+            synchronized (this) {
+                mClosed = true;
+                log = mLog;
+                mLog = null;
+            }
+        }
+        mWriter.shutdown();
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } finally {
+            mLockFile.close();
+        }
+    }
+
+    /**
+     * Waits until the results stored so far are written
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    void flush() throws InterruptedIOException {
+        synchronized (mWriteLock) {
+            while (mPendingWrites.get() != 0) {
+                try {
+                    mWriteLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached result
+     *
+     * @param key        the cache key
+     * @param maxResults max number of addresses requested
+     * @return the result, or null if not cached, expired, or if the cached result was made for a
+     * lower maxResults and may be incomplete
+     */
+    @Nullable
+    List<Address> get(@NonNull final String key, final int maxResults) {
+        return get(key, maxResults, false);
+    }
+
+    /**
+     * Returns the cached result. Expired results are kept until they are replaced or the log is
+     * compacted or reopened, so they can still be served while the endpoint is unavailable.
+     *
+     * @param key          the cache key
+     * @param maxResults   max number of addresses requested
+     * @param allowExpired whether to return an expired result
+     * @return the result, or null if not cached, expired and not allowed, or if the cached result
+     * was made for a lower maxResults and may be incomplete
+     */
+    @Nullable
+    List<Address> get(@NonNull final String key, final int maxResults,
+            final boolean allowExpired) {
+        final Log log;
+        final Record record;
+        synchronized (this) {
+            log = mLog;
+            record = log != null ? log.mIndex.get(key) : null;
+        }
+        if (record == null) {
+            return null;
+        }
+        if (!allowExpired && record.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        final List<Address> addresses;
+        try {
+            // The log may be compacted or cleared meanwhile, so the record is verified after
+            // reading. A log that was replaced is not overwritten, so this reads either the
+            // record or fails.
+            final byte[] bytes = new byte[record.mLength];
+            log.read(record.mOffset, bytes);
+            verify(bytes, key);
+            addresses = AddressCodec.readList(new DataInputStream(new ByteArrayInputStream(
+                    bytes, bytes.length - record.mValueLength, record.mValueLength)));
+        } catch (IOException e) {
+            return null;
+        }
+        if (addresses.size() >= maxResults) {
+            return new ArrayList<>(addresses.subList(0, Math.max(maxResults, 0)));
+        }
+        if (addresses.size() < record.mMaxResults) {
+            // The response had fewer results than were asked for, so this is all there is
+            return addresses;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the result. It is written on a background thread; if too many stores are waiting,
+     * it is dropped.
+     */
+    void put(@NonNull final String key, final int maxResults,
+            @NonNull final List<Address> addresses) {
+        final byte[] value;
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            AddressCodec.writeList(new DataOutputStream(bytes), addresses);
+            value = bytes.toByteArray();
+        } catch (IOException e) {
+            return;
+        }
+        final long expires = mTtlMillis == 0 ? 0 : System.currentTimeMillis() + mTtlMillis;
+        final byte[] record = encode(key.getBytes(UTF_8), value, expires, maxResults);
+        if (record.length > mMaxBytes) {
+            return;
+        }
+
+        if (mPendingWrites.incrementAndGet() > MAX_PENDING_WRITES) {
+            writeDone();
+            return;
+        }
+        try {
+            mWriter.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        write(key, record, value.length, expires, maxResults);
+                    } finally {
+                        writeDone();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+            writeDone();
+        }
+    }
+
+    private void writeDone() {
+        synchronized (mWriteLock) {
+            mPendingWrites.decrementAndGet();
+            mWriteLock.notifyAll();
+        }
+    }
+
+    /**
+     * Appends the record to the log and compacts it if needed. Called on the writer thread.
+     */
+    private void write(@NonNull final String key, @NonNull final byte[] bytes,
+            final int valueLength, final long expires, final int maxResults) {
+        synchronized (mWriteLock) {
+            Log log;
+            synchronized (this) {
+                if (mClosed) {
+                    return;
+                }
+                log = mLog;
+            }
+            if (log == null) {
+                // Reopening the log after a compaction failed; try again
+                try {
+                    log = Log.open(new File(mDirectory, LOG_FILE));
+                } catch (IOException e) {
+                    return;
+                }
+                synchronized (this) {
+                    mLog = log;
+                }
+            }
+
+            // Only this thread appends, so the size does not change meanwhile
+            final long offset = log.mSize;
+            try {
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    log.mChannel.write(buffer, offset + buffer.position());
+                }
+            } catch (IOException e) {
+                // A partially written record is overwritten by the next one, or dropped by the
+                // next recovery
+                return;
+            }
+            final boolean compact;
+            synchronized (this) {
+                log.mSize = offset + bytes.length;
+                log.index(key, new Record(offset, bytes.length, valueLength, expires,
+                        maxResults));
+                compact = log.mSize > mMaxBytes || (log.mSize >= COMPACT_MIN_BYTES
+                        && log.mDeadBytes * 100 >= log.mSize * COMPACT_DEAD_PERCENT);
+            }
+            if (compact) {
+                try {
+                    compact(log);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the live records, newest last, to a new log and replaces the old one with it.
+     * Called with {@link #mWriteLock} held.
+     */
+    private void compact(@NonNull final Log log) throws IOException {
+        final long now = System.currentTimeMillis();
+        final List<Map.Entry<String, Record>> live;
+        long liveBytes = 0;
+        synchronized (this) {
+            live = new ArrayList<>(log.mIndex.size());
+            for (final Map.Entry<String, Record> entry : log.mIndex.entrySet()) {
+                if (!entry.getValue().isExpired(now)) {
+                    live.add(entry);
+                    liveBytes += entry.getValue().mLength;
+                }
+            }
+        }
+        Collections.sort(live, new Comparator<Map.Entry<String, Record>>() {
+
+            @Override
+            public int compare(final Map.Entry<String, Record> a,
+                    final Map.Entry<String, Record> b) {
+                final long x = a.getValue().mOffset;
+                final long y = b.getValue().mOffset;
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        int first = 0;
+        final long target = mMaxBytes / 100 * COMPACT_TARGET_PERCENT;
+        while (liveBytes > target && first < live.size()) {
+            liveBytes -= live.get(first++).getValue().mLength;
+        }
+
+        final File compactFile = new File(mDirectory, COMPACT_FILE);
+        final Map<String, Record> index = new HashMap<>();
+        final RandomAccessFile out = new RandomAccessFile(compactFile, "rw");
+        try {
+            final FileChannel channel = out.getChannel();
+            channel.truncate(0);
+            long position = 0;
+            for (int i = first; i < live.size(); i++) {
+                final Record record = live.get(i).getValue();
+                final long copied = log.mChannel.transferTo(record.mOffset, record.mLength,
+                        channel);
+                if (copied != record.mLength) {
+                    throw new IOException("Short copy during compaction");
+                }
+                index.put(live.get(i).getKey(), new Record(position, record.mLength,
+                        record.mValueLength, record.mExpires, record.mMaxResults));
+                position += copied;
+            }
+            channel.force(true);
+        } finally {
+            out.close();
+        }
+        replaceLog(compactFile, index, liveBytes);
+    }
+
+    /**
+     * Replaces the log with the given file. Called with {@link #mWriteLock} held.
+     *
+     * @param replacement the new log
+     * @param index       the index of the new log
+     * @param size        the size of the new log
+     */
+    private void replaceLog(@NonNull final File replacement,
+            @NonNull final Map<String, Record> index, final long size) throws IOException {
+        final File logFile = new File(mDirectory, LOG_FILE);
+        final Log old;
+        if (replacement.renameTo(logFile)) {
+            // Lookups in progress keep reading the old file, which is not modified anymore
+            final Log log = Log.open(logFile, index, size);
+            synchronized (this) {
+                old = mLog;
+                mLog = log;
+            }
+            if (old != null) {
+                old.close();
+            }
+            return;
+        }
+
+        // Some platforms can not replace a file that is open, so try again with the old log
+        // closed. Lookups meanwhile are misses.
+        synchronized (this) {
+            old = mLog;
+            mLog = null;
+        }
+        if (old != null) {
+            old.close();
+        }
+        final boolean renamed = replacement.renameTo(logFile);
+        // Recovers whichever log is in place. If this fails, the next store tries again.
+        final Log log = Log.open(logFile);
+        synchronized (this) {
+            mLog = log;
+        }
+        if (!renamed) {
+            throw new IOException("Can not rename " + replacement);
+        }
+    }
+
+    /**
+     * Checks that the bytes read are an intact record for the key
+     *
+     * @throws IOException if not
+     */
+    private static void verify(@NonNull final byte[] record, @NonNull final String key)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (record.length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a record");
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record, 8, record.length - 8);
+        if ((int) crc.getValue() != buffer.getInt(4)) {
+            throw new IOException("Checksum mismatch");
+        }
+        final byte[] keyBytes = key.getBytes(UTF_8);
+        final int keyLength = buffer.getInt(8);
+        if (keyLength != keyBytes.length || !Arrays.equals(keyBytes,
+                Arrays.copyOfRange(record, HEADER_SIZE, HEADER_SIZE + keyLength))) {
+            throw new IOException("Key mismatch");
+        }
+    }
+
+    @NonNull
+    private static byte[] encode(@NonNull final byte[] key, @NonNull final byte[] value,
+            final long expires, final int maxResults) {
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+        record.putInt(MAGIC)
+                .putInt(0)
+                .putInt(key.length)
+                .putInt(value.length)
+                .putLong(expires)
+                .putInt(maxResults)
+                .put(key)
+                .put(value);
+        final byte[] bytes = record.array();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 8, bytes.length - 8);
+        record.putInt(4, (int) crc.getValue());
+        return bytes;
+    }
+
+    /**
+     * An open log file and its index. The index, size and dead bytes are guarded by the cache.
+     */
+    private static final class Log {
+
+        @NonNull
+        final RandomAccessFile mFile;
+
+        @NonNull
+        final FileChannel mChannel;
+
+        @NonNull
+        final Map<String, Record> mIndex;
+
+        /**
+         * Mapping of the log as of opening. Records appended afterwards are read with the
+         * channel.
+         */
+        @Nullable
+        final MappedByteBuffer mMapped;
+
+        long mSize;
+
+        long mDeadBytes;
+
+        private Log(@NonNull final RandomAccessFile file, @NonNull final Map<String, Record> index,
+                final long size, final long deadBytes) throws IOException {
+            mFile = file;
+            mChannel = file.getChannel();
+            mIndex = index;
+            mSize = size;
+            mDeadBytes = deadBytes;
+            mMapped = size == 0 ? null : mChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        /**
+         * Opens a log whose index is known
+         */
+        @NonNull
+        static Log open(@NonNull final File file, @NonNull final Map<String, Record> index,
+                final long size) throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                return new Log(raf, index, size, 0);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Opens a log, scanning it to rebuild the index and truncating it after the last valid
+         * record
+         */
+        @NonNull
+        static Log open(@NonNull final File file) throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final Map<String, Record> index = new HashMap<>();
+                final long[] deadBytes = new long[1];
+                final long size = recover(channel, index, deadBytes);
+                return new Log(raf, index, size, deadBytes[0]);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Scans the log, rebuilding the index, and truncates it after the last valid record
+         *
+         * @param deadBytes receives the size of the replaced and expired records
+         * @return the size of the valid part of the log
+         */
+        private static long recover(@NonNull final FileChannel channel,
+                @NonNull final Map<String, Record> index, @NonNull final long[] deadBytes)
+                throws IOException {
+            final long fileSize = channel.size();
+            if (fileSize == 0) {
+                return 0;
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    fileSize);
+            final long now = System.currentTimeMillis();
+            final CRC32 crc = new CRC32();
+            int offset = 0;
+            while (fileSize - offset >= HEADER_SIZE) {
+                buffer.position(offset);
+                if (buffer.getInt() != MAGIC) {
+                    break;
+                }
+                final int checksum = buffer.getInt();
+                final int keyLength = buffer.getInt();
+                final int valueLength = buffer.getInt();
+                final long expires = buffer.getLong();
+                final int maxResults = buffer.getInt();
+                if (keyLength < 0 || valueLength < 0
+                        || keyLength > fileSize - offset - HEADER_SIZE - valueLength) {
+                    break;
+                }
+                final int length = HEADER_SIZE + keyLength + valueLength;
+                final byte[] body = new byte[length - 8];
+                buffer.position(offset + 8);
+                buffer.get(body);
+                crc.reset();
+                crc.update(body, 0, body.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                final String key = new String(body, HEADER_SIZE - 8, keyLength, UTF_8);
+                final Record record = new Record(offset, length, valueLength, expires,
+                        maxResults);
+                final Record previous;
+                if (record.isExpired(now)) {
+                    deadBytes[0] += length;
+                    previous = index.remove(key);
+                } else {
+                    previous = index.put(key, record);
+                }
+                if (previous != null) {
+                    deadBytes[0] += previous.mLength;
+                }
+                offset += length;
+            }
+            if (offset != fileSize) {
+                // Torn or corrupt tail, most likely from a crash during a write
+                channel.truncate(offset);
+            }
+            return offset;
+        }
+
+        void index(@NonNull final String key, @NonNull final Record record) {
+            final Record previous = mIndex.put(key, record);
+            if (previous != null) {
+                mDeadBytes += previous.mLength;
+            }
+        }
+
+        /**
+         * Reads the bytes at the position. Safe to call from any thread.
+         */
+        void read(final long position, @NonNull final byte[] target) throws IOException {
+            final MappedByteBuffer mapped = mMapped;
+            if (mapped != null && position + target.length <= mapped.capacity()) {
+                // A duplicate has its own position
+                final ByteBuffer view = mapped.duplicate();
+                view.position((int) position);
+                view.get(target);
+                return;
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(target);
+            while (buffer.hasRemaining()) {
+                if (mChannel.read(buffer, position + buffer.position()) == -1) {
+                    throw new IOException("Unexpected end of log");
+                }
+            }
+        }
+
+        void close() throws IOException {
+            mFile.close();
+        }
+    }
+
+    private static final class Record {
+
+        final long mOffset;
+
+        final int mLength;
+
+        final int mValueLength;
+
+        final long mExpires;
+
+        final int mMaxResults;
+
+        Record(final long offset, final int length, final int valueLength, final long expires,
+                final int maxResults) {
+            mOffset = offset;
+            mLength = length;
+            mValueLength = valueLength;
+            mExpires = expires;
+            mMaxResults = maxResults;
+        }
+
+        boolean isExpired(final long now) {
+            return mExpires != 0 && now >= mExpires;
+        }
+    }
+}
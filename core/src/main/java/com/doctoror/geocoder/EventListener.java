@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives the phases of a query, for finding out where the time of a slow query went
+ *
+ * A listener is created for every query by the {@link Factory} set with
+ * {@link GeocoderEngine#setEventListenerFactory(Factory)}. Every callback carries a timestamp
+ * from {@link System#nanoTime()}. Nothing is measured when no factory is set.
+ *
+ * The events of a query normally arrive in order from the querying thread. With hedging enabled,
+ * see {@link GeocoderEngine#setHedging(HedgePolicy, java.util.concurrent.Executor)}, the
+ * {@link #connectStart(long, String)}, {@link #connectEnd(long)}, {@link #requestSent(long)}
+ * and {@link #responseFirstByte(long)} events of the hedge arrive on a hedging executor thread,
+ * concurrently with the events of the first request. Listeners must be thread-safe when hedging
+ * is enabled. The body and parse events of the hedge are only delivered, on the querying
+ * thread, if its response is used. A query coalesced with an identical one in flight gets
+ * {@link #coalesced(long)} instead of the events of the shared request. With a call timeout or
+ * a canceled future, the last events of the request may arrive after
+ * {@link #queryFailed(long, GeocoderException)}.
+ *
+ * All methods do nothing by default and should return quickly.
+ */
+public abstract class EventListener {
+
+    /**
+     * Creates a listener for each query
+     */
+    public interface Factory {
+
+        @NonNull
+        EventListener create();
+    }
+
+    /**
+     * The query is started, before any cache lookup
+     */
+    public void queryStart(final long nanoTime) {
+    }
+
+    /**
+     * The query returned addresses, either cached or downloaded
+     */
+    public void queryEnd(final long nanoTime, final int resultCount) {
+    }
+
+    /**
+     * The query failed. No events follow, except possibly late HTTP events of a canceled request.
+     */
+    public void queryFailed(final long nanoTime, @NonNull final GeocoderException e) {
+    }
+
+    /**
+     * The in-memory and disk caches are about to be looked up
+     */
+    public void cacheLookupStart(final long nanoTime) {
+    }
+
+    /**
+     * The cache lookup is finished
+     *
+     * @param hit true if the result was found in a cache and no request will be made
+     */
+    public void cacheLookupEnd(final long nanoTime, final boolean hit) {
+    }
+
+    /**
+     * The request was not sent because the {@link CircuitBreaker} is open, and the query is
+     * answered with an expired entry from the disk cache instead. Follows the
+     * {@link #cacheLookupEnd(long, boolean)} that reported the miss.
+     */
+    public void staleCacheHit(final long nanoTime) {
+    }
+
+    /**
+     * The query waits for an identical query in flight instead of sending its own request
+     */
+    public void coalesced(final long nanoTime) {
+    }
+
+    /**
+     * The query starts waiting for the {@link RateLimiter}
+     */
+    public void rateLimitWaitStart(final long nanoTime) {
+    }
+
+    /**
+     * The wait for the {@link RateLimiter} is over
+     *
+     * @param acquired true if the request may be sent, false if the query fails with
+     *                 {@link RateLimitedException}
+     */
+    public void rateLimitWaitEnd(final long nanoTime, final boolean acquired) {
+    }
+
+    /**
+     * The transport starts connecting, including DNS lookup and TLS handshake. Reusing a pooled
+     * connection makes the connect phase very short.
+     *
+     * @param url the request URL
+     */
+    public void connectStart(final long nanoTime, @NonNull final String url) {
+    }
+
+    /**
+     * The connection is established
+     */
+    public void connectEnd(final long nanoTime) {
+    }
+
+    /**
+     * The request is handed to the connection
+     */
+    public void requestSent(final long nanoTime) {
+    }
+
+    /**
+     * The response headers arrived
+     */
+    public void responseFirstByte(final long nanoTime) {
+    }
+
+    /**
+     * The response body is finished, either read to the end or closed. Because the body is
+     * parsed while it arrives, this usually comes after {@link #parseEnd(long, int)}.
+     *
+     * @param byteCount number of body bytes read from the connection, before decompression
+     */
+    public void responseBodyEnd(final long nanoTime, final long byteCount) {
+    }
+
+    /**
+     * Parsing of the response starts
+     */
+    public void parseStart(final long nanoTime) {
+    }
+
+    /**
+     * The response is parsed
+     *
+     * @param resultCount number of addresses parsed
+     */
+    public void parseEnd(final long nanoTime, final int resultCount) {
+    }
+
+    /**
+     * An attempt failed and the query will be retried after the given delay
+     *
+     * @param attempt    the number of the failed attempt, starting with 1
+     * @param cause      why the attempt failed
+     * @param delayNanos time to wait before the next attempt
+     */
+    public void retry(final long nanoTime, final int attempt,
+            @NonNull final GeocoderException cause, final long delayNanos) {
+    }
+}
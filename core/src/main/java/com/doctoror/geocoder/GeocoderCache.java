@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of forward geocoding results
+ *
+ * Set with {@link GeocoderEngine#setCache(GeocoderCache)}. Results are keyed by the normalized
+ * location name, the response language, the API key and whether address components were
+ * parsed, so one cache can be shared by several {@link GeocoderEngine} instances. The cache is safe
+ * for concurrent use.
+ *
+ * The {@link Address} objects in the lists returned on cache hits are shared between callers
+ * and must not be modified.
+ */
+public final class GeocoderCache {
+
+    /**
+     * Computes the weight of a cached result for weight-based eviction
+     */
+    public interface Weigher {
+
+        /**
+         * Returns the weight of the result, must not be negative
+         */
+        int weigh(@NonNull List<Address> addresses);
+    }
+
+    /**
+     * Weighs a result by the number of addresses in it
+     */
+    private static final Weigher DEFAULT_WEIGHER = new Weigher() {
+
+        @Override
+        public int weigh(@NonNull final List<Address> addresses) {
+            return 1 + addresses.size();
+        }
+    };
+
+    @NonNull
+    private final LruCache<String, CachedResult> mCache;
+
+    /**
+     * Constructs a cache that weighs each result by the number of addresses in it
+     *
+     * @param maxEntries max number of cached results
+     * @param maxWeight  max total weight of cached results
+     * @param ttl        how long a result is valid for, or 0 for no expiration
+     * @param unit       the unit of ttl
+     */
+    public GeocoderCache(final int maxEntries, final long maxWeight, final long ttl,
+            @NonNull final TimeUnit unit) {
+        this(maxEntries, maxWeight, ttl, unit, DEFAULT_WEIGHER);
+    }
+
+    /**
+     * Constructs a cache
+     *
+     * @param maxEntries max number of cached results
+     * @param maxWeight  max total weight of cached results
+     * @param ttl        how long a result is valid for, or 0 for no expiration
+     * @param unit       the unit of ttl
+     * @param weigher    computes the weight of results
+     */
+    public GeocoderCache(final int maxEntries, final long maxWeight, final long ttl,
+            @NonNull final TimeUnit unit, @NonNull final Weigher weigher) {
+        //noinspection ConstantConditions
+        if (weigher == null) {
+            throw new NullPointerException("weigher == null");
+        }
+        mCache = new LruCache<>(maxEntries, maxWeight, unit.toNanos(ttl),
+                new LruCache.Weigher<CachedResult>() {
+
+                    @Override
+                    public int weigh(@NonNull final CachedResult value) {
+                        return weigher.weigh(value.mAddresses);
+                    }
+                });
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void clear() {
+        mCache.clear();
+    }
+
+    /**
+     * Returns the number of cached results
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Builds the cache key for a forward geocoding query
+     *
+     * @param scope identifies the endpoint and API key, see
+     *              {@link GeocoderEngine#cacheScope(String, String)}
+     */
+    @NonNull
+    static String key(@NonNull final String locationName, @NonNull final String language,
+            @NonNull final String scope, final boolean parseAddressComponents) {
+        final StringBuilder key = new StringBuilder(locationName.length() + 32)
+                .append(language)
+                .append('\n')
+                .append(scope)
+                .append('\n')
+                .append(parseAddressComponents ? '1' : '0')
+                .append('\n');
+        appendNormalized(key, locationName);
+        return key.toString();
+    }
+
+    /**
+     * Appends the location name lower-cased, trimmed and with runs of whitespace collapsed to a
+     * single space, so that trivially different spellings share an entry
+     */
+    private static void appendNormalized(@NonNull final StringBuilder target,
+            @NonNull final String locationName) {
+        final String lower = locationName.toLowerCase(Locale.ROOT);
+        boolean pendingSpace = false;
+        final int start = target.length();
+        for (int i = 0; i < lower.length(); i++) {
+            final char c = lower.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = target.length() != start;
+            } else {
+                if (pendingSpace) {
+                    target.append(' ');
+                    pendingSpace = false;
+                }
+                target.append(c);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached result for the query
+     *
+     * @param key        the key built by {@link #key(String, String, String, boolean)}
+     * @param maxResults max number of addresses requested
+     * @return the result, or null if not cached or if the cached result was made for a lower
+     * maxResults and may be incomplete
+     */
+    @Nullable
+    List<Address> get(@NonNull final String key, final int maxResults) {
+        final CachedResult result = mCache.get(key);
+        if (result == null) {
+            return null;
+        }
+        final List<Address> addresses = result.mAddresses;
+        if (addresses.size() >= maxResults) {
+            return new ArrayList<>(addresses.subList(0, Math.max(maxResults, 0)));
+        }
+        if (addresses.size() < result.mMaxResults) {
+            // The response had fewer results than were asked for, so this is all there is
+            return new ArrayList<>(addresses);
+        }
+        return null;
+    }
+
+    void put(@NonNull final String key, final int maxResults,
+            @NonNull final List<Address> addresses) {
+        mCache.put(key, new CachedResult(new ArrayList<>(addresses), maxResults));
+    }
+
+    private static final class CachedResult {
+
+        @NonNull
+        final List<Address> mAddresses;
+
+        final int mMaxResults;
+
+        CachedResult(@NonNull final List<Address> addresses, final int maxResults) {
+            mAddresses = addresses;
+            mMaxResults = maxResults;
+        }
+    }
+}
@@ -0,0 +1,1141 @@
+/*
+ * Copyright (C) 2007 The Android Open Source Project
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class for handling geocoding and reverse geocoding. Geocoding is the
+ * process of transforming a street address or other description of a location
+ * into a (latitude, longitude) coordinate. Reverse geocoding is the process of
+ * transforming a (latitude, longitude) coordinate into a (partial) address. The
+ * amount of detail in a reverse geocoded location description may vary, for
+ * example one might contain the full street address of the closest building,
+ * while another might contain only a city name and postal code.
+ *
+ * This is the platform-independent implementation that runs on any JVM. Android apps use it
+ * through {@code Geocoder}.
+ *
+ * For more information visit https://developers.google.com/maps/documentation/geocoding/
+ */
+public final class GeocoderEngine {
+
+    private static final String ENDPOINT_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+
+    /*
+     * Prefixes that keep forward and reverse keys apart in the disk cache
+     */
+
+    private static final String DISK_KEY_FORWARD = "f\n";
+
+    private static final String DISK_KEY_REVERSE = "r\n";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    @NonNull
+    private final Locale mLocale;
+
+    @Nullable
+    private final String mApiKey;
+
+    @NonNull
+    private String mEndpointUrl = ENDPOINT_URL;
+
+    /**
+     * Part of the cache keys that identifies the endpoint and API key
+     */
+    @NonNull
+    private String mCacheScope;
+
+    @NonNull
+    private Transport mTransport = new UrlConnectionTransport();
+
+    @Nullable
+    private SingleFlight mSingleFlight = new SingleFlight();
+
+    @Nullable
+    private GeocoderCache mCache;
+
+    @Nullable
+    private ReverseGeocoderCache mReverseCache;
+
+    @Nullable
+    private DiskGeocoderCache mDiskCache;
+
+    @NonNull
+    private RetryPolicy mRetryPolicy = RetryPolicy.DEFAULT;
+
+    private long mRateLimitTimeoutNanos = Long.MAX_VALUE;
+
+    private long mCallTimeoutNanos;
+
+    @Nullable
+    private ConcurrencyLimiter mConcurrencyLimiter;
+
+    @Nullable
+    private CircuitBreaker mCircuitBreaker;
+
+    @Nullable
+    private HedgePolicy mHedgePolicy;
+
+    @Nullable
+    private Executor mHedgeExecutor;
+
+    @Nullable
+    private EventListener.Factory mEventListenerFactory;
+
+    @Nullable
+    private GeocoderMetrics mMetrics;
+
+    /**
+     * Constructs an engine whose responses will be localized for the given {@link Locale} with
+     * no API key
+     *
+     * @param locale The Locale to use
+     */
+    public GeocoderEngine(@NonNull final Locale locale) {
+        this(locale, null);
+    }
+
+    /**
+     * Constructs an engine that will use your API key and whose responses will be localized for
+     * the given {@link Locale}
+     *
+     * @param locale the Locale to use
+     * @param apiKey your application's API key. This key identifies your application for
+     *               purposes of quota management. This must be a <b>Server key</b>, not Android
+     *               key created in Google Developer Console
+     */
+    public GeocoderEngine(@NonNull final Locale locale, @Nullable final String apiKey) {
+        //noinspection ConstantConditions
+        if (locale == null) {
+            throw new NullPointerException("locale == null");
+        }
+        mLocale = locale;
+        mApiKey = apiKey;
+        mCacheScope = cacheScope(mEndpointUrl, apiKey);
+    }
+
+    /**
+     * Sets the URL of the Geocoding API endpoint, for example to target a local stub server in
+     * load tests. Query parameters are appended to it, so it must not have a query. The default
+     * is the Google Maps Geocoding API JSON endpoint. Should be called before making queries.
+     *
+     * @param endpointUrl the endpoint URL
+     */
+    public void setEndpoint(@NonNull final String endpointUrl) {
+        //noinspection ConstantConditions
+        if (endpointUrl == null) {
+            throw new NullPointerException("endpointUrl == null");
+        }
+        if (endpointUrl.indexOf('?') != -1) {
+            throw new IllegalArgumentException("endpointUrl == " + endpointUrl);
+        }
+        mEndpointUrl = endpointUrl;
+        mCacheScope = cacheScope(endpointUrl, mApiKey);
+    }
+
+    /**
+     * Returns a fingerprint of the endpoint and API key for the cache keys. The key itself must
+     * not be stored, because the disk cache writes the cache keys to disk.
+     */
+    @NonNull
+    static String cacheScope(@NonNull final String endpointUrl, @Nullable final String apiKey) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android platform is required to support SHA-256
+            throw new AssertionError(e);
+        }
+        digest.update(endpointUrl.getBytes(UTF_8));
+        if (apiKey != null) {
+            digest.update((byte) '\n');
+            digest.update(apiKey.getBytes(UTF_8));
+        }
+        final byte[] hash = digest.digest();
+        // 64 bits are plenty to keep a handful of endpoints and keys apart
+        final char[] hex = new char[16];
+        for (int i = 0; i < hex.length; i += 2) {
+            final int b = hash[i >> 1] & 0xff;
+            hex[i] = HEX_DIGITS[b >> 4];
+            hex[i + 1] = HEX_DIGITS[b & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Sets the {@link Transport} used for requests. The default is
+     * {@link UrlConnectionTransport}, which reuses keep-alive connections to the endpoint.
+     * Should be called before making queries.
+     *
+     * @param transport the Transport to use
+     */
+    public void setTransport(@NonNull final Transport transport) {
+        //noinspection ConstantConditions
+        if (transport == null) {
+            throw new NullPointerException("transport == null");
+        }
+        mTransport = transport;
+    }
+
+    /**
+     * Sets whether identical queries made concurrently share a single request. When enabled,
+     * which is the default, callers that ask for the same query while it is in flight wait for
+     * it and receive the same {@link Address} objects. Should be called before making queries.
+     *
+     * @param coalesce true to share in-flight requests
+     */
+    public void setCoalesceRequests(final boolean coalesce) {
+        mSingleFlight = coalesce ? new SingleFlight() : null;
+    }
+
+    /**
+     * Sets the cache for {@link #getFromLocationName(String, int, boolean)} results. Cache hits
+     * are returned without making a request. No cache is used by default. Should be called
+     * before making queries.
+     *
+     * @param cache the cache to use, or null to disable caching
+     */
+    public void setCache(@Nullable final GeocoderCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * Sets the cache for {@link #getFromLocation(double, double, int, boolean)} results. Cache
+     * hits are returned without making a request. No cache is used by default. Should be called
+     * before making queries.
+     *
+     * @param cache the cache to use, or null to disable caching
+     */
+    public void setReverseCache(@Nullable final ReverseGeocoderCache cache) {
+        mReverseCache = cache;
+    }
+
+    /**
+     * Sets the persistent cache consulted when the in-memory caches miss. It is used for
+     * {@link #getFromLocationName(String, int, boolean)} results, and for
+     * {@link #getFromLocation(double, double, int, boolean)} results when a
+     * {@link ReverseGeocoderCache} is set, sharing its cells. No cache is used by default. Should
+     * be called before making queries.
+     *
+     * @param cache the cache to use, or null to disable it
+     */
+    public void setDiskCache(@Nullable final DiskGeocoderCache cache) {
+        mDiskCache = cache;
+    }
+
+    /**
+     * Sets the policy for retrying failed queries. The default is {@link RetryPolicy#DEFAULT}.
+     * Should be called before making queries.
+     *
+     * @param retryPolicy the policy to use, {@link RetryPolicy#NONE} to disable retries
+     */
+    public void setRetryPolicy(@NonNull final RetryPolicy retryPolicy) {
+        //noinspection ConstantConditions
+        if (retryPolicy == null) {
+            throw new NullPointerException("retryPolicy == null");
+        }
+        mRetryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets how long a query may wait for the {@link RateLimiter} registered for this Geocoder's
+     * API key before failing with {@link RateLimitedException}. By default queries wait as
+     * long as the rate requires. A query fails right away when the daily budget is used up.
+     * Should be called before making queries.
+     *
+     * @param timeout max time to wait, 0 to never wait
+     * @param unit    the unit of timeout
+     */
+    public void setRateLimitTimeout(final long timeout, @NonNull final TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout == " + timeout);
+        }
+        mRateLimitTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets the max time a query may take, including retries and the waits before them. When it
+     * passes, the request in flight is aborted and the query fails with
+     * {@link GeocoderTimeoutException}. Cache hits are not affected. There is no call timeout by
+     * default, only the connect and read timeouts of the {@link Transport}. Should be called
+     * before making queries.
+     *
+     * @param timeout max time a query may take, 0 for no limit
+     * @param unit    the unit of timeout
+     */
+    public void setCallTimeout(final long timeout, @NonNull final TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout == " + timeout);
+        }
+        mCallTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets the limit on requests in flight that adapts to {@link Status#OVER_QUERY_LIMIT}
+     * responses and latency. Queries wait while the limit is reached. No limit is used by
+     * default. Should be called before making queries.
+     *
+     * @param limiter the limiter to use, or null to disable it
+     */
+    public void setConcurrencyLimiter(@Nullable final ConcurrencyLimiter limiter) {
+        mConcurrencyLimiter = limiter;
+    }
+
+    /**
+     * Sets the circuit breaker that stops sending requests while the endpoint is failing. While
+     * it is open, queries fail with {@link CircuitOpenException}, unless the result is cached.
+     * Expired results in the {@link DiskGeocoderCache} are returned in that case too. No circuit
+     * breaker is used by default. Should be called before making queries.
+     *
+     * @param circuitBreaker the circuit breaker to use, or null to disable it
+     */
+    public void setCircuitBreaker(@Nullable final CircuitBreaker circuitBreaker) {
+        mCircuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Enables hedged requests. When a request is slow to respond, as decided by the
+     * {@link HedgePolicy}, an identical request is sent on the given {@link Executor} and the
+     * response that arrives first is used. The other request is canceled. Hedges need a permit
+     * from the {@link RateLimiter}, if any, but never wait for one. Hedging is disabled by
+     * default. Should be called before making queries.
+     *
+     * @param policy   the policy to use, or null to disable hedging
+     * @param executor the Executor to send hedges on. It must run them on other threads, a
+     *                 hedge that is rejected or run on the calling thread is not sent. Ignored
+     *                 if policy is null
+     */
+    public void setHedging(@Nullable final HedgePolicy policy, @Nullable final Executor executor) {
+        if (policy != null && executor == null) {
+            throw new NullPointerException("executor == null");
+        }
+        mHedgePolicy = policy;
+        mHedgeExecutor = policy != null ? executor : null;
+    }
+
+    /**
+     * Sets the factory of {@link EventListener}s that receive the phases of every query, such as
+     * cache lookup, connect, time to first byte and parsing, with nanosecond timestamps. No
+     * events are measured by default. Should be called before making queries.
+     *
+     * @param factory the factory to use, or null to disable events
+     */
+    public void setEventListenerFactory(@Nullable final EventListener.Factory factory) {
+        mEventListenerFactory = factory;
+    }
+
+    /**
+     * Sets the metrics that record the latency and outcome of every query, cache hits, retries
+     * and downloaded bytes. Metrics may be shared by several engines. No metrics are recorded by
+     * default. Should be called before making queries.
+     *
+     * @param metrics the metrics to record to, or null to disable recording
+     */
+    public void setMetrics(@Nullable final GeocoderMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Returns the listener of a query, recording into the metrics if set, or null if neither
+     * events nor metrics are enabled
+     */
+    @Nullable
+    private EventListener newEventListener(@NonNull final GeocoderMetrics.Operation operation) {
+        final EventListener.Factory factory = mEventListenerFactory;
+        final EventListener listener = factory != null ? factory.create() : null;
+        final GeocoderMetrics metrics = mMetrics;
+        return metrics != null ? metrics.newListener(operation, listener) : listener;
+    }
+
+    @NonNull
+    private StringBuilder buildBaseRequestUrl() {
+        final StringBuilder url = new StringBuilder(128).append(mEndpointUrl).append('?');
+        appendQueryParameter(url, "language", mLocale.getLanguage());
+        if (mApiKey != null && !mApiKey.isEmpty()) {
+            appendQueryParameter(url, "key", mApiKey);
+        }
+        return url;
+    }
+
+    /**
+     * Appends "name=value" to the query, percent-encoding the value as UTF-8. Letters, digits
+     * and "_-!.~'()*" are left as is, like android.net.Uri does.
+     */
+    private static void appendQueryParameter(@NonNull final StringBuilder url,
+            @NonNull final String name, @NonNull final String value) {
+        final char last = url.charAt(url.length() - 1);
+        if (last != '?' && last != '&') {
+            url.append('&');
+        }
+        url.append(name).append('=');
+        for (final byte b : value.getBytes(UTF_8)) {
+            final int c = b & 0xff;
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "_-!.~'()*".indexOf(c) != -1) {
+                url.append((char) c);
+            } else {
+                url.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+            }
+        }
+    }
+
+    /**
+     * Returns an array of Addresses that are known to describe the area
+     * immediately surrounding the given latitude and longitude. The returned
+     * addresses will be localized for the locale provided to this class's
+     * constructor.
+     *
+     * <p>
+     * The returned values may be obtained by means of a network lookup. The
+     * results are a best guess and are not guaranteed to be meaningful or
+     * correct. It may be useful to call this method from a thread separate from
+     * your primary UI thread.
+     *
+     * @param latitude               the latitude a point for the search
+     * @param longitude              the longitude a point for the search
+     * @param maxResults             max number of addresses to return. Smaller numbers (1 to 5)
+     *                               are recommended
+     * @param parseAddressComponents If set to true, will parse "address_components". For more
+     *                               details see documentation provided in the Geocoder class
+     *                               javadoc
+     * @return a list of Address objects. Returns empty list if no matches were found.
+     * @throws IllegalArgumentException if latitude is less than -90 or greater than 90
+     * @throws IllegalArgumentException if longitude is less than -180 or greater than 180
+     * @throws GeocoderException        On Geocoder error, if the network is unavailable or any
+     *                                  other I/O problem occurs
+     */
+    @NonNull
+    public List<Address> getFromLocation(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents)
+            throws GeocoderException {
+        if (latitude < -90.0 || latitude > 90.0) {
+            throw new IllegalArgumentException("latitude == " + latitude);
+        }
+        if (longitude < -180.0 || longitude > 180.0) {
+            throw new IllegalArgumentException("longitude == " + longitude);
+        }
+        return reverseGeocode(latitude, longitude, maxResults, parseAddressComponents, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #getFromLocation(double, double, int, boolean)}. The query
+     * runs on the given {@link Executor} and canceling the returned future aborts the HTTP
+     * request.
+     *
+     * @param latitude               the latitude a point for the search
+     * @param longitude              the longitude a point for the search
+     * @param maxResults             max number of addresses to return. Smaller numbers (1 to 5)
+     *                               are recommended
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param executor               the Executor to run the query on
+     * @param callback               optional callback, called on the executor thread
+     * @return the future result
+     * @throws IllegalArgumentException if latitude is less than -90 or greater than 90
+     * @throws IllegalArgumentException if longitude is less than -180 or greater than 180
+     */
+    @NonNull
+    public GeocoderFuture getFromLocationAsync(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents,
+            @NonNull final Executor executor, @Nullable final GeocoderFuture.Callback callback) {
+        if (latitude < -90.0 || latitude > 90.0) {
+            throw new IllegalArgumentException("latitude == " + latitude);
+        }
+        if (longitude < -180.0 || longitude > 180.0) {
+            throw new IllegalArgumentException("longitude == " + longitude);
+        }
+        final Cancellation cancellation = new Cancellation();
+        final GeocoderFuture future = new GeocoderFuture(new Callable<List<Address>>() {
+
+            @Override
+            public List<Address> call() throws GeocoderException {
+                return reverseGeocode(latitude, longitude, maxResults, parseAddressComponents,
+                        cancellation);
+            }
+        }, cancellation, callback);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Runs {@link #getFromLocation(double, double, int, boolean)} for every location and blocks
+     * until all of them are finished. At most {@code parallelism} queries are in flight at a time
+     * and identical coordinates are queried only once. After a query fails with
+     * {@link Status#OVER_QUERY_LIMIT} the remaining ones fail with the same status without
+     * being sent. With a {@link ConcurrencyLimiter} set, fewer than {@code parallelism} queries
+     * may be in flight while the server pushes back.
+     *
+     * @param locations              the points to search for
+     * @param maxResults             max number of addresses to return per location
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param parallelism            max number of queries in flight
+     * @param executor               the Executor to run the queries on. It should be able to run
+     *                               {@code parallelism} tasks at once
+     * @return a result for every location, in the order of input locations. Every result has
+     * its own list of addresses, but identical coordinates share the {@link Address} objects.
+     * @throws IllegalArgumentException if any latitude is less than -90 or greater than 90
+     * @throws IllegalArgumentException if any longitude is less than -180 or greater than 180
+     * @throws IllegalArgumentException if parallelism is less than 1
+     * @throws InterruptedException     if interrupted while waiting. Queries in flight are aborted
+     */
+    @NonNull
+    public List<BatchResult> getFromLocations(@NonNull final List<Address.Location> locations,
+            final int maxResults, final boolean parseAddressComponents, final int parallelism,
+            @NonNull final Executor executor) throws InterruptedException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism == " + parallelism);
+        }
+        for (int i = 0; i < locations.size(); i++) {
+            final Address.Location location = locations.get(i);
+            if (location.latitude < -90.0 || location.latitude > 90.0) {
+                throw new IllegalArgumentException(
+                        "locations[" + i + "].latitude == " + location.latitude);
+            }
+            if (location.longitude < -180.0 || location.longitude > 180.0) {
+                throw new IllegalArgumentException(
+                        "locations[" + i + "].longitude == " + location.longitude);
+            }
+        }
+        return new ReverseGeocodeBatch(this, locations, maxResults, parseAddressComponents)
+                .execute(parallelism, executor);
+    }
+
+    @NonNull
+    List<Address> reverseGeocode(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation) throws GeocoderException {
+        final EventListener listener = newEventListener(GeocoderMetrics.Operation.REVERSE);
+        if (listener == null) {
+            return reverseGeocodeCached(latitude, longitude, maxResults, parseAddressComponents,
+                    cancellation, null);
+        }
+        listener.queryStart(System.nanoTime());
+        try {
+            final List<Address> result = reverseGeocodeCached(latitude, longitude, maxResults,
+                    parseAddressComponents, cancellation, listener);
+            listener.queryEnd(System.nanoTime(), result.size());
+            return result;
+        } catch (GeocoderException e) {
+            listener.queryFailed(System.nanoTime(), e);
+            throw e;
+        }
+    }
+
+    @NonNull
+    private List<Address> reverseGeocodeCached(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation, @Nullable final EventListener listener)
+            throws GeocoderException {
+        final ReverseGeocoderCache cache = mReverseCache;
+        if (cache == null) {
+            return reverseGeocodeUncached(latitude, longitude, maxResults,
+                    parseAddressComponents, cancellation, listener);
+        }
+        if (listener != null) {
+            listener.cacheLookupStart(System.nanoTime());
+        }
+        final String key = cache.key(latitude, longitude, mLocale.getLanguage(), mCacheScope,
+                parseAddressComponents);
+        List<Address> cached = cache.get(key, latitude, longitude, maxResults);
+        if (cached != null) {
+            if (listener != null) {
+                listener.cacheLookupEnd(System.nanoTime(), true);
+            }
+            return cached;
+        }
+        final DiskGeocoderCache diskCache = mDiskCache;
+        if (diskCache != null) {
+            cached = diskCache.get(DISK_KEY_REVERSE + key, maxResults);
+            if (cached != null && cache.accepts(cached, latitude, longitude)) {
+                cache.put(key, maxResults, cached);
+                if (listener != null) {
+                    listener.cacheLookupEnd(System.nanoTime(), true);
+                }
+                return cached;
+            }
+        }
+        if (listener != null) {
+            listener.cacheLookupEnd(System.nanoTime(), false);
+        }
+        final List<Address> result;
+        try {
+            result = reverseGeocodeUncached(latitude, longitude, maxResults,
+                    parseAddressComponents, cancellation, listener);
+        } catch (CircuitOpenException e) {
+            if (diskCache != null) {
+                cached = diskCache.get(DISK_KEY_REVERSE + key, maxResults, true);
+                if (cached != null && cache.accepts(cached, latitude, longitude)) {
+                    if (listener != null) {
+                        listener.staleCacheHit(System.nanoTime());
+                    }
+                    return cached;
+                }
+            }
+            throw e;
+        }
+        cache.put(key, maxResults, result);
+        if (diskCache != null) {
+            diskCache.put(DISK_KEY_REVERSE + key, maxResults, result);
+        }
+        return result;
+    }
+
+    @NonNull
+    private List<Address> reverseGeocodeUncached(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation, @Nullable final EventListener listener)
+            throws GeocoderException {
+        final StringBuilder url = buildBaseRequestUrl();
+        appendQueryParameter(url, "sensor", "true");
+        appendQueryParameter(url, "latlng", latitude + "," + longitude);
+
+        return queryWithTimeout(url.toString(), maxResults, parseAddressComponents,
+                cancellation, listener);
+    }
+
+    /**
+     * Returns an array of Addresses that are known to describe the named
+     * location, which may be a place name such as "Dalvik,
+     * Iceland", an address such as "1600 Amphitheatre Parkway, Mountain View,
+     * CA", an airport code such as "SFO", etc.. The returned addresses will be
+     * localized for the locale provided to this class's constructor.
+     *
+     * <p>
+     * The query will block and returned values will be obtained by means of a
+     * network lookup. The results are a best guess and are not guaranteed to be
+     * meaningful or correct. It may be useful to call this method from a thread
+     * separate from your primary UI thread.
+     *
+     * @param locationName           a user-supplied description of a location
+     * @param maxResults             max number of results to return. Smaller numbers (1 to 5) are
+     *                               recommended
+     * @param parseAddressComponents If set to true, will parse "address_components". For more
+     *                               details see documentation provided in the Geocoder class
+     *                               javadoc
+     * @return a list of Address objects. Returns empty list if no matches were found.
+     * @throws IllegalArgumentException if locationName is null
+     * @throws GeocoderException        if parse failed, Geocoder returned error, or if the network
+     *                                  is unavailable or any other I/O problem occurs
+     */
+    @NonNull
+    public List<Address> getFromLocationName(final String locationName, final int maxResults,
+            final boolean parseAddressComponents)
+            throws GeocoderException {
+        if (locationName == null) {
+            throw new IllegalArgumentException("locationName == null");
+        }
+        return forwardGeocode(locationName, maxResults, parseAddressComponents, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #getFromLocationName(String, int, boolean)}. The query runs
+     * on the given {@link Executor} and canceling the returned future aborts the HTTP request.
+     *
+     * @param locationName           a user-supplied description of a location
+     * @param maxResults             max number of results to return. Smaller numbers (1 to 5) are
+     *                               recommended
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param executor               the Executor to run the query on
+     * @param callback               optional callback, called on the executor thread
+     * @return the future result
+     * @throws IllegalArgumentException if locationName is null
+     */
+    @NonNull
+    public GeocoderFuture getFromLocationNameAsync(final String locationName,
+            final int maxResults, final boolean parseAddressComponents,
+            @NonNull final Executor executor, @Nullable final GeocoderFuture.Callback callback) {
+        if (locationName == null) {
+            throw new IllegalArgumentException("locationName == null");
+        }
+        final Cancellation cancellation = new Cancellation();
+        final GeocoderFuture future = new GeocoderFuture(new Callable<List<Address>>() {
+
+            @Override
+            public List<Address> call() throws GeocoderException {
+                return forwardGeocode(locationName, maxResults, parseAddressComponents,
+                        cancellation);
+            }
+        }, cancellation, callback);
+        executor.execute(future);
+        return future;
+    }
+
+    @NonNull
+    private List<Address> forwardGeocode(@NonNull final String locationName,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation) throws GeocoderException {
+        final EventListener listener = newEventListener(GeocoderMetrics.Operation.FORWARD);
+        if (listener == null) {
+            return forwardGeocodeCached(locationName, maxResults, parseAddressComponents,
+                    cancellation, null);
+        }
+        listener.queryStart(System.nanoTime());
+        try {
+            final List<Address> result = forwardGeocodeCached(locationName, maxResults,
+                    parseAddressComponents, cancellation, listener);
+            listener.queryEnd(System.nanoTime(), result.size());
+            return result;
+        } catch (GeocoderException e) {
+            listener.queryFailed(System.nanoTime(), e);
+            throw e;
+        }
+    }
+
+    @NonNull
+    private List<Address> forwardGeocodeCached(@NonNull final String locationName,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation, @Nullable final EventListener listener)
+            throws GeocoderException {
+        final GeocoderCache cache = mCache;
+        final DiskGeocoderCache diskCache = mDiskCache;
+        if (cache == null && diskCache == null) {
+            return forwardGeocodeUncached(locationName, maxResults, parseAddressComponents,
+                    cancellation, listener);
+        }
+        if (listener != null) {
+            listener.cacheLookupStart(System.nanoTime());
+        }
+        final String key = GeocoderCache.key(locationName, mLocale.getLanguage(), mCacheScope,
+                parseAddressComponents);
+        List<Address> cached;
+        if (cache != null) {
+            cached = cache.get(key, maxResults);
+            if (cached != null) {
+                if (listener != null) {
+                    listener.cacheLookupEnd(System.nanoTime(), true);
+                }
+                return cached;
+            }
+        }
+        if (diskCache != null) {
+            cached = diskCache.get(DISK_KEY_FORWARD + key, maxResults);
+            if (cached != null) {
+                if (cache != null) {
+                    cache.put(key, maxResults, cached);
+                }
+                if (listener != null) {
+                    listener.cacheLookupEnd(System.nanoTime(), true);
+                }
+                return cached;
+            }
+        }
+        if (listener != null) {
+            listener.cacheLookupEnd(System.nanoTime(), false);
+        }
+        final List<Address> result;
+        try {
+            result = forwardGeocodeUncached(locationName, maxResults, parseAddressComponents,
+                    cancellation, listener);
+        } catch (CircuitOpenException e) {
+            if (diskCache != null) {
+                cached = diskCache.get(DISK_KEY_FORWARD + key, maxResults, true);
+                if (cached != null) {
+                    if (listener != null) {
+                        listener.staleCacheHit(System.nanoTime());
+                    }
+                    return cached;
+                }
+            }
+            throw e;
+        }
+        if (cache != null) {
+            cache.put(key, maxResults, result);
+        }
+        if (diskCache != null) {
+            diskCache.put(DISK_KEY_FORWARD + key, maxResults, result);
+        }
+        return result;
+    }
+
+    @NonNull
+    private List<Address> forwardGeocodeUncached(@NonNull final String locationName,
+            final int maxResults, final boolean parseAddressComponents,
+            @Nullable final Cancellation cancellation, @Nullable final EventListener listener)
+            throws GeocoderException {
+        final StringBuilder url = buildBaseRequestUrl();
+        appendQueryParameter(url, "sensor", "false");
+        appendQueryParameter(url, "address", locationName);
+
+        return queryWithTimeout(url.toString(), maxResults, parseAddressComponents,
+                cancellation, listener);
+    }
+
+    /**
+     * Runs the query within the call timeout, if one is set
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderTimeoutException if the call timeout passed, or if the last attempt timed
+     *                                  out
+     * @throws GeocoderException        on I/O error, parse error or Geocoder error status of the
+     *                                  last attempt, or if interrupted or canceled
+     */
+    @NonNull
+    private List<Address> queryWithTimeout(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final long timeout = mCallTimeoutNanos;
+        final Cancellation deadline = timeout == 0
+                ? cancellation : Cancellation.withTimeout(cancellation, timeout);
+        try {
+            return queryWithRetries(url, maxResults, parseAddressComponents, deadline, listener);
+        } catch (GeocoderTimeoutException e) {
+            throw e;
+        } catch (GeocoderException e) {
+            if ((deadline != null && deadline.isTimedOut())
+                    || e.getCause() instanceof SocketTimeoutException) {
+                // Keeps the status of an attempt that was answered before the deadline passed
+                throw e.copyTo(new GeocoderTimeoutException(e.getCause()));
+            }
+            throw e;
+        } finally {
+            if (deadline != cancellation) {
+                deadline.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the query, retrying failures as allowed by the {@link RetryPolicy}
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderException on I/O error, parse error or Geocoder error status of the last
+     *                           attempt, or if interrupted or canceled while waiting to retry
+     */
+    @NonNull
+    private List<Address> queryWithRetries(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final RetryPolicy retryPolicy = mRetryPolicy;
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return query(url, maxResults, parseAddressComponents, cancellation, listener);
+            } catch (GeocoderException e) {
+                if (cancellation != null && cancellation.isCanceled()) {
+                    throw e;
+                }
+                final long delay = retryPolicy.retryDelayNanos(e, attempts);
+                if (delay < 0 || (cancellation != null && delay >= cancellation.remainingNanos())) {
+                    throw e;
+                }
+                if (listener != null) {
+                    listener.retry(System.nanoTime(), attempts, e, delay);
+                }
+                try {
+                    if (cancellation != null) {
+                        cancellation.sleep(delay);
+                    } else {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                } catch (InterruptedException e1) {
+                    Thread.currentThread().interrupt();
+                    throw new GeocoderException(new InterruptedIOException("Interrupted"));
+                }
+                if (cancellation != null && cancellation.isCanceled()) {
+                    throw new GeocoderException(new InterruptedIOException("Canceled"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the query, sharing the request with an identical query in flight if coalescing is
+     * enabled
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderException on I/O error, parse error or Geocoder error status
+     */
+    @NonNull
+    private List<Address> query(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final SingleFlight singleFlight = mSingleFlight;
+        if (singleFlight == null) {
+            return download(url, maxResults, parseAddressComponents, cancellation, listener);
+        }
+        final String key = url + '#' + maxResults + '#' + parseAddressComponents;
+        return singleFlight.execute(key, new SingleFlight.Query() {
+
+            @NonNull
+            @Override
+            public List<Address> run() throws GeocoderException {
+                return download(url, maxResults, parseAddressComponents, cancellation, listener);
+            }
+        }, cancellation, listener);
+    }
+
+    /**
+     * Downloads the response once the circuit breaker and the rate limiter allow it and records
+     * the outcome in the circuit breaker
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws CircuitOpenException if the circuit breaker is open
+     * @throws GeocoderException    on I/O error, parse error or Geocoder error status
+     */
+    @NonNull
+    private List<Address> download(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final CircuitBreaker breaker = mCircuitBreaker;
+        if (breaker == null) {
+            acquireRateLimit(cancellation, listener);
+            return downloadHedged(url, maxResults, parseAddressComponents, cancellation,
+                    listener);
+        }
+        final long tag = breaker.tryAcquire();
+        if (tag == CircuitBreaker.REJECTED) {
+            throw new CircuitOpenException();
+        }
+        boolean recorded = false;
+        try {
+            acquireRateLimit(cancellation, listener);
+            final List<Address> result;
+            try {
+                result = downloadHedged(url, maxResults, parseAddressComponents, cancellation,
+                        listener);
+            } catch (GeocoderException e) {
+                if ((cancellation != null && cancellation.isCanceled())
+                        || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                if (e.getStatus() == Status.UNKNOWN_ERROR || e.isCausedByNetworkError()) {
+                    breaker.onFailure(tag);
+                    recorded = true;
+                } else if (e.getStatus() != null) {
+                    // The endpoint answered, even if with an error
+                    breaker.onSuccess(tag);
+                    recorded = true;
+                }
+                throw e;
+            }
+            breaker.onSuccess(tag);
+            recorded = true;
+            return result;
+        } finally {
+            if (!recorded) {
+                breaker.onIgnore(tag);
+            }
+        }
+    }
+
+    /**
+     * Downloads the response, sending a hedge if hedging is enabled and the response is slow
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the calls so they can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderException on I/O error, parse error or Geocoder error status
+     */
+    @NonNull
+    private List<Address> downloadHedged(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final HedgePolicy policy = mHedgePolicy;
+        final Executor executor = mHedgeExecutor;
+        if (policy == null || executor == null) {
+            return downloadLimited(url, maxResults, parseAddressComponents, cancellation,
+                    listener);
+        }
+        return new HedgedDownload(this, policy, url, maxResults, parseAddressComponents,
+                cancellation, listener).execute(executor);
+    }
+
+    /**
+     * Downloads the response once the concurrency limiter allows it and reports the outcome to
+     * the concurrency limiter
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderException on I/O error, parse error or Geocoder error status
+     */
+    @NonNull
+    List<Address> downloadLimited(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final ConcurrencyLimiter limiter = mConcurrencyLimiter;
+        if (limiter == null) {
+            return execute(url, maxResults, parseAddressComponents, cancellation, listener);
+        }
+        final long tag;
+        try {
+            tag = limiter.acquire(cancellation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeocoderException(new InterruptedIOException("Interrupted"));
+        } catch (InterruptedIOException e) {
+            throw new GeocoderException(e);
+        }
+        final long start = System.nanoTime();
+        boolean released = false;
+        try {
+            final List<Address> result = execute(url, maxResults, parseAddressComponents,
+                    cancellation, listener);
+            limiter.onSuccess(tag, System.nanoTime() - start);
+            released = true;
+            return result;
+        } catch (GeocoderException e) {
+            if (e.getStatus() == Status.OVER_QUERY_LIMIT) {
+                limiter.onOverload(tag);
+                released = true;
+            }
+            throw e;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    /**
+     * Executes the request and parses the response as it arrives, without buffering the whole
+     * body
+     *
+     * @param url                    Data location
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @param cancellation           receives the call so it can be aborted, may be null
+     * @param listener               receives the events of the query, may be null
+     * @return parsed addresses
+     * @throws GeocoderException on I/O error, parse error or Geocoder error status
+     */
+    @NonNull
+    private List<Address> execute(@NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final Transport.Call call = mTransport.newCall(url, listener);
+        InputStream is = null;
+        try {
+            if (cancellation != null) {
+                cancellation.attach(call);
+            }
+            is = call.execute();
+            if (listener == null) {
+                return Parser.parseJson(is, maxResults, parseAddressComponents);
+            }
+            listener.parseStart(System.nanoTime());
+            final List<Address> result = Parser.parseJson(is, maxResults,
+                    parseAddressComponents);
+            listener.parseEnd(System.nanoTime(), result.size());
+            return result;
+        } catch (IOException e) {
+            throw new GeocoderException(e);
+        } finally {
+            if (cancellation != null) {
+                cancellation.detach(call);
+            }
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the {@link RateLimiter} registered for the API key, if any, to allow a request
+     *
+     * @param cancellation bounds the wait by its timeout, may be null
+     * @param listener     receives the events of the wait, may be null
+     * @throws RateLimitedException if the limiter does not allow a request in time
+     * @throws GeocoderException    if interrupted or canceled while waiting
+     */
+    private void acquireRateLimit(@Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) throws GeocoderException {
+        final RateLimiter rateLimiter = RateLimiter.getShared(mApiKey);
+        if (rateLimiter == null) {
+            return;
+        }
+        final long timeout = cancellation != null
+                ? Math.min(mRateLimitTimeoutNanos, cancellation.remainingNanos())
+                : mRateLimitTimeoutNanos;
+        if (listener != null) {
+            listener.rateLimitWaitStart(System.nanoTime());
+        }
+        boolean acquired = false;
+        try {
+            acquired = rateLimiter.tryAcquire(timeout, cancellation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeocoderException(new InterruptedIOException("Interrupted"));
+        } catch (InterruptedIOException e) {
+            throw new GeocoderException(e);
+        } finally {
+            if (listener != null) {
+                listener.rateLimitWaitEnd(System.nanoTime(), acquired);
+            }
+        }
+        if (!acquired) {
+            throw new RateLimitedException();
+        }
+    }
+
+    /**
+     * Takes a permit for a hedge from the {@link RateLimiter} registered for the API key, if any,
+     * without waiting
+     *
+     * @return true if the hedge may be sent
+     */
+    boolean tryAcquireHedgePermit() {
+        final RateLimiter rateLimiter = RateLimiter.getShared(mApiKey);
+        return rateLimiter == null || rateLimiter.tryAcquire();
+    }
+}
@@ -19,6 +19,8 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
 
 /**
  * Is thrown for geocoder errors
@@ -70,8 +72,33 @@ public class GeocoderException extends Exception {
         mErrorMessage = errorMessage;
     }
 
+    /**
+     * Returns an exception like this one to throw on another thread, with a stack trace of its
+     * own
+     */
+    @NonNull
+    GeocoderException copy() {
+        return copyTo(new GeocoderException(getCause()));
+    }
+
+    @NonNull
+    final GeocoderException copyTo(@NonNull final GeocoderException copy) {
+        copy.mStatus = mStatus;
+        copy.mErrorMessage = mErrorMessage;
+        return copy;
+    }
+
+    /**
+     * Returns whether the query failed because the endpoint could not be reached or did not
+     * answer in time. A malformed response, an interrupt or a cancellation is not a network
+     * error.
+     */
     public boolean isCausedByNetworkError() {
-        return getCause() instanceof IOException;
+        final Throwable cause = getCause();
+        if (cause instanceof InterruptedIOException) {
+            return cause instanceof SocketTimeoutException;
+        }
+        return cause instanceof IOException && !(cause instanceof MalformedJsonException);
     }
 
     @Override
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Result of an asynchronous {@link GeocoderEngine} query
+ *
+ * {@link #get()} throws {@link ExecutionException} with {@link GeocoderException} as the cause
+ * when the query fails. Canceling the future aborts the HTTP request in progress.
+ */
+public final class GeocoderFuture extends FutureTask<List<Address>> {
+
+    /**
+     * Receives the result of an asynchronous query on the thread that executed it. Not called
+     * if the query is canceled.
+     */
+    public interface Callback {
+
+        void onSuccess(@NonNull List<Address> addresses);
+
+        void onFailure(@NonNull GeocoderException e);
+    }
+
+    @NonNull
+    private final Cancellation mCancellation;
+
+    @Nullable
+    private final Callback mCallback;
+
+    GeocoderFuture(@NonNull final Callable<List<Address>> callable,
+            @NonNull final Cancellation cancellation,
+            @Nullable final Callback callback) {
+        super(callable);
+        mCancellation = cancellation;
+        mCallback = callback;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean canceled = super.cancel(mayInterruptIfRunning);
+        if (canceled) {
+            mCancellation.cancel();
+        }
+        return canceled;
+    }
+
+    @Override
+    protected void done() {
+        if (mCallback == null || isCancelled()) {
+            return;
+        }
+        final List<Address> result;
+        try {
+            result = get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            mCallback.onFailure(cause instanceof GeocoderException
+                    ? (GeocoderException) cause
+                    : new GeocoderException(cause));
+            return;
+        } catch (InterruptedException e) {
+            // Not possible, get() does not block once done
+            Thread.currentThread().interrupt();
+            return;
+        }
+        mCallback.onSuccess(result);
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Query latencies and counters, recorded by every {@link GeocoderEngine} it is set on with
+ * {@link GeocoderEngine#setMetrics(GeocoderMetrics)}
+ *
+ * Latencies are recorded per {@link Operation} and outcome, from the start of the query to its
+ * result, including cache lookup, retries and waiting for a coalesced query. The outcome of a
+ * successful query is {@link Status#OK}, or {@link Status#ZERO_RESULTS} if no addresses were
+ * found. A failed query is recorded under its {@link GeocoderException#getStatus()}, which is
+ * null for network errors, timeouts, an open circuit and the client-side rate limit.
+ *
+ * Recording is cheap enough to leave on: threads update separate cells and the totals are only
+ * computed when a {@link Snapshot} is taken.
+ */
+public final class GeocoderMetrics {
+
+    public enum Operation {
+
+        /**
+         * Address lookup by location
+         */
+        REVERSE,
+
+        /**
+         * Location lookup by address
+         */
+        FORWARD
+    }
+
+    private static final Status[] STATUSES = Status.values();
+
+    /**
+     * Outcome index for failures without a status
+     */
+    private static final int NO_STATUS = STATUSES.length;
+
+    private static final int OUTCOMES = STATUSES.length + 1;
+
+    /**
+     * Histograms by operation and outcome, created on first use
+     */
+    private final AtomicReferenceArray<LatencyHistogram> mHistograms
+            = new AtomicReferenceArray<>(Operation.values().length * OUTCOMES);
+
+    private final StripedCounter mCacheHits = new StripedCounter();
+
+    private final StripedCounter mCacheMisses = new StripedCounter();
+
+    private final StripedCounter mStaleCacheHits = new StripedCounter();
+
+    private final StripedCounter mRetries = new StripedCounter();
+
+    private final StripedCounter mCoalesced = new StripedCounter();
+
+    private final StripedCounter mBytesDownloaded = new StripedCounter();
+
+    private final StripedCounter mResultsParsed = new StripedCounter();
+
+    /**
+     * Returns the values recorded so far
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        return new Snapshot(this, false);
+    }
+
+    /**
+     * Returns the values recorded since the last reset and resets them, for exporters that
+     * report intervals rather than totals. Values recorded meanwhile are included either in the
+     * returned snapshot or in the next one, never lost or counted twice.
+     */
+    @NonNull
+    public Snapshot snapshotAndReset() {
+        return new Snapshot(this, true);
+    }
+
+    /**
+     * Returns a listener that records the events of one query and passes them on to the
+     * delegate
+     *
+     * @param delegate the listener created by the user's factory, may be null
+     */
+    @NonNull
+    EventListener newListener(@NonNull final Operation operation,
+            @Nullable final EventListener delegate) {
+        return new Recorder(operation, delegate);
+    }
+
+    private static int index(@NonNull final Operation operation, final int outcome) {
+        return operation.ordinal() * OUTCOMES + outcome;
+    }
+
+    private void recordLatency(@NonNull final Operation operation, final int outcome,
+            final long nanos) {
+        final int index = index(operation, outcome);
+        LatencyHistogram histogram = mHistograms.get(index);
+        if (histogram == null) {
+            mHistograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = mHistograms.get(index);
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Values recorded by {@link GeocoderMetrics} at one point in time
+     */
+    public static final class Snapshot {
+
+        private final long mCacheHits;
+
+        private final long mCacheMisses;
+
+        private final long mStaleCacheHits;
+
+        private final long mRetries;
+
+        private final long mCoalesced;
+
+        private final long mBytesDownloaded;
+
+        private final long mResultsParsed;
+
+        @NonNull
+        private final LatencySnapshot[] mLatencies;
+
+        Snapshot(@NonNull final GeocoderMetrics metrics, final boolean reset) {
+            mCacheHits = sum(metrics.mCacheHits, reset);
+            mCacheMisses = sum(metrics.mCacheMisses, reset);
+            mStaleCacheHits = sum(metrics.mStaleCacheHits, reset);
+            mRetries = sum(metrics.mRetries, reset);
+            mCoalesced = sum(metrics.mCoalesced, reset);
+            mBytesDownloaded = sum(metrics.mBytesDownloaded, reset);
+            mResultsParsed = sum(metrics.mResultsParsed, reset);
+
+            mLatencies = new LatencySnapshot[metrics.mHistograms.length()];
+            for (int i = 0; i < mLatencies.length; i++) {
+                final LatencyHistogram histogram = metrics.mHistograms.get(i);
+                mLatencies[i] = histogram != null
+                        ? histogram.snapshot(reset) : LatencySnapshot.EMPTY;
+            }
+        }
+
+        private static long sum(@NonNull final StripedCounter counter, final boolean reset) {
+            return reset ? counter.sumThenReset() : counter.sum();
+        }
+
+        /**
+         * Returns the number of queries answered from the in-memory or disk cache
+         */
+        public long getCacheHits() {
+            return mCacheHits;
+        }
+
+        /**
+         * Returns the number of cache lookups that did not find the query. Queries are only
+         * looked up when a cache is set.
+         */
+        public long getCacheMisses() {
+            return mCacheMisses;
+        }
+
+        /**
+         * Returns the number of queries that missed the cache and, with the circuit breaker
+         * open, were answered from an expired disk cache entry. These are also counted as cache
+         * misses.
+         */
+        public long getStaleCacheHits() {
+            return mStaleCacheHits;
+        }
+
+        /**
+         * Returns the number of failed attempts that were retried
+         */
+        public long getRetries() {
+            return mRetries;
+        }
+
+        /**
+         * Returns the number of queries that waited for an identical query in flight instead of
+         * sending their own request
+         */
+        public long getCoalescedQueries() {
+            return mCoalesced;
+        }
+
+        /**
+         * Returns the number of response body bytes read from the network, before
+         * decompression. Only counted by transports that report
+         * {@link EventListener#responseBodyEnd(long, long)}.
+         */
+        public long getBytesDownloaded() {
+            return mBytesDownloaded;
+        }
+
+        /**
+         * Returns the number of addresses parsed from responses
+         */
+        public long getResultsParsed() {
+            return mResultsParsed;
+        }
+
+        /**
+         * Returns the latencies of the queries of the operation with the outcome
+         *
+         * @param status the outcome, or null for failures without a status
+         */
+        @NonNull
+        public LatencySnapshot getLatency(@NonNull final Operation operation,
+                @Nullable final Status status) {
+            //noinspection ConstantConditions
+            if (operation == null) {
+                throw new NullPointerException("operation == null");
+            }
+            return mLatencies[index(operation, status != null ? status.ordinal() : NO_STATUS)];
+        }
+
+        /**
+         * Returns the latencies of all queries of the operation, whatever the outcome
+         */
+        @NonNull
+        public LatencySnapshot getLatency(@NonNull final Operation operation) {
+            //noinspection ConstantConditions
+            if (operation == null) {
+                throw new NullPointerException("operation == null");
+            }
+            LatencySnapshot result = LatencySnapshot.EMPTY;
+            for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+                final LatencySnapshot latency = mLatencies[index(operation, outcome)];
+                if (latency.getCount() != 0) {
+                    result = LatencySnapshot.merge(result, latency);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Records the events of one query
+     */
+    private final class Recorder extends EventListener {
+
+        @NonNull
+        private final Operation mOperation;
+
+        @Nullable
+        private final EventListener mDelegate;
+
+        private long mStartNanos;
+
+        Recorder(@NonNull final Operation operation, @Nullable final EventListener delegate) {
+            mOperation = operation;
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void queryStart(final long nanoTime) {
+            mStartNanos = nanoTime;
+            if (mDelegate != null) {
+                mDelegate.queryStart(nanoTime);
+            }
+        }
+
+        @Override
+        public void queryEnd(final long nanoTime, final int resultCount) {
+            recordLatency(mOperation, resultCount == 0
+                    ? Status.ZERO_RESULTS.ordinal() : Status.OK.ordinal(), nanoTime - mStartNanos);
+            if (mDelegate != null) {
+                mDelegate.queryEnd(nanoTime, resultCount);
+            }
+        }
+
+        @Override
+        public void queryFailed(final long nanoTime, @NonNull final GeocoderException e) {
+            final Status status = e.getStatus();
+            recordLatency(mOperation, status != null ? status.ordinal() : NO_STATUS,
+                    nanoTime - mStartNanos);
+            if (mDelegate != null) {
+                mDelegate.queryFailed(nanoTime, e);
+            }
+        }
+
+        @Override
+        public void cacheLookupStart(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.cacheLookupStart(nanoTime);
+            }
+        }
+
+        @Override
+        public void cacheLookupEnd(final long nanoTime, final boolean hit) {
+            if (hit) {
+                mCacheHits.increment();
+            } else {
+                mCacheMisses.increment();
+            }
+            if (mDelegate != null) {
+                mDelegate.cacheLookupEnd(nanoTime, hit);
+            }
+        }
+
+        @Override
+        public void staleCacheHit(final long nanoTime) {
+            mStaleCacheHits.increment();
+            if (mDelegate != null) {
+                mDelegate.staleCacheHit(nanoTime);
+            }
+        }
+
+        @Override
+        public void coalesced(final long nanoTime) {
+            mCoalesced.increment();
+            if (mDelegate != null) {
+                mDelegate.coalesced(nanoTime);
+            }
+        }
+
+        @Override
+        public void rateLimitWaitStart(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.rateLimitWaitStart(nanoTime);
+            }
+        }
+
+        @Override
+        public void rateLimitWaitEnd(final long nanoTime, final boolean acquired) {
+            if (mDelegate != null) {
+                mDelegate.rateLimitWaitEnd(nanoTime, acquired);
+            }
+        }
+
+        @Override
+        public void connectStart(final long nanoTime, @NonNull final String url) {
+            if (mDelegate != null) {
+                mDelegate.connectStart(nanoTime, url);
+            }
+        }
+
+        @Override
+        public void connectEnd(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.connectEnd(nanoTime);
+            }
+        }
+
+        @Override
+        public void requestSent(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.requestSent(nanoTime);
+            }
+        }
+
+        @Override
+        public void responseFirstByte(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.responseFirstByte(nanoTime);
+            }
+        }
+
+        @Override
+        public void responseBodyEnd(final long nanoTime, final long byteCount) {
+            mBytesDownloaded.add(byteCount);
+            if (mDelegate != null) {
+                mDelegate.responseBodyEnd(nanoTime, byteCount);
+            }
+        }
+
+        @Override
+        public void parseStart(final long nanoTime) {
+            if (mDelegate != null) {
+                mDelegate.parseStart(nanoTime);
+            }
+        }
+
+        @Override
+        public void parseEnd(final long nanoTime, final int resultCount) {
+            mResultsParsed.add(resultCount);
+            if (mDelegate != null) {
+                mDelegate.parseEnd(nanoTime, resultCount);
+            }
+        }
+
+        @Override
+        public void retry(final long nanoTime, final int attempt,
+                @NonNull final GeocoderException cause, final long delayNanos) {
+            mRetries.increment();
+            if (mDelegate != null) {
+                mDelegate.retry(nanoTime, attempt, cause, delayNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Is thrown when a query does not finish within the call timeout set with
+ * {@link GeocoderEngine#setCallTimeout(long, java.util.concurrent.TimeUnit)}, or when its last
+ * attempt failed because a connect or read timeout passed
+ */
+public final class GeocoderTimeoutException extends GeocoderException {
+
+    public GeocoderTimeoutException(final Throwable cause) {
+        super(cause);
+    }
+
+    @NonNull
+    @Override
+    GeocoderException copy() {
+        return copyTo(new GeocoderTimeoutException(getCause()));
+    }
+
+    @Override
+    public String toString() {
+        final Throwable cause = getCause();
+        return cause != null ? "Timeout: " + cause.getMessage() : "Timeout";
+    }
+}
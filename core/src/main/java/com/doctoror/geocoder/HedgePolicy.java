@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when {@link GeocoderEngine} sends a second, identical request for a query that is slow to
+ * respond
+ *
+ * The hedge is sent when the first request has taken longer than the given percentile of recent
+ * response times, but not sooner than the min delay. No hedges are sent until enough responses
+ * have been seen. The budget caps hedges at a percentage of queries, so hedging can not multiply
+ * the load on a struggling endpoint.
+ *
+ * A policy may be shared by several {@link GeocoderEngine}s.
+ */
+public final class HedgePolicy {
+
+    /**
+     * Number of recent response times the percentile is computed over
+     */
+    private static final int WINDOW = 128;
+
+    /**
+     * Min number of response times before hedging starts
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * The percentile is recomputed after this many new response times
+     */
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    /**
+     * Max number of unused hedges saved up by the budget
+     */
+    private static final int MAX_HEDGES_SAVED = 10;
+
+    private final int mPercentile;
+
+    private final int mBudgetPercent;
+
+    private final long mMinDelayNanos;
+
+    @NonNull
+    private final long[] mLatencies = new long[WINDOW];
+
+    private int mNext;
+
+    private int mSamples;
+
+    private int mSamplesSinceRecompute;
+
+    private long mDelayNanos = -1;
+
+    /**
+     * Hedges allowed by the budget, in hundredths of a hedge
+     */
+    private int mBudget;
+
+    /**
+     * Constructs a policy
+     *
+     * @param percentile    the percentile of recent response times to wait before hedging, 1
+     *                      to 99
+     * @param budgetPercent max hedges as a percentage of queries, 1 to 100
+     * @param minDelay      min time to wait before hedging
+     * @param unit          the unit of minDelay
+     */
+    public HedgePolicy(final int percentile, final int budgetPercent, final long minDelay,
+            @NonNull final TimeUnit unit) {
+        if (percentile < 1 || percentile > 99) {
+            throw new IllegalArgumentException("percentile == " + percentile);
+        }
+        if (budgetPercent < 1 || budgetPercent > 100) {
+            throw new IllegalArgumentException("budgetPercent == " + budgetPercent);
+        }
+        if (minDelay < 0) {
+            throw new IllegalArgumentException("minDelay == " + minDelay);
+        }
+        mPercentile = percentile;
+        mBudgetPercent = budgetPercent;
+        mMinDelayNanos = unit.toNanos(minDelay);
+    }
+
+    /**
+     * Counts a query towards the budget and returns how long to wait before hedging it
+     *
+     * @return the delay in nanoseconds, or -1 not to hedge
+     */
+    synchronized long onQuery() {
+        mBudget = Math.min(MAX_HEDGES_SAVED * 100, mBudget + mBudgetPercent);
+        if (mDelayNanos < 0) {
+            return -1;
+        }
+        return Math.max(mMinDelayNanos, mDelayNanos);
+    }
+
+    /**
+     * Takes a hedge from the budget
+     *
+     * @return true if the budget allows a hedge
+     */
+    synchronized boolean tryAcquireHedge() {
+        if (mBudget < 100) {
+            return false;
+        }
+        mBudget -= 100;
+        return true;
+    }
+
+    /**
+     * Records the response time of a request that finished
+     *
+     * @param latencyNanos the time the request took
+     */
+    synchronized void onResponse(final long latencyNanos) {
+        mLatencies[mNext] = latencyNanos;
+        mNext = (mNext + 1) % WINDOW;
+        if (mSamples < WINDOW) {
+            mSamples++;
+        }
+        if (mSamples >= MIN_SAMPLES
+                && (mDelayNanos < 0 || ++mSamplesSinceRecompute >= RECOMPUTE_INTERVAL)) {
+            final long[] sorted = Arrays.copyOf(mLatencies, mSamples);
+            Arrays.sort(sorted);
+            mDelayNanos = sorted[(mSamples - 1) * mPercentile / 100];
+            mSamplesSinceRecompute = 0;
+        }
+    }
+}
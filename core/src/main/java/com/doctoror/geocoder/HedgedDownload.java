@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Downloads a response on the calling thread and, if it is slow, sends an identical request on
+ * the hedging {@link Executor}. Whichever finishes first is used and the other one is canceled.
+ */
+final class HedgedDownload {
+
+    @NonNull
+    private final GeocoderEngine mGeocoder;
+
+    @NonNull
+    private final HedgePolicy mPolicy;
+
+    @NonNull
+    private final String mUrl;
+
+    private final int mMaxResults;
+
+    private final boolean mParseAddressComponents;
+
+    @Nullable
+    private final EventListener mListener;
+
+    @NonNull
+    private final Cancellation mPrimary;
+
+    @NonNull
+    private final Cancellation mHedge;
+
+    private final CountDownLatch mHedgeDone = new CountDownLatch(1);
+
+    private volatile boolean mHedgeStarted;
+
+    private volatile List<Address> mHedgeResult;
+
+    @Nullable
+    private final HedgeListener mHedgeListener;
+
+    HedgedDownload(@NonNull final GeocoderEngine geocoder, @NonNull final HedgePolicy policy,
+            @NonNull final String url, final int maxResults,
+            final boolean parseAddressComponents, @Nullable final Cancellation cancellation,
+            @Nullable final EventListener listener) {
+        mGeocoder = geocoder;
+        mPolicy = policy;
+        mUrl = url;
+        mMaxResults = maxResults;
+        mParseAddressComponents = parseAddressComponents;
+        mListener = listener;
+        mHedgeListener = listener != null ? new HedgeListener(listener) : null;
+        mPrimary = Cancellation.child(cancellation);
+        mHedge = Cancellation.child(cancellation);
+    }
+
+    /**
+     * Runs the download
+     *
+     * @param executor the Executor to send the hedge on
+     * @return parsed addresses
+     * @throws GeocoderException if both requests failed, or the first one failed and no hedge was
+     *                           sent. The exception of the first request is thrown.
+     */
+    @NonNull
+    List<Address> execute(@NonNull final Executor executor) throws GeocoderException {
+        final long delay = mPolicy.onQuery();
+        final ScheduledFuture<?> timer = delay < 0 ? null : Cancellation.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                startHedge(executor);
+            }
+        }, delay);
+        try {
+            final long start = System.nanoTime();
+            try {
+                final List<Address> result = mGeocoder.downloadLimited(mUrl, mMaxResults,
+                        mParseAddressComponents, mPrimary, mListener);
+                mPolicy.onResponse(System.nanoTime() - start);
+                return result;
+            } catch (GeocoderException e) {
+                final long elapsed = System.nanoTime() - start;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                if (!mHedgeStarted) {
+                    throw e;
+                }
+                // Canceled because the hedge won, or failed on its own while the hedge may
+                // still succeed
+                awaitHedge();
+                final List<Address> hedgeResult = mHedgeResult;
+                if (hedgeResult != null) {
+                    if (mPrimary.isCanceled()) {
+                        // The primary would have taken at least this long. Leaving it out would
+                        // bias the delay towards the fast requests that did not need a hedge.
+                        mPolicy.onResponse(elapsed);
+                    }
+                    if (mHedgeListener != null) {
+                        mHedgeListener.replay();
+                    }
+                    return hedgeResult;
+                }
+                throw e;
+            }
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            mHedge.cancel();
+            mPrimary.close();
+            mHedge.close();
+        }
+    }
+
+    private void startHedge(@NonNull final Executor executor) {
+        if (mPrimary.isCanceled() || mHedge.isCanceled()
+                || !mPolicy.tryAcquireHedge() || !mGeocoder.tryAcquireHedgePermit()) {
+            return;
+        }
+        mHedgeStarted = true;
+        // The timer thread is shared by all queries and must never run a hedge itself
+        final Thread timerThread = Thread.currentThread();
+        try {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (Thread.currentThread() == timerThread) {
+                        // Run inline, e.g. by a direct Executor or CallerRunsPolicy
+                        mHedgeDone.countDown();
+                        return;
+                    }
+                    runHedge();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mHedgeDone.countDown();
+        }
+    }
+
+    private void runHedge() {
+        try {
+            final long start = System.nanoTime();
+            mHedgeResult = mGeocoder.downloadLimited(mUrl, mMaxResults,
+                    mParseAddressComponents, mHedge, mHedgeListener);
+            mPolicy.onResponse(System.nanoTime() - start);
+            mPrimary.cancel();
+        } catch (GeocoderException ignored) {
+            // The caller reports the failure of the first request
+        } finally {
+            mHedgeDone.countDown();
+        }
+    }
+
+    private void awaitHedge() throws GeocoderException {
+        try {
+            mHedgeDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeocoderException(new InterruptedIOException("Interrupted"));
+        }
+    }
+
+    /**
+     * Passes the connection events of the hedge on as they happen, and its body and parse events
+     * only if its response is used, so that one response is counted per query
+     */
+    private static final class HedgeListener extends EventListener {
+
+        @NonNull
+        private final EventListener mDelegate;
+
+        private long mParseStartNanos = -1;
+
+        private long mParseEndNanos = -1;
+
+        private int mResultCount;
+
+        private long mBodyEndNanos = -1;
+
+        private long mByteCount;
+
+        HedgeListener(@NonNull final EventListener delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void connectStart(final long nanoTime, @NonNull final String url) {
+            mDelegate.connectStart(nanoTime, url);
+        }
+
+        @Override
+        public void connectEnd(final long nanoTime) {
+            mDelegate.connectEnd(nanoTime);
+        }
+
+        @Override
+        public void requestSent(final long nanoTime) {
+            mDelegate.requestSent(nanoTime);
+        }
+
+        @Override
+        public void responseFirstByte(final long nanoTime) {
+            mDelegate.responseFirstByte(nanoTime);
+        }
+
+        @Override
+        public void responseBodyEnd(final long nanoTime, final long byteCount) {
+            mBodyEndNanos = nanoTime;
+            mByteCount = byteCount;
+        }
+
+        @Override
+        public void parseStart(final long nanoTime) {
+            mParseStartNanos = nanoTime;
+        }
+
+        @Override
+        public void parseEnd(final long nanoTime, final int resultCount) {
+            mParseEndNanos = nanoTime;
+            mResultCount = resultCount;
+        }
+
+        /**
+         * Passes the recorded events on, on the querying thread after the hedge finished
+         */
+        void replay() {
+            if (mParseStartNanos >= 0) {
+                mDelegate.parseStart(mParseStartNanos);
+            }
+            if (mParseEndNanos >= 0) {
+                mDelegate.parseEnd(mParseEndNanos, mResultCount);
+            }
+            if (mBodyEndNanos >= 0) {
+                mDelegate.responseBodyEnd(mBodyEndNanos, mByteCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,763 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming pull reader for UTF-8 encoded JSON.
+ *
+ * Reads tokens straight from the bytes of the response without building a document tree or
+ * decoding the whole payload into a {@link String} first. Values that are skipped with
+ * {@link #skipValue()} are never decoded. The read and decode buffers are reused by the next
+ * reader on the same thread once {@link #release()} is called.
+ */
+final class JsonReader implements Closeable {
+
+    /*
+     * Token types returned by peek()
+     */
+
+    static final int BEGIN_ARRAY = 1;
+
+    static final int END_ARRAY = 2;
+
+    static final int BEGIN_OBJECT = 3;
+
+    static final int END_OBJECT = 4;
+
+    static final int NAME = 5;
+
+    static final int STRING = 6;
+
+    static final int NUMBER = 7;
+
+    static final int BOOLEAN = 8;
+
+    static final int NULL = 9;
+
+    static final int END_DOCUMENT = 10;
+
+    private static final int PEEKED_NONE = 0;
+
+    /*
+     * Lexical scopes
+     */
+
+    private static final int EMPTY_ARRAY = 1;
+
+    private static final int NONEMPTY_ARRAY = 2;
+
+    private static final int EMPTY_OBJECT = 3;
+
+    private static final int DANGLING_NAME = 4;
+
+    private static final int NONEMPTY_OBJECT = 5;
+
+    private static final int EMPTY_DOCUMENT = 6;
+
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Char buffers that grew beyond this are not kept for reuse
+     */
+    private static final int MAX_POOLED_CHARS = 4096;
+
+    /**
+     * Buffers of the last reader released on each thread, reused by the next one
+     */
+    private static final ThreadLocal<Buffers> POOL = new ThreadLocal<>();
+
+    /**
+     * Powers of ten that are exactly representable as double
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    @Nullable
+    private final InputStream mIn;
+
+    @NonNull
+    private final byte[] mBuffer;
+
+    /**
+     * The buffers this reader uses, null once released
+     */
+    @Nullable
+    private Buffers mBuffers;
+
+    private int mPos;
+
+    private int mLimit;
+
+    private char[] mChars;
+
+    private int[] mStack = new int[32];
+
+    private int mStackSize;
+
+    private int mPeeked = PEEKED_NONE;
+
+    /**
+     * Constructs a reader over the bytes of an already downloaded document. The array is used
+     * as is and not copied.
+     */
+    JsonReader(@NonNull final byte[] data, final int offset, final int length) {
+        mIn = null;
+        final Buffers buffers = obtainBuffers();
+        mBuffers = buffers;
+        mChars = buffers.mChars;
+        mBuffer = data;
+        mPos = offset;
+        mLimit = offset + length;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Constructs a reader that pulls bytes from the stream as tokens are consumed.
+     */
+    JsonReader(@NonNull final InputStream in) {
+        mIn = in;
+        final Buffers buffers = obtainBuffers();
+        mBuffers = buffers;
+        mChars = buffers.mChars;
+        mBuffer = buffers.mBytes;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Takes the buffers released on this thread, or allocates new ones
+     */
+    @NonNull
+    private static Buffers obtainBuffers() {
+        final Buffers buffers = POOL.get();
+        if (buffers == null) {
+            return new Buffers();
+        }
+        // A reader created while another one is open on this thread gets its own buffers
+        POOL.set(null);
+        return buffers;
+    }
+
+    /**
+     * Returns the buffers for reuse by the next reader on this thread. The reader must not be
+     * used afterwards.
+     */
+    void release() {
+        final Buffers buffers = mBuffers;
+        if (buffers == null) {
+            return;
+        }
+        mBuffers = null;
+        if (mChars.length <= MAX_POOLED_CHARS) {
+            buffers.mChars = mChars;
+        }
+        POOL.set(buffers);
+    }
+
+    void beginArray() throws IOException {
+        expect(BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        mPeeked = PEEKED_NONE;
+    }
+
+    void endArray() throws IOException {
+        expect(END_ARRAY);
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    void beginObject() throws IOException {
+        expect(BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        mPeeked = PEEKED_NONE;
+    }
+
+    void endObject() throws IOException {
+        expect(END_OBJECT);
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    /**
+     * Returns true if the current array or object has another element
+     */
+    boolean hasNext() throws IOException {
+        final int p = peek();
+        return p != END_OBJECT && p != END_ARRAY && p != END_DOCUMENT;
+    }
+
+    /**
+     * Returns the type of the next token without consuming it
+     */
+    int peek() throws IOException {
+        if (mPeeked != PEEKED_NONE) {
+            return mPeeked;
+        }
+
+        final int top = mStackSize - 1;
+        final int scope = mStack[top];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                mStack[top] = NONEMPTY_ARRAY;
+                break;
+
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return mPeeked = END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                break;
+
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                mStack[top] = DANGLING_NAME;
+                if (scope == NONEMPTY_OBJECT) {
+                    c = nextNonWhitespace();
+                    if (c == '}') {
+                        return mPeeked = END_OBJECT;
+                    }
+                    if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                }
+                c = nextNonWhitespace();
+                if (c == '"') {
+                    return mPeeked = NAME;
+                }
+                if (c == '}' && scope == EMPTY_OBJECT) {
+                    return mPeeked = END_OBJECT;
+                }
+                throw syntaxError("Expected name");
+
+            case DANGLING_NAME:
+                mStack[top] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+
+            case EMPTY_DOCUMENT:
+                mStack[top] = NONEMPTY_DOCUMENT;
+                break;
+
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() == -1) {
+                    return mPeeked = END_DOCUMENT;
+                }
+                throw syntaxError("Expected end of document");
+
+            default:
+                throw new IllegalStateException("JsonReader is closed");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case ']':
+                if (scope == EMPTY_ARRAY) {
+                    return mPeeked = END_ARRAY;
+                }
+                throw syntaxError("Unexpected value");
+
+            case '[':
+                return mPeeked = BEGIN_ARRAY;
+
+            case '{':
+                return mPeeked = BEGIN_OBJECT;
+
+            case '"':
+                return mPeeked = STRING;
+
+            case 't':
+            case 'f':
+                mPos--;
+                return mPeeked = BOOLEAN;
+
+            case 'n':
+                mPos--;
+                return mPeeked = NULL;
+
+            case -1:
+                throw syntaxError("End of input");
+
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    mPos--;
+                    return mPeeked = NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    @NonNull
+    String nextName() throws IOException {
+        expect(NAME);
+        mPeeked = PEEKED_NONE;
+        return readString();
+    }
+
+    /**
+     * Returns the next string value, or the literal text of a number
+     */
+    @NonNull
+    String nextString() throws IOException {
+        final int p = peek();
+        mPeeked = PEEKED_NONE;
+        if (p == STRING) {
+            return readString();
+        }
+        if (p == NUMBER) {
+            return new String(mChars, 0, readLiteral());
+        }
+        throw syntaxError("Expected a string but was " + p);
+    }
+
+    /**
+     * Returns the next string value, or null if the value is a JSON null
+     */
+    @Nullable
+    String nextStringOrNull() throws IOException {
+        if (peek() == NULL) {
+            nextNull();
+            return null;
+        }
+        return nextString();
+    }
+
+    double nextDouble() throws IOException {
+        final int p = peek();
+        mPeeked = PEEKED_NONE;
+        final int length;
+        if (p == NUMBER) {
+            length = readLiteral();
+        } else if (p == STRING) {
+            final String s = readString();
+            length = s.length();
+            ensureChars(length);
+            s.getChars(0, length, mChars, 0);
+        } else {
+            throw syntaxError("Expected a number but was " + p);
+        }
+        return parseDouble(mChars, length);
+    }
+
+    boolean nextBoolean() throws IOException {
+        expect(BOOLEAN);
+        mPeeked = PEEKED_NONE;
+        final int length = readLiteral();
+        if (length == 4 && mChars[0] == 't' && mChars[1] == 'r' && mChars[2] == 'u'
+                && mChars[3] == 'e') {
+            return true;
+        }
+        if (length == 5 && mChars[0] == 'f' && mChars[1] == 'a' && mChars[2] == 'l'
+                && mChars[3] == 's' && mChars[4] == 'e') {
+            return false;
+        }
+        throw syntaxError("Expected a boolean");
+    }
+
+    void nextNull() throws IOException {
+        expect(NULL);
+        mPeeked = PEEKED_NONE;
+        final int length = readLiteral();
+        if (length != 4 || mChars[0] != 'n' || mChars[1] != 'u' || mChars[2] != 'l'
+                || mChars[3] != 'l') {
+            throw syntaxError("Expected null");
+        }
+    }
+
+    /**
+     * Skips the next value, including nested arrays and objects, without decoding it
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+
+                case NAME:
+                case STRING:
+                    mPeeked = PEEKED_NONE;
+                    skipString();
+                    break;
+
+                case END_DOCUMENT:
+                    throw syntaxError("End of input");
+
+                default:
+                    mPeeked = PEEKED_NONE;
+                    skipLiteral();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Closes the underlying stream, if any
+     */
+    @Override
+    public void close() throws IOException {
+        mPeeked = PEEKED_NONE;
+        mStack[0] = 0;
+        mStackSize = 1;
+        if (mIn != null) {
+            mIn.close();
+        }
+    }
+
+    private void expect(final int token) throws IOException {
+        final int p = peek();
+        if (p != token) {
+            throw syntaxError("Expected " + token + " but was " + p);
+        }
+    }
+
+    private void push(final int scope) {
+        if (mStackSize == mStack.length) {
+            final int[] stack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, stack, 0, mStackSize);
+            mStack = stack;
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    /**
+     * Returns the next byte as an unsigned value, or -1 at the end of input
+     */
+    private int nextByte() throws IOException {
+        if (mPos == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPos++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        if (mIn == null) {
+            return false;
+        }
+        final int read = mIn.read(mBuffer, 0, mBuffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        mPos = 0;
+        mLimit = read;
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            final int c = nextByte();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private void ensureChars(final int length) {
+        if (length > mChars.length) {
+            final char[] chars = new char[Math.max(length, mChars.length * 2)];
+            System.arraycopy(mChars, 0, chars, 0, mChars.length);
+            mChars = chars;
+        }
+    }
+
+    /**
+     * Decodes a string whose opening quote has already been consumed
+     */
+    @NonNull
+    private String readString() throws IOException {
+        int length = 0;
+        while (true) {
+            // Fast path for plain ASCII already in the buffer
+            final byte[] buffer = mBuffer;
+            int pos = mPos;
+            final int limit = mLimit;
+            while (pos < limit) {
+                final byte b = buffer[pos];
+                if (b == '"' || b == '\\' || b < 0) {
+                    break;
+                }
+                if (length == mChars.length) {
+                    ensureChars(length + 1);
+                }
+                mChars[length++] = (char) b;
+                pos++;
+            }
+            mPos = pos;
+
+            final int c = nextByte();
+            if (c == '"') {
+                return new String(mChars, 0, length);
+            }
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            ensureChars(length + 2);
+            if (c == '\\') {
+                mChars[length++] = readEscape();
+            } else if (c >= 0x80) {
+                length = appendMultiByte(c, length);
+            } else {
+                mChars[length++] = (char) c;
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final int c = nextByte();
+        switch (c) {
+            case 'u':
+                int result = 0;
+                for (int i = 0; i < 4; i++) {
+                    final int h = nextByte();
+                    result <<= 4;
+                    if (h >= '0' && h <= '9') {
+                        result += h - '0';
+                    } else if (h >= 'a' && h <= 'f') {
+                        result += h - 'a' + 10;
+                    } else if (h >= 'A' && h <= 'F') {
+                        result += h - 'A' + 10;
+                    } else {
+                        throw syntaxError("Malformed \\u escape");
+                    }
+                }
+                return (char) result;
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence starting with the given lead byte
+     *
+     * @return new length of the char buffer
+     */
+    private int appendMultiByte(final int lead, int length) throws IOException {
+        final int extra;
+        int codePoint;
+        if ((lead & 0xe0) == 0xc0) {
+            extra = 1;
+            codePoint = lead & 0x1f;
+        } else if ((lead & 0xf0) == 0xe0) {
+            extra = 2;
+            codePoint = lead & 0x0f;
+        } else if ((lead & 0xf8) == 0xf0) {
+            extra = 3;
+            codePoint = lead & 0x07;
+        } else {
+            throw syntaxError("Malformed UTF-8");
+        }
+        for (int i = 0; i < extra; i++) {
+            final int b = nextByte();
+            if ((b & 0xc0) != 0x80) {
+                throw syntaxError("Malformed UTF-8");
+            }
+            codePoint = (codePoint << 6) | (b & 0x3f);
+        }
+        if (codePoint >= 0x10000) {
+            codePoint -= 0x10000;
+            mChars[length++] = (char) (0xd800 + (codePoint >>> 10));
+            mChars[length++] = (char) (0xdc00 + (codePoint & 0x3ff));
+        } else {
+            mChars[length++] = (char) codePoint;
+        }
+        return length;
+    }
+
+    /**
+     * Skips a string whose opening quote has already been consumed
+     */
+    private void skipString() throws IOException {
+        while (true) {
+            final int c = nextByte();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                nextByte();
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    /**
+     * Reads an unquoted literal into the char buffer
+     *
+     * @return the length of the literal
+     */
+    private int readLiteral() throws IOException {
+        int length = 0;
+        while (true) {
+            final int c = nextByte();
+            if (isLiteral(c)) {
+                if (length == mChars.length) {
+                    ensureChars(length + 1);
+                }
+                mChars[length++] = (char) c;
+            } else {
+                if (c != -1) {
+                    mPos--;
+                }
+                if (length == 0) {
+                    throw syntaxError("Expected literal");
+                }
+                return length;
+            }
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        while (true) {
+            final int c = nextByte();
+            if (!isLiteral(c)) {
+                if (c != -1) {
+                    mPos--;
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isLiteral(final int c) {
+        switch (c) {
+            case -1:
+            case ',':
+            case ':':
+            case '}':
+            case ']':
+            case '{':
+            case '[':
+            case '"':
+            case ' ':
+            case '\t':
+            case '\r':
+            case '\n':
+                return false;
+
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Parses a decimal number. Numbers with up to 15 significant digits and a small exponent,
+     * which covers coordinates, are converted exactly without allocating; everything else falls
+     * back to {@link Double#parseDouble(String)}.
+     */
+    private double parseDouble(@NonNull final char[] chars, final int length)
+            throws MalformedJsonException {
+        int i = 0;
+        final boolean negative = chars[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            final char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (i == length && digits <= 15 && scale < POWERS_OF_TEN.length) {
+            final double value = (double) mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(chars, 0, length));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number");
+        }
+    }
+
+    @NonNull
+    private MalformedJsonException syntaxError(@NonNull final String message) {
+        return new MalformedJsonException(message + " at byte " + mPos);
+    }
+
+    private static final class Buffers {
+
+        final byte[] mBytes = new byte[BUFFER_SIZE];
+
+        char[] mChars = new char[64];
+    }
+}
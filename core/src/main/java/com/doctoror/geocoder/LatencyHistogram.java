@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with buckets of bounded relative width, like HdrHistogram
+ *
+ * Latencies are counted in microseconds. Values below 32 have a bucket each, and every power of
+ * two above is split into 32 buckets, so a bucket is at most ~3% wide relative to its values.
+ * Values of 2^27 us (~134 s) and above go to the last bucket. Recording is one increment of a
+ * bucket in the stripe of the calling thread, see {@link StripedCounter}.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values with this many bits or more go to the last bucket
+     */
+    private static final int MAX_VALUE_BITS = 27;
+
+    static final int BUCKETS = SUB_BUCKETS + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Fewer stripes than {@link StripedCounter}, because a histogram has hundreds of cells per
+     * stripe and updates are already spread over buckets
+     */
+    private static final int STRIPES = Math.min(4, StripedCounter.STRIPES);
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(STRIPES * BUCKETS);
+
+    private final StripedCounter mSumNanos = new StripedCounter();
+
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        mCounts.incrementAndGet(StripedCounter.stripe(STRIPES) * BUCKETS
+                + bucketOf(TimeUnit.NANOSECONDS.toMicros(value)));
+        mSumNanos.add(value);
+        long max;
+        while (value > (max = mMaxNanos.get())) {
+            if (mMaxNanos.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the recorded latencies, optionally resetting the histogram. Latencies recorded
+     * meanwhile are counted either in the returned snapshot or after the reset, though the sum
+     * and max may be attributed to a different snapshot than the count.
+     */
+    @NonNull
+    LatencySnapshot snapshot(final boolean reset) {
+        final long[] counts = new long[BUCKETS];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            final int offset = stripe * BUCKETS;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += reset
+                        ? mCounts.getAndSet(offset + i, 0)
+                        : mCounts.get(offset + i);
+            }
+        }
+        final long sum = reset ? mSumNanos.sumThenReset() : mSumNanos.sum();
+        final long max = reset ? mMaxNanos.getAndSet(0) : mMaxNanos.get();
+        return new LatencySnapshot(counts, sum, max);
+    }
+
+    static int bucketOf(final long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        final int msb = 63 - Long.numberOfLeadingZeros(micros);
+        if (msb >= MAX_VALUE_BITS) {
+            return BUCKETS - 1;
+        }
+        final int shift = msb - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (shift << SUB_BUCKET_BITS)
+                + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the smallest value, in microseconds, that is above every value in the bucket
+     */
+    static long upperBoundMicros(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        final int shift = (bucket - SUB_BUCKETS) >> SUB_BUCKET_BITS;
+        final long sub = bucket & (SUB_BUCKETS - 1);
+        return (((long) SUB_BUCKETS + sub + 1) << shift);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorded query latencies, see {@link GeocoderMetrics}
+ *
+ * Latencies are counted in buckets that are at most ~3% wide relative to their values, down to a
+ * resolution of 1 microsecond, so percentiles are accurate to that. Only buckets with latencies
+ * in them are kept, in ascending order, so they can be exported as a histogram.
+ */
+public final class LatencySnapshot {
+
+    static final LatencySnapshot EMPTY = new LatencySnapshot(
+            new long[LatencyHistogram.BUCKETS], 0, 0);
+
+    /**
+     * Indexes of the non-empty buckets, ascending
+     */
+    @NonNull
+    private final int[] mBuckets;
+
+    @NonNull
+    private final long[] mCounts;
+
+    private final long mCount;
+
+    private final long mSumNanos;
+
+    private final long mMaxNanos;
+
+    /**
+     * @param counts   count per bucket, {@link LatencyHistogram#BUCKETS} long
+     * @param sumNanos sum of the latencies
+     * @param maxNanos the highest latency
+     */
+    LatencySnapshot(@NonNull final long[] counts, final long sumNanos, final long maxNanos) {
+        int nonEmpty = 0;
+        long count = 0;
+        for (final long c : counts) {
+            if (c != 0) {
+                nonEmpty++;
+                count += c;
+            }
+        }
+        mBuckets = new int[nonEmpty];
+        mCounts = new long[nonEmpty];
+        for (int i = 0, j = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                mBuckets[j] = i;
+                mCounts[j] = counts[i];
+                j++;
+            }
+        }
+        mCount = count;
+        mSumNanos = sumNanos;
+        mMaxNanos = maxNanos;
+    }
+
+    /**
+     * Returns the snapshot of the latencies of both snapshots
+     */
+    @NonNull
+    static LatencySnapshot merge(@NonNull final LatencySnapshot a,
+            @NonNull final LatencySnapshot b) {
+        final long[] counts = new long[LatencyHistogram.BUCKETS];
+        a.addTo(counts);
+        b.addTo(counts);
+        return new LatencySnapshot(counts, a.mSumNanos + b.mSumNanos,
+                Math.max(a.mMaxNanos, b.mMaxNanos));
+    }
+
+    private void addTo(@NonNull final long[] counts) {
+        for (int i = 0; i < mBuckets.length; i++) {
+            counts[mBuckets[i]] += mCounts[i];
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the sum of the latencies, in nanoseconds
+     */
+    public long getSumNanos() {
+        return mSumNanos;
+    }
+
+    /**
+     * Returns the mean latency in nanoseconds, or 0 if none were recorded
+     */
+    public long getMeanNanos() {
+        return mCount == 0 ? 0 : mSumNanos / mCount;
+    }
+
+    /**
+     * Returns the highest latency in nanoseconds, or 0 if none were recorded
+     */
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * Returns the latency that the given percentage of the latencies are at or below, rounded up
+     * to the bucket bound but not above {@link #getMaxNanos()}. Returns 0 if no latencies were
+     * recorded.
+     *
+     * @param percentile 0 to 100, e.g. 99.9
+     */
+    public long getPercentileNanos(final double percentile) {
+        if (percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+            throw new IllegalArgumentException("percentile == " + percentile);
+        }
+        if (mCount == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * mCount));
+        long seen = 0;
+        for (int i = 0; i < mBuckets.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                if (mBuckets[i] == LatencyHistogram.BUCKETS - 1) {
+                    // The last bucket has no upper bound
+                    return mMaxNanos;
+                }
+                return Math.min(getBucketUpperBoundNanos(i), mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    /**
+     * Returns the number of non-empty buckets
+     */
+    public int getBucketCount() {
+        return mBuckets.length;
+    }
+
+    /**
+     * Returns the bound that all latencies in the bucket are below, in nanoseconds. Bounds
+     * ascend with the index. Latencies of ~134 s and more are all counted in the last possible
+     * bucket, whose bound is exceeded.
+     *
+     * @param index 0 to {@link #getBucketCount()} - 1
+     */
+    public long getBucketUpperBoundNanos(final int index) {
+        if (index < 0 || index >= mBuckets.length) {
+            throw new IndexOutOfBoundsException("index == " + index);
+        }
+        return TimeUnit.MICROSECONDS.toNanos(LatencyHistogram.upperBoundMicros(mBuckets[index]));
+    }
+
+    /**
+     * Returns the number of latencies in the bucket, which is never 0
+     *
+     * @param index 0 to {@link #getBucketCount()} - 1
+     */
+    public long getBucketValueCount(final int index) {
+        if (index < 0 || index >= mBuckets.length) {
+            throw new IndexOutOfBoundsException("index == " + index);
+        }
+        return mCounts[index];
+    }
+}
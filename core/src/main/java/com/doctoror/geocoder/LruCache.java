@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded thread-safe LRU map with expiration
+ *
+ * The map is split into independently locked segments so that concurrent lookups of different
+ * keys rarely contend. Each segment evicts its least recently used entries once it holds more
+ * than its share of the entry or weight limit, so eviction order is LRU per segment.
+ */
+final class LruCache<K, V> {
+
+    interface Weigher<V> {
+
+        /**
+         * Returns the weight of the value, must not be negative
+         */
+        int weigh(@NonNull V value);
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Min number of entries per segment before the map is split further
+     */
+    private static final int MIN_SEGMENT_ENTRIES = 8;
+
+    @NonNull
+    private final Segment<K, V>[] mSegments;
+
+    @NonNull
+    private final Weigher<V> mWeigher;
+
+    private final long mTtlNanos;
+
+    /**
+     * @param maxEntries max number of entries
+     * @param maxWeight  max total weight of values
+     * @param ttlNanos   time an entry is valid for after it was put, or 0 to never expire
+     * @param weigher    computes the weight of values
+     */
+    LruCache(final int maxEntries, final long maxWeight, final long ttlNanos,
+            @NonNull final Weigher<V> weigher) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries == " + maxEntries);
+        }
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("maxWeight == " + maxWeight);
+        }
+        if (ttlNanos < 0) {
+            throw new IllegalArgumentException("ttlNanos == " + ttlNanos);
+        }
+        int segments = 1;
+        while (segments < MAX_SEGMENTS && segments * 2 * MIN_SEGMENT_ENTRIES <= maxEntries) {
+            segments *= 2;
+        }
+        // A generic array can not be created. The raw one only ever holds Segment<K, V>.
+        @SuppressWarnings("unchecked")
+        final Segment<K, V>[] array = (Segment<K, V>[]) new Segment<?, ?>[segments];
+        for (int i = 0; i < segments; i++) {
+            array[i] = new Segment<>(divideRoundingUp(maxEntries, segments),
+                    divideRoundingUp(maxWeight, segments));
+        }
+        mSegments = array;
+        mWeigher = weigher;
+        mTtlNanos = ttlNanos;
+    }
+
+    private static int divideRoundingUp(final int value, final int divisor) {
+        return value / divisor + (value % divisor == 0 ? 0 : 1);
+    }
+
+    private static long divideRoundingUp(final long value, final int divisor) {
+        return value / divisor + (value % divisor == 0 ? 0 : 1);
+    }
+
+    @Nullable
+    V get(@NonNull final K key) {
+        return segmentFor(key).get(key, mTtlNanos);
+    }
+
+    void put(@NonNull final K key, @NonNull final V value) {
+        final long expires = mTtlNanos == 0 ? 0 : System.nanoTime() + mTtlNanos;
+        segmentFor(key).put(key, new Entry<>(value, mWeigher.weigh(value), expires));
+    }
+
+    void remove(@NonNull final K key) {
+        segmentFor(key).remove(key);
+    }
+
+    void clear() {
+        for (final Segment<K, V> segment : mSegments) {
+            segment.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (final Segment<K, V> segment : mSegments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @NonNull
+    private Segment<K, V> segmentFor(@NonNull final K key) {
+        int h = key.hashCode();
+        // Spread the high bits so that segments are picked evenly for weak hashes
+        h ^= (h >>> 16);
+        return mSegments[h & (mSegments.length - 1)];
+    }
+
+    private static final class Entry<V> {
+
+        final V mValue;
+
+        final int mWeight;
+
+        final long mExpires;
+
+        Entry(@NonNull final V value, final int weight, final long expires) {
+            mValue = value;
+            mWeight = weight;
+            mExpires = expires;
+        }
+
+        boolean isExpired(final long now) {
+            return mExpires != 0 && now - mExpires >= 0;
+        }
+    }
+
+    private static final class Segment<K, V> {
+
+        private final LinkedHashMap<K, Entry<V>> mMap = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int mMaxEntries;
+
+        private final long mMaxWeight;
+
+        private long mWeight;
+
+        Segment(final int maxEntries, final long maxWeight) {
+            mMaxEntries = maxEntries;
+            mMaxWeight = maxWeight;
+        }
+
+        @Nullable
+        synchronized V get(@NonNull final K key, final long ttlNanos) {
+            final Entry<V> entry = mMap.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (ttlNanos != 0 && entry.isExpired(System.nanoTime())) {
+                mMap.remove(key);
+                mWeight -= entry.mWeight;
+                return null;
+            }
+            return entry.mValue;
+        }
+
+        synchronized void put(@NonNull final K key, @NonNull final Entry<V> entry) {
+            if (entry.mWeight > mMaxWeight) {
+                // Would evict everything else and still not fit
+                remove(key);
+                return;
+            }
+            final Entry<V> previous = mMap.put(key, entry);
+            if (previous != null) {
+                mWeight -= previous.mWeight;
+            }
+            mWeight += entry.mWeight;
+            trim();
+        }
+
+        synchronized void remove(@NonNull final K key) {
+            final Entry<V> entry = mMap.remove(key);
+            if (entry != null) {
+                mWeight -= entry.mWeight;
+            }
+        }
+
+        synchronized void clear() {
+            mMap.clear();
+            mWeight = 0;
+        }
+
+        synchronized int size() {
+            return mMap.size();
+        }
+
+        private void trim() {
+            final Iterator<Map.Entry<K, Entry<V>>> it = mMap.entrySet().iterator();
+            while ((mMap.size() > mMaxEntries || mWeight > mMaxWeight) && it.hasNext()) {
+                mWeight -= it.next().getValue().mWeight;
+                it.remove();
+            }
+        }
+    }
+}
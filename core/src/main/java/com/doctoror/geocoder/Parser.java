@@ -0,0 +1,575 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for Geocoder
+ *
+ * Reads the response with a streaming {@link JsonReader} and fills {@link Address} objects as
+ * the tokens arrive, without building a document tree.
+ */
+final class Parser {
+
+    /*
+     * Status codes which we handle
+     */
+
+
+    private static final String ERROR_MESSAGE = "error_message";
+
+    private static final String STATUS = "status";
+
+    private static final String RESULTS = "results";
+
+    private static final String GEOMETRY = "geometry";
+
+    private static final String LOCATION = "location";
+
+    private static final String LOCATION_TYPE = "location_type";
+
+    private static final String VIEWPORT = "viewport";
+
+    private static final String BOUNDS = "bounds";
+
+    private static final String SOUTHWEST = "southwest";
+
+    private static final String NORTHEAST = "northeast";
+
+    private static final String LAT = "lat";
+
+    private static final String LNG = "lng";
+
+    private static final String FORMATTED_ADDRESS = "formatted_address";
+
+    private static final String ADDRESS_COMPONENTS = "address_components";
+
+    private static final String TYPES = "types";
+
+    private static final String LONG_NAME = "long_name";
+
+    private static final String SHORT_NAME = "short_name";
+
+    private static final int COMPONENT_COUNT = AddressComponent.values().length;
+
+    private Parser() {
+    }
+
+    /**
+     * Parses response into {@link List}
+     *
+     * @param jsonData
+     * @param maxResults
+     * @param parseAddressComponents
+     * @return {@link Address} {@link List}
+     * @throws GeocoderException if error occurs
+     */
+    @NonNull
+    static List<Address> parseJson(final byte[] jsonData,
+                                   final int maxResults,
+                                   final boolean parseAddressComponents)
+            throws GeocoderException {
+        return parse(new JsonReader(jsonData, 0, jsonData.length), maxResults,
+                parseAddressComponents);
+    }
+
+    /**
+     * Parses response read from the stream into {@link List}. The stream is not closed, and
+     * once maxResults addresses are parsed the rest of it is left unread.
+     *
+     * @param in                     the response body
+     * @param maxResults             max number of addresses to return
+     * @param parseAddressComponents whether to parse "address_components"
+     * @return {@link Address} {@link List}
+     * @throws GeocoderException if error occurs, including I/O errors while reading the stream
+     */
+    @NonNull
+    static List<Address> parseJson(@NonNull final InputStream in,
+                                   final int maxResults,
+                                   final boolean parseAddressComponents)
+            throws GeocoderException {
+        return parse(new JsonReader(in), maxResults, parseAddressComponents);
+    }
+
+    @NonNull
+    private static List<Address> parse(@NonNull final JsonReader reader,
+                                       final int maxResults,
+                                       final boolean parseAddressComponents)
+            throws GeocoderException {
+        try {
+            String statusString = null;
+            String errorMessage = null;
+            List<Address> results = null;
+
+            // "status" usually comes after "results", so results are collected first and
+            // discarded if the status turns out to be an error
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case STATUS:
+                        statusString = reader.nextStringOrNull();
+                        break;
+
+                    case ERROR_MESSAGE:
+                        errorMessage = reader.nextStringOrNull();
+                        break;
+
+                    case RESULTS:
+                        results = parseResults(reader, maxResults, parseAddressComponents);
+                        if (maxResults > 0 && results.size() == maxResults) {
+                            if (statusString != null) {
+                                // Nothing else in the document is needed
+                                return toResult(statusString, errorMessage, results);
+                            }
+                            // The status is still to come, skip the remaining results without
+                            // parsing them
+                            while (reader.hasNext()) {
+                                reader.skipValue();
+                            }
+                            reader.endArray();
+                        }
+                        break;
+
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            reader.peek();
+
+            return toResult(statusString, errorMessage, results);
+        } catch (IOException e) {
+            throw new GeocoderException(e);
+        } finally {
+            reader.release();
+        }
+    }
+
+    @NonNull
+    private static List<Address> toResult(@Nullable final String statusString,
+                                          @Nullable final String errorMessage,
+                                          @Nullable final List<Address> results)
+            throws GeocoderException {
+        if (statusString == null) {
+            throw new GeocoderException(new MalformedJsonException("No \"status\" field"));
+        }
+
+        final Status status = Status.fromString(statusString);
+        switch (status) {
+            case OK:
+                if (results != null) {
+                    return results;
+                }
+                return new ArrayList<>();
+
+            case ZERO_RESULTS:
+                return new ArrayList<>();
+
+            default:
+                final GeocoderException e = GeocoderException.forStatus(status);
+                if (errorMessage != null) {
+                    e.setErrorMessage(errorMessage);
+                }
+                throw e;
+        }
+    }
+
+    /**
+     * Parses at most maxResults entries of the "results" array. If the limit is reached, the
+     * reader is left positioned inside the array and the remaining entries are not read.
+     */
+    @NonNull
+    private static List<Address> parseResults(@NonNull final JsonReader reader,
+                                              final int maxResults,
+                                              final boolean parseAddressComponents)
+            throws IOException {
+        if (maxResults <= 0) {
+            reader.skipValue();
+            return new ArrayList<>();
+        }
+        final ArrayList<Address> addressList = new ArrayList<>(maxResults);
+        reader.beginArray();
+        while (addressList.size() < maxResults && reader.hasNext()) {
+
+            final Address address = new Address();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FORMATTED_ADDRESS:
+                        address.setFormattedAddress(reader.nextStringOrNull());
+                        break;
+
+                    case GEOMETRY:
+                        parseGeometry(reader, address);
+                        break;
+
+                    case ADDRESS_COMPONENTS:
+                        if (parseAddressComponents) {
+                            parseAddressComponents(reader, address);
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            addressList.add(address);
+        }
+        if (addressList.size() < maxResults) {
+            reader.endArray();
+        }
+        return addressList;
+    }
+
+    private static void parseGeometry(@NonNull final JsonReader reader,
+                                      @NonNull final Address current) throws IOException {
+        // Coordinates go straight into the Address, without Location objects in between
+        final double[] coordinates = new double[4];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case LOCATION_TYPE:
+                    current.setLocationType(reader.nextStringOrNull());
+                    break;
+
+                case LOCATION:
+                    parseLocation(reader, coordinates, 0);
+                    current.setLocation(coordinates[0], coordinates[1]);
+                    break;
+
+                case VIEWPORT:
+                    if (parseCorners(reader, coordinates)) {
+                        current.setViewport(coordinates[0], coordinates[1],
+                                coordinates[2], coordinates[3]);
+                    }
+                    break;
+
+                case BOUNDS:
+                    if (parseCorners(reader, coordinates)) {
+                        current.setBounds(coordinates[0], coordinates[1],
+                                coordinates[2], coordinates[3]);
+                    }
+                    break;
+
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Parses an object with "southwest" and "northeast" locations
+     *
+     * @param coordinates receives southwest latitude and longitude followed by northeast
+     *                    latitude and longitude
+     * @return false if either location is missing
+     */
+    private static boolean parseCorners(@NonNull final JsonReader reader,
+                                        @NonNull final double[] coordinates) throws IOException {
+        boolean hasSouthwest = false;
+        boolean hasNortheast = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case SOUTHWEST:
+                    parseLocation(reader, coordinates, 0);
+                    hasSouthwest = true;
+                    break;
+
+                case NORTHEAST:
+                    parseLocation(reader, coordinates, 2);
+                    hasNortheast = true;
+                    break;
+
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return hasSouthwest && hasNortheast;
+    }
+
+    /**
+     * Parses a location object into coordinates[offset] and coordinates[offset + 1]
+     */
+    private static void parseLocation(@NonNull final JsonReader reader,
+                                      @NonNull final double[] coordinates,
+                                      final int offset) throws IOException {
+        boolean hasLat = false;
+        boolean hasLng = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case LAT:
+                    coordinates[offset] = reader.nextDouble();
+                    hasLat = true;
+                    break;
+
+                case LNG:
+                    coordinates[offset + 1] = reader.nextDouble();
+                    hasLng = true;
+                    break;
+
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (!hasLat) {
+            throw new MalformedJsonException("No \"lat\" field");
+        }
+        if (!hasLng) {
+            throw new MalformedJsonException("No \"lng\" field");
+        }
+    }
+
+    private static void parseAddressComponents(@NonNull final JsonReader reader,
+                                               @NonNull final Address address)
+            throws IOException {
+        // Reused across components, "types" is usually read before the names are known
+        final List<String> types = new ArrayList<>(4);
+        // Collected by ordinal and compacted into the address once
+        final String[] components = new String[COMPONENT_COUNT];
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String longName = null;
+            String shortName = null;
+            boolean hasTypes = false;
+            types.clear();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case LONG_NAME:
+                        longName = reader.nextStringOrNull();
+                        break;
+
+                    case SHORT_NAME:
+                        shortName = reader.nextStringOrNull();
+                        break;
+
+                    case TYPES:
+                        hasTypes = true;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            types.add(reader.nextString());
+                        }
+                        reader.endArray();
+                        break;
+
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (!hasTypes) {
+                continue;
+            }
+            final String value = longName != null ? longName : shortName;
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            for (int t = 0; t < types.size(); t++) {
+                applyAddressComponent(components, types.get(t), value, shortName);
+            }
+        }
+        reader.endArray();
+        address.setComponents(components, 0);
+    }
+
+    private static void applyAddressComponent(@NonNull final String[] components,
+                                              @NonNull final String type,
+                                              @NonNull final String value,
+                                              @Nullable final String shortName) {
+        switch (type) {
+            case "street_address":
+                components[AddressComponent.STREET_ADDRESS.ordinal()] = value;
+                break;
+
+            case "route":
+                components[AddressComponent.ROUTE.ordinal()] = value;
+                break;
+
+            case "intersection":
+                components[AddressComponent.INTERSECTION.ordinal()] = value;
+                break;
+
+            case "political":
+                components[AddressComponent.POLITICAL.ordinal()] = value;
+                break;
+
+            case "country":
+                components[AddressComponent.COUNTRY.ordinal()] = value;
+                if (shortName != null) {
+                    components[AddressComponent.COUNTRY_CODE.ordinal()] = shortName;
+                }
+                break;
+
+            case "administrative_area_level_1":
+                components[AddressComponent.ADMINISTRATIVE_AREA_LEVEL_1.ordinal()] = value;
+                break;
+
+            case "administrative_area_level_2":
+                components[AddressComponent.ADMINISTRATIVE_AREA_LEVEL_2.ordinal()] = value;
+                break;
+
+            case "administrative_area_level_3":
+                components[AddressComponent.ADMINISTRATIVE_AREA_LEVEL_3.ordinal()] = value;
+                break;
+
+            case "administrative_area_level_4":
+                components[AddressComponent.ADMINISTRATIVE_AREA_LEVEL_4.ordinal()] = value;
+                break;
+
+            case "administrative_area_level_5":
+                components[AddressComponent.ADMINISTRATIVE_AREA_LEVEL_5.ordinal()] = value;
+                break;
+
+            case "colloquial_area":
+                components[AddressComponent.COLLOQUIAL_AREA.ordinal()] = value;
+                break;
+
+            case "locality":
+                components[AddressComponent.LOCALITY.ordinal()] = value;
+                break;
+
+            case "ward":
+                components[AddressComponent.WARD.ordinal()] = value;
+                break;
+
+            case "sublocality":
+                components[AddressComponent.SUB_LOCALITY.ordinal()] = value;
+                break;
+
+            case "sublocality_level_1":
+                components[AddressComponent.SUB_LOCALITY_LEVEL_1.ordinal()] = value;
+                break;
+
+            case "sublocality_level_2":
+                components[AddressComponent.SUB_LOCALITY_LEVEL_2.ordinal()] = value;
+                break;
+
+            case "sublocality_level_3":
+                components[AddressComponent.SUB_LOCALITY_LEVEL_3.ordinal()] = value;
+                break;
+
+            case "sublocality_level_4":
+                components[AddressComponent.SUB_LOCALITY_LEVEL_4.ordinal()] = value;
+                break;
+
+            case "sublocality_level_5":
+                components[AddressComponent.SUB_LOCALITY_LEVEL_5.ordinal()] = value;
+                break;
+
+            case "neighborhood":
+                components[AddressComponent.NEIGHBORHOOD.ordinal()] = value;
+                break;
+
+            case "premise":
+                components[AddressComponent.PREMISE.ordinal()] = value;
+                break;
+
+            case "subpremise":
+                components[AddressComponent.SUB_PREMISE.ordinal()] = value;
+                break;
+
+            case "postal_code":
+                components[AddressComponent.POSTAL_CODE.ordinal()] = value;
+                break;
+
+            case "natural_feature":
+                components[AddressComponent.NATURAL_FEATURE.ordinal()] = value;
+                break;
+
+            case "airport":
+                components[AddressComponent.AIRPORT.ordinal()] = value;
+                break;
+
+            case "park":
+                components[AddressComponent.PARK.ordinal()] = value;
+                break;
+
+            case "point_of_interest":
+                components[AddressComponent.POINT_OF_INTEREST.ordinal()] = value;
+                break;
+
+            case "floor":
+                components[AddressComponent.FLOOR.ordinal()] = value;
+                break;
+
+            case "establishment":
+                components[AddressComponent.ESTABLISHMENT.ordinal()] = value;
+                break;
+
+            case "parking":
+                components[AddressComponent.PARKING.ordinal()] = value;
+                break;
+
+            case "post_box":
+                components[AddressComponent.POST_BOX.ordinal()] = value;
+                break;
+
+            case "postal_town":
+                components[AddressComponent.POST_TOWN.ordinal()] = value;
+                break;
+
+            case "room":
+                components[AddressComponent.ROOM.ordinal()] = value;
+                break;
+
+            case "street_number":
+                components[AddressComponent.STREET_NUMBER.ordinal()] = value;
+                break;
+
+            case "bus_station":
+                components[AddressComponent.BUS_STATION.ordinal()] = value;
+                break;
+
+            case "train_station":
+                components[AddressComponent.TRAIN_STATION.ordinal()] = value;
+                break;
+
+            case "transit_station":
+                components[AddressComponent.TRANSIT_STATION.ordinal()] = value;
+                break;
+
+            default:
+                // Unhandled
+                break;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Is thrown without making a request when the {@link RateLimiter} does not allow one in time or
+ * the daily budget is used up. Unlike a {@link Status#OVER_QUERY_LIMIT} answer from the server,
+ * it is not retried and does not count as overload.
+ */
+public final class RateLimitedException extends GeocoderException {
+
+    @NonNull
+    @Override
+    GeocoderException copy() {
+        return copyTo(new RateLimitedException());
+    }
+
+    @Override
+    public String toString() {
+        return "Rate limited";
+    }
+}
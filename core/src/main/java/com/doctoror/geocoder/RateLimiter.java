@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side limit on the rate of requests and on the number of requests per day
+ *
+ * The rate is limited with a token bucket that holds up to {@code burst} requests and refills
+ * at {@code permitsPerSecond}. The daily budget resets at midnight in the given time zone, UTC
+ * by default. The Google Maps APIs reset their quotas at midnight Pacific Time, so pass
+ * {@code TimeZone.getTimeZone("America/Los_Angeles")} to match them. Both are kept in atomic
+ * counters, so acquiring never takes a lock.
+ *
+ * A limiter registered with {@link #setShared(String, RateLimiter)} is used by every
+ * {@link GeocoderEngine} with the same API key. The counters are kept in memory only and start over
+ * when the process restarts.
+ */
+public final class RateLimiter {
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final String NO_KEY = "";
+
+    private static final ConcurrentMap<String, RateLimiter> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * Nanoseconds between two requests at the sustained rate
+     */
+    private final long mIntervalNanos;
+
+    /**
+     * How far ahead of the sustained rate requests may run, which is what lets a burst through
+     */
+    private final long mToleranceNanos;
+
+    private final long mDailyBudget;
+
+    @NonNull
+    private final TimeZone mDailyResetZone;
+
+    /**
+     * Time at which the next request would be on schedule at the sustained rate, in
+     * {@link System#nanoTime()} terms
+     */
+    private final AtomicLong mTheoreticalArrival;
+
+    /**
+     * Day number in the high 32 bits and requests made that day in the low 32 bits
+     */
+    private final AtomicLong mDailyUsage = new AtomicLong();
+
+    /**
+     * Constructs a limiter with the daily budget reset at midnight UTC
+     *
+     * @param permitsPerSecond sustained requests per second
+     * @param burst            max number of requests let through at once after a quiet period
+     * @param dailyBudget      max requests per day, or 0 for no daily limit
+     */
+    public RateLimiter(final double permitsPerSecond, final int burst, final long dailyBudget) {
+        this(permitsPerSecond, burst, dailyBudget, TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Constructs a limiter
+     *
+     * @param permitsPerSecond sustained requests per second
+     * @param burst            max number of requests let through at once after a quiet period
+     * @param dailyBudget      max requests per day, or 0 for no daily limit
+     * @param dailyResetZone   the time zone at whose midnight the daily budget resets
+     */
+    public RateLimiter(final double permitsPerSecond, final int burst, final long dailyBudget,
+            @NonNull final TimeZone dailyResetZone) {
+        //noinspection ConstantConditions
+        if (dailyResetZone == null) {
+            throw new NullPointerException("dailyResetZone == null");
+        }
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond == " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst == " + burst);
+        }
+        if (dailyBudget < 0 || dailyBudget > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("dailyBudget == " + dailyBudget);
+        }
+        mIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        mToleranceNanos = mIntervalNanos * (burst - 1);
+        mDailyBudget = dailyBudget;
+        mDailyResetZone = (TimeZone) dailyResetZone.clone();
+        mTheoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Registers the limiter to use for all {@link GeocoderEngine}s with the given API key
+     *
+     * @param apiKey  the API key, or null for Geocoders without one
+     * @param limiter the limiter, or null to remove the limit
+     */
+    public static void setShared(@Nullable final String apiKey,
+            @Nullable final RateLimiter limiter) {
+        final String key = apiKey != null ? apiKey : NO_KEY;
+        if (limiter == null) {
+            SHARED.remove(key);
+        } else {
+            SHARED.put(key, limiter);
+        }
+    }
+
+    /**
+     * Returns the limiter registered for the API key
+     *
+     * @param apiKey the API key, or null for Geocoders without one
+     * @return the limiter, or null if none is registered
+     */
+    @Nullable
+    public static RateLimiter getShared(@Nullable final String apiKey) {
+        return SHARED.get(apiKey != null ? apiKey : NO_KEY);
+    }
+
+    /**
+     * Acquires a permit if it is available right away
+     *
+     * @return true if acquired
+     */
+    public boolean tryAcquire() {
+        try {
+            return tryAcquire(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Does not wait
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Acquires a permit, waiting up to the given time for the rate to allow it. Returns false
+     * without waiting if the daily budget is used up or if the permit would not be available
+     * in time.
+     *
+     * @param timeout max time to wait
+     * @param unit    the unit of timeout
+     * @return true if acquired
+     * @throws InterruptedException if interrupted while waiting. The permit is consumed
+     */
+    public boolean tryAcquire(final long timeout, @NonNull final TimeUnit unit)
+            throws InterruptedException {
+        try {
+            return tryAcquire(unit.toNanos(timeout), (Cancellation) null);
+        } catch (InterruptedIOException e) {
+            // Not cancelable
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Acquires a permit, waiting up to the given time for the rate to allow it, like
+     * {@link #tryAcquire(long, TimeUnit)}
+     *
+     * @param timeoutNanos max time to wait
+     * @param cancellation aborts the wait when canceled, may be null
+     * @return true if acquired
+     * @throws InterruptedException   if interrupted while waiting. The permit is consumed
+     * @throws InterruptedIOException if canceled while waiting. The permit is consumed
+     */
+    boolean tryAcquire(final long timeoutNanos, @Nullable final Cancellation cancellation)
+            throws InterruptedException, InterruptedIOException {
+        if (!consumeDaily()) {
+            return false;
+        }
+        final long wait = reserve(timeoutNanos);
+        if (wait < 0) {
+            refundDaily();
+            return false;
+        }
+        if (wait > 0) {
+            await(wait, cancellation);
+        }
+        return true;
+    }
+
+    private static void await(final long nanos, @Nullable final Cancellation cancellation)
+            throws InterruptedException, InterruptedIOException {
+        if (cancellation == null) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return;
+        }
+        final CountDownLatch canceled = new CountDownLatch(1);
+        final Runnable wakeup = new Runnable() {
+
+            @Override
+            public void run() {
+                canceled.countDown();
+            }
+        };
+        cancellation.addListener(wakeup);
+        try {
+            if (canceled.await(nanos, TimeUnit.NANOSECONDS)) {
+                throw new InterruptedIOException("Canceled");
+            }
+        } finally {
+            cancellation.removeListener(wakeup);
+        }
+    }
+
+    /**
+     * Acquires a permit, waiting as long as the rate requires
+     *
+     * @return true if acquired, false if the daily budget is used up
+     * @throws InterruptedException if interrupted while waiting. The permit is consumed
+     */
+    public boolean acquire() throws InterruptedException {
+        return tryAcquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reserves the next slot allowed by the rate
+     *
+     * @param maxWaitNanos max time to wait for the slot
+     * @return time to wait until the slot, or -1 if it is further away than maxWaitNanos and
+     * nothing was reserved
+     */
+    private long reserve(final long maxWaitNanos) {
+        while (true) {
+            final long now = System.nanoTime();
+            final long arrival = mTheoreticalArrival.get();
+            // A bucket that has been idle does not save up more than the burst
+            final long start = arrival - now < 0 ? now : arrival;
+            final long wait = start - now - mToleranceNanos;
+            final long clampedWait = wait < 0 ? 0 : wait;
+            if (clampedWait > maxWaitNanos) {
+                return -1;
+            }
+            if (mTheoreticalArrival.compareAndSet(arrival, start + mIntervalNanos)) {
+                return clampedWait;
+            }
+        }
+    }
+
+    private boolean consumeDaily() {
+        if (mDailyBudget == 0) {
+            return true;
+        }
+        final long now = System.currentTimeMillis();
+        final long today = (now + mDailyResetZone.getOffset(now)) / MILLIS_PER_DAY;
+        while (true) {
+            final long usage = mDailyUsage.get();
+            final long count = (usage >>> 32) == today ? usage & 0xffffffffL : 0;
+            if (count >= mDailyBudget) {
+                return false;
+            }
+            if (mDailyUsage.compareAndSet(usage, (today << 32) | (count + 1))) {
+                return true;
+            }
+        }
+    }
+
+    private void refundDaily() {
+        if (mDailyBudget == 0) {
+            return;
+        }
+        while (true) {
+            final long usage = mDailyUsage.get();
+            if ((usage & 0xffffffffL) == 0) {
+                return;
+            }
+            if (mDailyUsage.compareAndSet(usage, usage - 1)) {
+                return;
+            }
+        }
+    }
+}
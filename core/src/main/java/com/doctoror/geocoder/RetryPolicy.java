@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed {@link GeocoderEngine} query is retried
+ *
+ * The number of attempts is configured separately for {@link Status#OVER_QUERY_LIMIT},
+ * {@link Status#UNKNOWN_ERROR} and network errors. Other errors are never retried. Retries are
+ * delayed with exponential backoff and full jitter: the delay before retry {@code n} is random
+ * between zero and {@code min(maxDelay, baseDelay * 2^(n - 1))}, so that callers that failed
+ * together do not retry together.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Policy that does not retry
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 1, 1, 0, 0, TimeUnit.MILLISECONDS);
+
+    /**
+     * Policy used by default: up to three attempts on {@link Status#OVER_QUERY_LIMIT}, two on
+     * {@link Status#UNKNOWN_ERROR} and network errors, with delays from 500 ms up to 8 seconds
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 2, 2, 500, 8000,
+            TimeUnit.MILLISECONDS);
+
+    /**
+     * Random per thread, so that concurrent retries do not contend on one
+     */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final int mOverQueryLimitAttempts;
+
+    private final int mUnknownErrorAttempts;
+
+    private final int mNetworkErrorAttempts;
+
+    private final long mBaseDelayNanos;
+
+    private final long mMaxDelayNanos;
+
+    /**
+     * Constructs a policy
+     *
+     * @param overQueryLimitAttempts max attempts, including the first one, when the response
+     *                               status is {@link Status#OVER_QUERY_LIMIT}
+     * @param unknownErrorAttempts   max attempts when the response status is
+     *                               {@link Status#UNKNOWN_ERROR}
+     * @param networkErrorAttempts   max attempts when the request fails with an I/O error
+     * @param baseDelay              upper bound of the delay before the first retry
+     * @param maxDelay               upper bound of the delay before any retry
+     * @param unit                   the unit of the delays
+     */
+    public RetryPolicy(final int overQueryLimitAttempts, final int unknownErrorAttempts,
+            final int networkErrorAttempts, final long baseDelay, final long maxDelay,
+            @NonNull final TimeUnit unit) {
+        if (overQueryLimitAttempts < 1) {
+            throw new IllegalArgumentException(
+                    "overQueryLimitAttempts == " + overQueryLimitAttempts);
+        }
+        if (unknownErrorAttempts < 1) {
+            throw new IllegalArgumentException("unknownErrorAttempts == " + unknownErrorAttempts);
+        }
+        if (networkErrorAttempts < 1) {
+            throw new IllegalArgumentException("networkErrorAttempts == " + networkErrorAttempts);
+        }
+        if (baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException(
+                    "baseDelay == " + baseDelay + ", maxDelay == " + maxDelay);
+        }
+        mOverQueryLimitAttempts = overQueryLimitAttempts;
+        mUnknownErrorAttempts = unknownErrorAttempts;
+        mNetworkErrorAttempts = networkErrorAttempts;
+        mBaseDelayNanos = unit.toNanos(baseDelay);
+        mMaxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Returns the delay before the next attempt
+     *
+     * @param e        the failure of the last attempt
+     * @param attempts the number of attempts made so far
+     * @return delay in nanoseconds, or -1 if the query should not be retried
+     */
+    long retryDelayNanos(@NonNull final GeocoderException e, final int attempts) {
+        final int maxAttempts;
+        if (e.getStatus() == Status.OVER_QUERY_LIMIT) {
+            maxAttempts = mOverQueryLimitAttempts;
+        } else if (e.getStatus() == Status.UNKNOWN_ERROR) {
+            maxAttempts = mUnknownErrorAttempts;
+        } else if (e.isCausedByNetworkError()) {
+            maxAttempts = mNetworkErrorAttempts;
+        } else {
+            return -1;
+        }
+        if (attempts >= maxAttempts) {
+            return -1;
+        }
+        // base * 2^(attempts - 1) without overflowing
+        long ceiling = mBaseDelayNanos;
+        for (int i = 1; i < attempts && ceiling < mMaxDelayNanos; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, mMaxDelayNanos);
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return (long) (RANDOM.get().nextDouble() * ceiling);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs reverse geocoding queries for a list of locations with at most a given number of queries
+ * in flight. Identical coordinates are queried once.
+ */
+final class ReverseGeocodeBatch {
+
+    @NonNull
+    private final GeocoderEngine mGeocoder;
+
+    private final int mMaxResults;
+
+    private final boolean mParseAddressComponents;
+
+    /**
+     * Distinct locations to query
+     */
+    @NonNull
+    private final List<Address.Location> mUnique = new ArrayList<>();
+
+    /**
+     * Index in {@link #mUnique} for every input location
+     */
+    @NonNull
+    private final int[] mInputToUnique;
+
+    @NonNull
+    private final BatchResult[] mResults;
+
+    private final AtomicInteger mNext = new AtomicInteger();
+
+    private final Cancellation mCancellation = new Cancellation();
+
+    private volatile boolean mQuotaExceeded;
+
+    ReverseGeocodeBatch(@NonNull final GeocoderEngine geocoder,
+            @NonNull final List<Address.Location> locations,
+            final int maxResults,
+            final boolean parseAddressComponents) {
+        mGeocoder = geocoder;
+        mMaxResults = maxResults;
+        mParseAddressComponents = parseAddressComponents;
+
+        final int size = locations.size();
+        mInputToUnique = new int[size];
+        final Map<Key, Integer> indices = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            final Address.Location location = locations.get(i);
+            final Key key = new Key(location.latitude, location.longitude);
+            Integer index = indices.get(key);
+            if (index == null) {
+                index = mUnique.size();
+                indices.put(key, index);
+                mUnique.add(location);
+            }
+            mInputToUnique[i] = index;
+        }
+        mResults = new BatchResult[mUnique.size()];
+    }
+
+    /**
+     * Runs the queries and blocks until all of them are finished
+     *
+     * @param parallelism max number of queries in flight
+     * @param executor    the Executor to run the queries on
+     * @return results in the order of input locations
+     * @throws InterruptedException if interrupted while waiting. Queries in flight are aborted
+     */
+    @NonNull
+    List<BatchResult> execute(final int parallelism, @NonNull final Executor executor)
+            throws InterruptedException {
+        final int workers = Math.min(parallelism, mUnique.size());
+        final CountDownLatch latch = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        runQueries();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            mCancellation.cancel();
+            throw e;
+        }
+
+        final List<BatchResult> results = new ArrayList<>(mInputToUnique.length);
+        final boolean[] used = new boolean[mResults.length];
+        for (final int index : mInputToUnique) {
+            // Duplicates get their own result, so that modifying one list leaves the others be
+            results.add(used[index] ? mResults[index].copy() : mResults[index]);
+            used[index] = true;
+        }
+        return results;
+    }
+
+    private void runQueries() {
+        int index;
+        while ((index = mNext.getAndIncrement()) < mResults.length) {
+            mResults[index] = query(mUnique.get(index));
+        }
+    }
+
+    @NonNull
+    private BatchResult query(@NonNull final Address.Location location) {
+        if (mQuotaExceeded) {
+            // Do not waste requests on a quota that is already used up
+            return new BatchResult(GeocoderException.forQueryOverLimit());
+        }
+        try {
+            return new BatchResult(mGeocoder.reverseGeocode(location.latitude,
+                    location.longitude, mMaxResults, mParseAddressComponents, mCancellation));
+        } catch (GeocoderException e) {
+            if (e.getStatus() == Status.OVER_QUERY_LIMIT) {
+                mQuotaExceeded = true;
+            }
+            return new BatchResult(e);
+        }
+    }
+
+    private static final class Key {
+
+        private final double mLatitude;
+
+        private final double mLongitude;
+
+        Key(final double latitude, final double longitude) {
+            mLatitude = latitude;
+            mLongitude = longitude;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return Double.compare(key.mLatitude, mLatitude) == 0
+                    && Double.compare(key.mLongitude, mLongitude) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            final long latitude = Double.doubleToLongBits(mLatitude);
+            final long longitude = Double.doubleToLongBits(mLongitude);
+            return 31 * (int) (latitude ^ (latitude >>> 32))
+                    + (int) (longitude ^ (longitude >>> 32));
+        }
+    }
+}
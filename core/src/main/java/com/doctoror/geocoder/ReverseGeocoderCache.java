@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of reverse geocoding results for nearby points
+ *
+ * Set with {@link GeocoderEngine#setReverseCache(ReverseGeocoderCache)}. The globe is divided
+ * into a grid of cells roughly {@code precisionMeters} on a side and all points in a cell share
+ * one cached result, which is the result for the first point queried in it. Optionally a hit is
+ * only used if the queried point lies within the viewport, or bounds, of the first cached
+ * address. The cache is safe for concurrent use.
+ *
+ * The {@link Address} objects in the lists returned on cache hits are shared between callers
+ * and must not be modified.
+ */
+public final class ReverseGeocoderCache {
+
+    /**
+     * Length of a degree of latitude
+     */
+    private static final double METERS_PER_DEGREE = 111320.0;
+
+    @NonNull
+    private final LruCache<String, CachedResult> mCache;
+
+    /**
+     * Cell height in degrees of latitude
+     */
+    private final double mCellDegrees;
+
+    private final boolean mValidateViewport;
+
+    /**
+     * Constructs a cache
+     *
+     * @param precisionMeters  approximate size of a cell. Points closer than this may share a
+     *                         result
+     * @param maxEntries       max number of cached cells
+     * @param ttl              how long a result is valid for, or 0 for no expiration
+     * @param unit             the unit of ttl
+     * @param validateViewport if true, a cached result is only used if the queried point is
+     *                         within the viewport or bounds of the first cached address
+     */
+    public ReverseGeocoderCache(final double precisionMeters, final int maxEntries,
+            final long ttl, @NonNull final TimeUnit unit, final boolean validateViewport) {
+        if (!(precisionMeters > 0)) {
+            throw new IllegalArgumentException("precisionMeters == " + precisionMeters);
+        }
+        mCellDegrees = Math.min(precisionMeters / METERS_PER_DEGREE, 180.0);
+        mValidateViewport = validateViewport;
+        mCache = new LruCache<>(maxEntries, Long.MAX_VALUE, unit.toNanos(ttl),
+                new LruCache.Weigher<CachedResult>() {
+
+                    @Override
+                    public int weigh(@NonNull final CachedResult value) {
+                        return 1;
+                    }
+                });
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void clear() {
+        mCache.clear();
+    }
+
+    /**
+     * Returns the number of cached cells
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Builds the cache key of the cell the point is in
+     *
+     * @param scope identifies the endpoint and API key, see
+     *              {@link GeocoderEngine#cacheScope(String, String)}
+     */
+    @NonNull
+    String key(final double latitude, final double longitude, @NonNull final String language,
+            @NonNull final String scope, final boolean parseAddressComponents) {
+        final long row = (long) Math.floor((latitude + 90.0) / mCellDegrees);
+        // Cells get narrower in degrees of longitude towards the poles to keep their width
+        final double rowLatitude = Math.min(-90.0 + (row + 0.5) * mCellDegrees, 90.0);
+        final double cos = Math.max(Math.cos(Math.toRadians(rowLatitude)), 1e-9);
+        final long columns = Math.max(1L, (long) (360.0 * cos / mCellDegrees));
+        long column = (long) Math.floor((longitude + 180.0) / 360.0 * columns);
+        if (column >= columns) {
+            // 180 is the same meridian as -180
+            column = 0;
+        }
+        return language + '\n' + scope + '\n'
+                + (parseAddressComponents ? '1' : '0') + '\n' + row + ':' + column;
+    }
+
+    /**
+     * Returns the cached result for the cell
+     *
+     * @param key        the key built by {@link #key(double, double, String, String, boolean)}
+     * @param latitude   the queried latitude
+     * @param longitude  the queried longitude
+     * @param maxResults max number of addresses requested
+     * @return the result, or null if not cached, if it does not cover the point, or if the cached
+     * result was made for a lower maxResults and may be incomplete
+     */
+    @Nullable
+    List<Address> get(@NonNull final String key, final double latitude, final double longitude,
+            final int maxResults) {
+        final CachedResult result = mCache.get(key);
+        if (result == null) {
+            return null;
+        }
+        final List<Address> addresses = result.mAddresses;
+        if (!accepts(addresses, latitude, longitude)) {
+            return null;
+        }
+        if (addresses.size() >= maxResults) {
+            return new ArrayList<>(addresses.subList(0, Math.max(maxResults, 0)));
+        }
+        if (addresses.size() < result.mMaxResults) {
+            // The response had fewer results than were asked for, so this is all there is
+            return new ArrayList<>(addresses);
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if a result cached for the cell may be used for the point
+     */
+    boolean accepts(@NonNull final List<Address> addresses, final double latitude,
+            final double longitude) {
+        return !mValidateViewport || addresses.isEmpty()
+                || covers(addresses.get(0), latitude, longitude);
+    }
+
+    void put(@NonNull final String key, final int maxResults,
+            @NonNull final List<Address> addresses) {
+        mCache.put(key, new CachedResult(new ArrayList<>(addresses), maxResults));
+    }
+
+    private static boolean covers(@NonNull final Address address, final double latitude,
+            final double longitude) {
+        if (address.hasViewport()) {
+            return contains(address.getViewportSouthwestLatitude(),
+                    address.getViewportSouthwestLongitude(),
+                    address.getViewportNortheastLatitude(),
+                    address.getViewportNortheastLongitude(), latitude, longitude);
+        }
+        if (address.hasBounds()) {
+            return contains(address.getBoundsSouthwestLatitude(),
+                    address.getBoundsSouthwestLongitude(),
+                    address.getBoundsNortheastLatitude(),
+                    address.getBoundsNortheastLongitude(), latitude, longitude);
+        }
+        return false;
+    }
+
+    private static boolean contains(final double southwestLatitude,
+            final double southwestLongitude, final double northeastLatitude,
+            final double northeastLongitude, final double latitude, final double longitude) {
+        if (latitude < southwestLatitude || latitude > northeastLatitude) {
+            return false;
+        }
+        if (southwestLongitude <= northeastLongitude) {
+            return longitude >= southwestLongitude && longitude <= northeastLongitude;
+        }
+        // Crosses the antimeridian
+        return longitude >= southwestLongitude || longitude <= northeastLongitude;
+    }
+
+    private static final class CachedResult {
+
+        @NonNull
+        final List<Address> mAddresses;
+
+        final int mMaxResults;
+
+        CachedResult(@NonNull final List<Address> addresses, final int maxResults) {
+            mAddresses = addresses;
+            mMaxResults = maxResults;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent identical queries. The first caller for a key runs the query and the
+ * callers that arrive while it is in flight wait for it and receive the same result.
+ */
+final class SingleFlight {
+
+    interface Query {
+
+        @NonNull
+        List<Address> run() throws GeocoderException;
+    }
+
+    private final ConcurrentMap<String, Flight> mFlights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the query, or waits for an identical one that is already in flight
+     *
+     * @param key          identifies the query
+     * @param query        the query
+     * @param cancellation cancellation of the calling query, may be null
+     * @param listener     receives {@link EventListener#coalesced(long)} if the caller waits for
+     *                     a query in flight, may be null
+     * @return the result. Each caller receives its own list, the {@link Address} objects in it
+     * may be shared
+     * @throws GeocoderException if the query failed or the caller was interrupted or canceled
+     *                           while waiting. Callers that waited get a copy of the exception
+     *                           of the query, or one caused by its unexpected failure.
+     */
+    @NonNull
+    List<Address> execute(@NonNull final String key, @NonNull final Query query,
+            @Nullable final Cancellation cancellation, @Nullable final EventListener listener)
+            throws GeocoderException {
+        while (true) {
+            final Flight flight = new Flight();
+            final Flight inFlight = mFlights.putIfAbsent(key, flight);
+            if (inFlight == null) {
+                return lead(key, flight, query, cancellation);
+            }
+
+            if (listener != null) {
+                listener.coalesced(System.nanoTime());
+            }
+            await(inFlight, cancellation);
+
+            if (inFlight.mLeaderCanceled) {
+                // The failure belongs to the canceled caller, not to this one
+                continue;
+            }
+            if (inFlight.mException != null) {
+                // A copy per caller, so that the stack traces of the callers are not mixed up
+                throw inFlight.mException.copy();
+            }
+            if (inFlight.mError != null) {
+                throw new GeocoderException(inFlight.mError);
+            }
+            return new ArrayList<>(inFlight.mResult);
+        }
+    }
+
+    private static void await(@NonNull final Flight flight,
+            @Nullable final Cancellation cancellation) throws GeocoderException {
+        try {
+            if (cancellation == null) {
+                flight.mDone.await();
+                return;
+            }
+            while (!flight.mDone.await(Cancellation.CHECK_INTERVAL_NANOS,
+                    TimeUnit.NANOSECONDS)) {
+                if (cancellation.isCanceled()) {
+                    throw new GeocoderException(new InterruptedIOException("Canceled"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeocoderException(new InterruptedIOException("Interrupted"));
+        }
+    }
+
+    @NonNull
+    private List<Address> lead(@NonNull final String key, @NonNull final Flight flight,
+            @NonNull final Query query, @Nullable final Cancellation cancellation)
+            throws GeocoderException {
+        try {
+            final List<Address> result = query.run();
+            // Snapshot for the waiters, the caller is free to modify its own list
+            flight.mResult = new ArrayList<>(result);
+            return result;
+        } catch (GeocoderException e) {
+            flight.mException = e;
+            flight.mLeaderCanceled = isCanceled(e, cancellation);
+            throw e;
+        } catch (Throwable t) {
+            flight.mError = t;
+            throw t;
+        } finally {
+            mFlights.remove(key, flight);
+            flight.mDone.countDown();
+        }
+    }
+
+    /**
+     * Returns whether the leader failed because it was canceled or interrupted, rather than
+     * because of the query
+     */
+    private static boolean isCanceled(@NonNull final GeocoderException e,
+            @Nullable final Cancellation cancellation) {
+        if (cancellation != null && cancellation.isCanceled()) {
+            return true;
+        }
+        // A synchronous caller has no cancellation but can be interrupted
+        final Throwable cause = e.getCause();
+        return Thread.currentThread().isInterrupted()
+                || (cause instanceof InterruptedIOException
+                && !(cause instanceof SocketTimeoutException));
+    }
+
+    private static final class Flight {
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+
+        List<Address> mResult;
+
+        GeocoderException mException;
+
+        /**
+         * Unexpected failure of the leader, such as a RuntimeException
+         */
+        Throwable mError;
+
+        boolean mLeaderCanceled;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that threads update in separate cells, so updates from many threads do not contend
+ * for one cache line. The sum is only computed when read. LongAdder is not available before
+ * Java 8 and Android API 24.
+ */
+final class StripedCounter {
+
+    /**
+     * Number of cells, a power of two of at least twice the number of processors
+     */
+    static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Cells are spaced a 64-byte cache line apart
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int stripes(final int processors) {
+        final int stripes = Integer.highestOneBit(Math.max(1, processors) * 2 - 1) << 1;
+        return Math.min(64, stripes);
+    }
+
+    /**
+     * Returns the stripe of the calling thread, between 0 and stripes - 1. Thread ids are
+     * assigned sequentially, so threads started together get different stripes.
+     *
+     * @param stripes the number of stripes, a power of two
+     */
+    static int stripe(final int stripes) {
+        return (int) Thread.currentThread().getId() & (stripes - 1);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    void add(final long x) {
+        mCells.getAndAdd(stripe(STRIPES) * PADDING, x);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum and resets the counter. Updates made meanwhile are counted either in the
+     * returned sum or after the reset, never lost.
+     */
+    long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCells.getAndSet(i * PADDING, 0);
+        }
+        return sum;
+    }
+}
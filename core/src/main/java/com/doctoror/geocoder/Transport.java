@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Performs the HTTP requests made by {@link GeocoderEngine}
+ *
+ * The default implementation is {@link UrlConnectionTransport}. A custom implementation can be
+ * set with {@link GeocoderEngine#setTransport(Transport)}, for example to use a different HTTP
+ * client or to serve responses from a local stub.
+ *
+ * Implementations must be safe for use from multiple threads. They should report the connect,
+ * request and response phases of a call to its {@link EventListener}, if any, and may skip the
+ * phases they can't observe.
+ */
+public interface Transport {
+
+    /**
+     * Prepares a GET request for the given URL. The request is not sent until
+     * {@link Call#execute()} is called.
+     *
+     * @param url      the request URL
+     * @param listener receives the phases of the call, may be null
+     * @return the call
+     */
+    @NonNull
+    Call newCall(@NonNull String url, @Nullable EventListener listener);
+
+    /**
+     * A single request
+     */
+    interface Call {
+
+        /**
+         * Sends the request and returns the response body, decoded if it was sent with a
+         * Content-Encoding such as gzip. The caller must close the returned stream, which may be
+         * closed before it is fully read.
+         *
+         * @return the response body
+         * @throws IOException if the request failed or was canceled
+         */
+        @NonNull
+        InputStream execute() throws IOException;
+
+        /**
+         * Aborts the call. A blocked {@link #execute()} or read from the response body fails
+         * with an {@link IOException}. May be called from any thread.
+         */
+        void cancel();
+    }
+}
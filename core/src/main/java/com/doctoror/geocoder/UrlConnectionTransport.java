@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link Transport} backed by {@link URLConnection}
+ *
+ * {@link HttpURLConnection} keeps idle connections to the endpoint in a process-wide pool and
+ * reuses them, together with their TLS sessions, for the following requests. A connection only
+ * goes back to the pool if its response body is read to the end, so when the body is closed
+ * early the remainder, up to {@link #MAX_DRAIN_BYTES}, is skipped without being parsed. Larger
+ * leftovers are cheaper to drop together with the connection.
+ *
+ * Connecting and each read of the response are bounded by timeouts, so a stalled connection
+ * fails with {@link java.net.SocketTimeoutException} instead of blocking forever.
+ *
+ * Responses are requested gzip-compressed and inflated as they are read, so the parser consumes
+ * decompressed data as it arrives and the whole body is never held in memory.
+ */
+public final class UrlConnectionTransport implements Transport {
+
+    /**
+     * Max number of unread bytes to discard to keep a connection reusable
+     */
+    static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * Size of the buffer for compressed input
+     */
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    /**
+     * Scratch buffer for discarding unread bytes, reused by all calls on a thread
+     */
+    private static final ThreadLocal<byte[]> DRAIN_BUFFER = new ThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[4096];
+        }
+    };
+
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    private final int mConnectTimeoutMillis;
+
+    private final int mReadTimeoutMillis;
+
+    /**
+     * Constructs a transport with 10 second connect and read timeouts
+     */
+    public UrlConnectionTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructs a transport with the given timeouts
+     *
+     * @param connectTimeout max time to establish a connection, 0 for no timeout
+     * @param readTimeout    max time to wait for data on an established connection, 0 for no
+     *                       timeout
+     * @param unit           the unit of the timeouts
+     */
+    public UrlConnectionTransport(final long connectTimeout, final long readTimeout,
+            @NonNull final TimeUnit unit) {
+        if (connectTimeout < 0) {
+            throw new IllegalArgumentException("connectTimeout == " + connectTimeout);
+        }
+        if (readTimeout < 0) {
+            throw new IllegalArgumentException("readTimeout == " + readTimeout);
+        }
+        mConnectTimeoutMillis = toMillis(connectTimeout, unit);
+        mReadTimeoutMillis = toMillis(readTimeout, unit);
+    }
+
+    private static int toMillis(final long timeout, @NonNull final TimeUnit unit) {
+        if (timeout == 0) {
+            return 0;
+        }
+        // 0 would mean no timeout, so round short ones up
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, unit.toMillis(timeout)));
+    }
+
+    private static void disconnect(@NonNull final URLConnection connection) {
+        if (connection instanceof HttpURLConnection) {
+            ((HttpURLConnection) connection).disconnect();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull final String url, @Nullable final EventListener listener) {
+        return new UrlConnectionCall(url, listener);
+    }
+
+    private final class UrlConnectionCall implements Call {
+
+        @NonNull
+        private final String mUrl;
+
+        @Nullable
+        private final EventListener mListener;
+
+        private volatile URLConnection mConnection;
+
+        private volatile boolean mCanceled;
+
+        UrlConnectionCall(@NonNull final String url, @Nullable final EventListener listener) {
+            mUrl = url;
+            mListener = listener;
+        }
+
+        @NonNull
+        @Override
+        public InputStream execute() throws IOException {
+            if (mCanceled) {
+                throw new InterruptedIOException("Canceled");
+            }
+            final URLConnection connection = new URL(mUrl).openConnection();
+            connection.setRequestProperty("Connection", "keep-alive");
+            // Also turns off the transparent decompression of Android's HttpURLConnection,
+            // which would otherwise hide the encoding from the drain
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            connection.setConnectTimeout(mConnectTimeoutMillis);
+            connection.setReadTimeout(mReadTimeoutMillis);
+            mConnection = connection;
+            if (mCanceled) {
+                disconnect(connection);
+                throw new InterruptedIOException("Canceled");
+            }
+            final EventListener listener = mListener;
+            if (listener != null) {
+                listener.connectStart(System.nanoTime(), mUrl);
+            }
+            connection.connect();
+            if (listener != null) {
+                final long now = System.nanoTime();
+                listener.connectEnd(now);
+                // The request is written when the response is first asked for
+                listener.requestSent(now);
+            }
+            final InputStream response = connection.getInputStream();
+            if (listener != null) {
+                listener.responseFirstByte(System.nanoTime());
+            }
+            final InputStream body = new DrainOnCloseInputStream(response);
+            if (!"gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                return body;
+            }
+            try {
+                return new GZIPInputStream(body, GZIP_BUFFER_SIZE);
+            } catch (IOException e) {
+                body.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+            final URLConnection connection = mConnection;
+            if (connection != null) {
+                disconnect(connection);
+            }
+        }
+
+        private final class DrainOnCloseInputStream extends FilterInputStream {
+
+            /**
+             * Bytes read so far, only counted for the listener
+             */
+            private long mByteCount;
+
+            private boolean mEnded;
+
+            DrainOnCloseInputStream(@NonNull final InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                final int b = in.read();
+                if (mListener != null) {
+                    onRead(b == -1 ? -1 : 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(@NonNull final byte[] b, final int off, final int len)
+                    throws IOException {
+                final int read = in.read(b, off, len);
+                if (mListener != null) {
+                    onRead(read);
+                }
+                return read;
+            }
+
+            private void onRead(final int read) {
+                if (read == -1) {
+                    end();
+                } else {
+                    mByteCount += read;
+                }
+            }
+
+            private void end() {
+                if (!mEnded) {
+                    mEnded = true;
+                    //noinspection ConstantConditions
+                    mListener.responseBodyEnd(System.nanoTime(), mByteCount);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (!mCanceled) {
+                        drain();
+                    }
+                } finally {
+                    super.close();
+                    if (mListener != null) {
+                        end();
+                    }
+                }
+            }
+
+            private void drain() {
+                final byte[] buffer = DRAIN_BUFFER.get();
+                long remaining = MAX_DRAIN_BYTES;
+                try {
+                    while (remaining > 0) {
+                        final int read = read(buffer, 0,
+                                (int) Math.min(buffer.length, remaining));
+                        if (read == -1) {
+                            return;
+                        }
+                        remaining -= read;
+                    }
+                } catch (IOException ignored) {
+                    return;
+                }
+                // Too much left to be worth reading, drop the connection instead
+                disconnect(mConnection);
+            }
+        }
+    }
+}
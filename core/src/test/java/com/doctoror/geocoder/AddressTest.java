@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link Address}
+ */
+public final class AddressTest {
+
+    @Test
+    public void testComponents() throws Throwable {
+        final Address address = new Address();
+        assertNull(address.getRoute());
+
+        address.setTransitStation("Station");
+        address.setStreetAddress("Street");
+        address.setLocality("Kyiv");
+        assertEquals("Station", address.getTransitStation());
+        assertEquals("Street", address.getStreetAddress());
+        assertEquals("Kyiv", address.getLocality());
+        assertNull(address.getWard());
+
+        address.setLocality("Lviv");
+        assertEquals("Lviv", address.getLocality());
+
+        address.setStreetAddress(null);
+        assertNull(address.getStreetAddress());
+        assertEquals("Lviv", address.getLocality());
+        assertEquals("Station", address.getTransitStation());
+
+        address.setLocality(null);
+        address.setTransitStation(null);
+        address.setTransitStation(null);
+        assertNull(address.getLocality());
+        assertNull(address.getTransitStation());
+    }
+
+    @Test
+    public void testAllComponents() throws Throwable {
+        final Address address = new Address();
+        for (final AddressComponent component : AddressComponent.values()) {
+            address.set(component, component.name());
+        }
+        for (final AddressComponent component : AddressComponent.values()) {
+            assertEquals(component.name(), address.get(component));
+        }
+        assertEquals("COUNTRY_CODE", address.getCountryCode());
+        assertEquals("SUB_LOCALITY_LEVEL_3", address.getSubLocalityLevel3());
+    }
+
+    @Test
+    public void testSetComponentsByOrdinal() throws Throwable {
+        final String[] values = new String[AddressComponent.values().length + 1];
+        values[0] = "ignored";
+        values[AddressComponent.ROUTE.ordinal() + 1] = "route";
+        values[AddressComponent.COUNTRY.ordinal() + 1] = "country";
+        final Address address = new Address();
+        address.setLocality("locality");
+        address.setComponents(values, 1);
+        assertEquals("route", address.getRoute());
+        assertEquals("country", address.getCountry());
+        assertNull(address.getLocality());
+        assertEquals(2, address.getComponentValues().length);
+    }
+
+    @Test
+    public void testGeometry() throws Throwable {
+        final Address address = new Address();
+        assertFalse(address.hasLocation());
+        assertNull(address.getLocation());
+        assertTrue(Double.isNaN(address.getLatitude()));
+
+        address.setLocation(new Address.Location(50.45, 30.52));
+        assertTrue(address.hasLocation());
+        assertEquals(50.45, address.getLatitude(), 0);
+        assertEquals(30.52, address.getLocation().longitude, 0);
+
+        address.setViewport(10, 20, 30, 40);
+        final Address.Viewport viewport = address.getViewport();
+        assertEquals(10, viewport.southwest.latitude, 0);
+        assertEquals(40, viewport.northeast.longitude, 0);
+        assertEquals(30, address.getViewportNortheastLatitude(), 0);
+        assertFalse(address.hasBounds());
+        assertNull(address.getBounds());
+
+        address.setLocation(null);
+        address.setViewport(null);
+        assertFalse(address.hasLocation());
+        assertFalse(address.hasViewport());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test {@link Transport} whose calls block in {@link Call#execute()} until they are canceled, and
+ * then fail. Like a blocking socket read, a call ignores interrupts and only returns once
+ * {@link Call#cancel()} is called.
+ */
+final class BlockingTransport implements Transport {
+
+    /**
+     * Counted down by every call that starts executing
+     */
+    final CountDownLatch mStarted;
+
+    /**
+     * Counted down by every call that was canceled
+     */
+    final CountDownLatch mCanceled;
+
+    /**
+     * Counted down by every call that stopped blocking
+     */
+    final CountDownLatch mReleased;
+
+    BlockingTransport(final int calls) {
+        mStarted = new CountDownLatch(calls);
+        mCanceled = new CountDownLatch(calls);
+        mReleased = new CountDownLatch(calls);
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull final String url, @Nullable final EventListener listener) {
+        return new Call() {
+
+            private final CountDownLatch mCancel = new CountDownLatch(1);
+
+            @NonNull
+            @Override
+            public InputStream execute() throws InterruptedIOException {
+                mStarted.countDown();
+                boolean interrupted = false;
+                try {
+                    while (true) {
+                        try {
+                            mCancel.await();
+                            break;
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    mReleased.countDown();
+                }
+                throw new InterruptedIOException("Canceled");
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (mCancel) {
+                    if (mCancel.getCount() != 0) {
+                        mCancel.countDown();
+                        mCanceled.countDown();
+                    }
+                }
+            }
+        };
+    }
+}
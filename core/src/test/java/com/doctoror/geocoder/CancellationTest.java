@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link Cancellation}
+ */
+public final class CancellationTest {
+
+    @Test
+    public void testTimeoutCancelsCall() throws Throwable {
+        final Cancellation cancellation = Cancellation.withTimeout(null,
+                TimeUnit.MILLISECONDS.toNanos(20));
+        final LatchCall call = new LatchCall();
+        cancellation.attach(call);
+        assertTrue(call.mCanceled.await(5, TimeUnit.SECONDS));
+        assertTrue(cancellation.isCanceled());
+        assertTrue(cancellation.isTimedOut());
+        cancellation.close();
+    }
+
+    @Test
+    public void testParentCancelsChild() throws Throwable {
+        final Cancellation parent = new Cancellation();
+        final Cancellation child = Cancellation.withTimeout(parent, TimeUnit.HOURS.toNanos(1));
+        final LatchCall call = new LatchCall();
+        child.attach(call);
+        parent.cancel();
+        assertEquals(0, call.mCanceled.getCount());
+        assertTrue(child.isCanceled());
+        assertFalse(child.isTimedOut());
+        child.close();
+    }
+
+    @Test
+    public void testChildKeepsParentDeadline() throws Throwable {
+        final Cancellation parent = Cancellation.withTimeout(null, TimeUnit.SECONDS.toNanos(1));
+        final Cancellation child = Cancellation.withTimeout(parent, TimeUnit.HOURS.toNanos(1));
+        try {
+            assertTrue(child.remainingNanos() <= TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            child.close();
+            parent.close();
+        }
+    }
+
+    @Test
+    public void testCloseStopsTimeout() throws Throwable {
+        final Cancellation cancellation = Cancellation.withTimeout(null,
+                TimeUnit.MILLISECONDS.toNanos(20));
+        cancellation.close();
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(cancellation.isCanceled());
+    }
+
+    private static final class LatchCall implements Transport.Call {
+
+        final CountDownLatch mCanceled = new CountDownLatch(1);
+
+        @NonNull
+        @Override
+        public InputStream execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled.countDown();
+        }
+    }
+}
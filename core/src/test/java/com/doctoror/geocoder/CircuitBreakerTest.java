@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link CircuitBreaker}
+ */
+public final class CircuitBreakerTest {
+
+    @Test
+    public void testOpensOnFailureRate() throws Throwable {
+        final CircuitBreaker breaker = new CircuitBreaker(4, 4, 50, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(acquire(breaker));
+        }
+        breaker.onFailure(acquire(breaker));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The first success slides out of the window
+        breaker.onFailure(acquire(breaker));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenTrial() throws Throwable {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 1, 100, 0, TimeUnit.NANOSECONDS);
+        breaker.onFailure(acquire(breaker));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        final long trial = acquire(breaker);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        breaker.onIgnore(trial);
+
+        breaker.onFailure(acquire(breaker));
+        breaker.onSuccess(acquire(breaker));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        acquire(breaker);
+        acquire(breaker);
+    }
+
+    @Test
+    public void testIgnoresStaleOutcomes() throws Throwable {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 1, 100, 0, TimeUnit.NANOSECONDS);
+        final long slow = acquire(breaker);
+        breaker.onFailure(acquire(breaker));
+
+        // A request admitted before the breaker opened neither closes it nor frees the trial
+        final long trial = acquire(breaker);
+        breaker.onSuccess(slow);
+        breaker.onIgnore(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onSuccess(trial);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static long acquire(final CircuitBreaker breaker) {
+        final long tag = breaker.tryAcquire();
+        assertTrue(tag != CircuitBreaker.REJECTED);
+        return tag;
+    }
+}
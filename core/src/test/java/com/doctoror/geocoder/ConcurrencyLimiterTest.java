@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link ConcurrencyLimiter}
+ */
+public final class ConcurrencyLimiterTest {
+
+    @Test
+    public void testOverloadHalvesLimit() throws Throwable {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 16);
+        limiter.onOverload(limiter.acquire(null));
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.onOverload(limiter.acquire(null));
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testOverloadBurstDecreasesOnce() throws Throwable {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, 1, 16);
+        final long[] tags = new long[8];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = limiter.acquire(null);
+        }
+        for (final long tag : tags) {
+            limiter.onOverload(tag);
+        }
+        assertEquals(8, limiter.getLimit());
+
+        // A request started after the decrease may decrease it again
+        limiter.onOverload(limiter.acquire(null));
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testGrowsWhileHealthy() throws Throwable {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 4);
+        for (int i = 0; i < 100; i++) {
+            final long a = limiter.acquire(null);
+            final long b = limiter.acquire(null);
+            limiter.onSuccess(a, 1000);
+            limiter.onSuccess(b, 1000);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testSlowResponseShrinksLimit() throws Throwable {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 10);
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess(limiter.acquire(null), 1000);
+        }
+        assertEquals(10, limiter.getLimit());
+        limiter.onSuccess(limiter.acquire(null), 10000);
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testCanceledWhileWaiting() throws Throwable {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        limiter.acquire(null);
+        final Cancellation cancellation = new Cancellation();
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                cancellation.cancel();
+            }
+        });
+        thread.start();
+        try {
+            limiter.acquire(cancellation);
+            fail("Acquired over the limit");
+        } catch (InterruptedIOException expected) {
+        }
+        thread.join();
+        assertEquals(1, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link DiskGeocoderCache}
+ */
+public final class DiskGeocoderCacheTest {
+
+    @Test
+    public void testSurvivesReopen() throws Throwable {
+        final File dir = newDirectory();
+        DiskGeocoderCache cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        cache.put("a", 1, Collections.singletonList(address("Kyiv", 50.45, 30.52)));
+        cache.close();
+
+        cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        final List<Address> result = cache.get("a", 1);
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals("Kyiv", result.get(0).getFormattedAddress());
+        assertEquals(50.45, result.get(0).getLocation().latitude, 0);
+        assertEquals(30.52, result.get(0).getLocation().longitude, 0);
+        assertNull(result.get(0).getRoute());
+        cache.close();
+    }
+
+    @Test
+    public void testExpiredServedOnlyWhenAllowed() throws Throwable {
+        final DiskGeocoderCache cache = new DiskGeocoderCache(newDirectory(), 1024 * 1024, 1,
+                TimeUnit.MILLISECONDS);
+        cache.put("a", 1, Collections.singletonList(address("Kyiv", 50.45, 30.52)));
+        cache.flush();
+        TimeUnit.MILLISECONDS.sleep(10);
+        assertNull(cache.get("a", 1));
+        final List<Address> stale = cache.get("a", 1, true);
+        assertNotNull(stale);
+        assertEquals("Kyiv", stale.get(0).getFormattedAddress());
+        cache.close();
+    }
+
+    @Test
+    public void testRecoversFromTornWrite() throws Throwable {
+        final File dir = newDirectory();
+        DiskGeocoderCache cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        cache.put("a", 1, Collections.singletonList(address("first", 1, 1)));
+        cache.put("b", 1, Collections.singletonList(address("second", 2, 2)));
+        cache.flush();
+        final long size = cache.size();
+        cache.close();
+
+        // Cut the second record in half, as if the process died while writing it
+        final RandomAccessFile file = new RandomAccessFile(new File(dir, "geocoder.log"), "rw");
+        file.setLength(size - 10);
+        file.close();
+
+        cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+
+        cache.put("c", 1, Collections.singletonList(address("third", 3, 3)));
+        cache.close();
+        cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        assertNotNull(cache.get("a", 1));
+        assertNotNull(cache.get("c", 1));
+        cache.close();
+    }
+
+    @Test
+    public void testSizeCap() throws Throwable {
+        final File dir = newDirectory();
+        final DiskGeocoderCache cache = new DiskGeocoderCache(dir, 4096, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, 1, Collections.singletonList(address("address " + i, i, i)));
+            cache.flush();
+            assertTrue(cache.size() <= 4096);
+        }
+        // The newest entries are kept
+        assertNotNull(cache.get("key199", 1));
+        assertNull(cache.get("key0", 1));
+        cache.close();
+    }
+
+    @Test
+    public void testDiscardsOtherFormatVersion() throws Throwable {
+        final File dir = newDirectory();
+        DiskGeocoderCache cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        cache.put("a", 1, Collections.singletonList(address("Kyiv", 50.45, 30.52)));
+        cache.close();
+
+        // The magic of the first format version, before it was tied to the address layout
+        final RandomAccessFile file = new RandomAccessFile(new File(dir, "geocoder.log"), "rw");
+        file.writeInt(0x47454f31);
+        file.close();
+
+        cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        assertNull(cache.get("a", 1));
+        assertEquals(0, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void testClear() throws Throwable {
+        final File dir = newDirectory();
+        DiskGeocoderCache cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        cache.put("a", 1, Collections.singletonList(address("Kyiv", 50.45, 30.52)));
+        cache.flush();
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a", 1));
+
+        cache.put("b", 1, Collections.singletonList(address("Lviv", 49.84, 24.03)));
+        cache.close();
+        cache = new DiskGeocoderCache(dir, 1024 * 1024, 0, TimeUnit.SECONDS);
+        assertNull(cache.get("a", 1));
+        assertNotNull(cache.get("b", 1));
+        cache.close();
+    }
+
+    @Test
+    public void testDirectoryIsLocked() throws Throwable {
+        final File dir = newDirectory();
+        final DiskGeocoderCache cache = new DiskGeocoderCache(dir, 1024, 0, TimeUnit.SECONDS);
+        try {
+            new DiskGeocoderCache(dir, 1024, 0, TimeUnit.SECONDS);
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+        cache.close();
+        // Released on close
+        new DiskGeocoderCache(dir, 1024, 0, TimeUnit.SECONDS).close();
+    }
+
+    private static Address address(final String formattedAddress, final double lat,
+            final double lng) {
+        final Address address = new Address();
+        address.setFormattedAddress(formattedAddress);
+        address.setLocation(new Address.Location(lat, lng));
+        return address;
+    }
+
+    private static File newDirectory() throws IOException {
+        final File dir = File.createTempFile("geocoder", "cache");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Can not create " + dir);
+        }
+        dir.deleteOnExit();
+        return dir;
+    }
+}
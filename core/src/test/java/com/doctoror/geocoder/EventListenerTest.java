@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link EventListener} events sent by {@link GeocoderEngine}
+ */
+public final class EventListenerTest {
+
+    @Test
+    public void testQueryPhases() throws Throwable {
+        final RecordingFactory factory = new RecordingFactory();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new FixedTransport(FixedTransport.OK_RESPONSE));
+        engine.setCache(new GeocoderCache(16, 1024 * 1024, 1, TimeUnit.HOURS));
+        engine.setEventListenerFactory(factory);
+
+        assertEquals(2, engine.getFromLocationName("x", 5, false).size());
+        assertEquals(Arrays.asList("queryStart", "cacheLookupStart", "cacheLookupEnd false",
+                "parseStart", "parseEnd 2", "responseBodyEnd", "queryEnd 2"),
+                factory.mListeners.get(0).mEvents);
+
+        engine.getFromLocationName("x", 5, false);
+        assertEquals(Arrays.asList("queryStart", "cacheLookupStart", "cacheLookupEnd true",
+                "queryEnd 2"), factory.mListeners.get(1).mEvents);
+    }
+
+    @Test
+    public void testRetryAndFailure() throws Throwable {
+        final RecordingFactory factory = new RecordingFactory();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new FixedTransport(FixedTransport.OVER_QUERY_LIMIT_RESPONSE));
+        engine.setRetryPolicy(new RetryPolicy(2, 1, 1, 1, 1, TimeUnit.MILLISECONDS));
+        engine.setEventListenerFactory(factory);
+
+        try {
+            engine.getFromLocation(1.0, 2.0, 5, false);
+            fail("GeocoderException expected");
+        } catch (GeocoderException e) {
+            assertEquals(Status.OVER_QUERY_LIMIT, e.getStatus());
+        }
+        assertEquals(Arrays.asList("queryStart", "parseStart", "responseBodyEnd", "retry 1",
+                "parseStart", "responseBodyEnd", "queryFailed OVER_QUERY_LIMIT"),
+                factory.mListeners.get(0).mEvents);
+    }
+
+    @Test
+    public void testTimestampsAreOrdered() throws Throwable {
+        final List<Long> timestamps = new ArrayList<>();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new FixedTransport(FixedTransport.OK_RESPONSE));
+        engine.setEventListenerFactory(new EventListener.Factory() {
+
+            @NonNull
+            @Override
+            public EventListener create() {
+                return new EventListener() {
+
+                    @Override
+                    public void queryStart(final long nanoTime) {
+                        timestamps.add(nanoTime);
+                    }
+
+                    @Override
+                    public void parseStart(final long nanoTime) {
+                        timestamps.add(nanoTime);
+                    }
+
+                    @Override
+                    public void parseEnd(final long nanoTime, final int resultCount) {
+                        timestamps.add(nanoTime);
+                    }
+
+                    @Override
+                    public void queryEnd(final long nanoTime, final int resultCount) {
+                        timestamps.add(nanoTime);
+                    }
+                };
+            }
+        });
+        engine.getFromLocation(1.0, 2.0, 5, false);
+        assertEquals(4, timestamps.size());
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i) >= timestamps.get(i - 1));
+        }
+    }
+
+    private static final class RecordingFactory implements EventListener.Factory {
+
+        final List<RecordingListener> mListeners = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public EventListener create() {
+            final RecordingListener listener = new RecordingListener();
+            mListeners.add(listener);
+            return listener;
+        }
+    }
+
+    private static final class RecordingListener extends EventListener {
+
+        final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void queryStart(final long nanoTime) {
+            mEvents.add("queryStart");
+        }
+
+        @Override
+        public void queryEnd(final long nanoTime, final int resultCount) {
+            mEvents.add("queryEnd " + resultCount);
+        }
+
+        @Override
+        public void queryFailed(final long nanoTime, @NonNull final GeocoderException e) {
+            mEvents.add("queryFailed " + e.getStatus());
+        }
+
+        @Override
+        public void cacheLookupStart(final long nanoTime) {
+            mEvents.add("cacheLookupStart");
+        }
+
+        @Override
+        public void cacheLookupEnd(final long nanoTime, final boolean hit) {
+            mEvents.add("cacheLookupEnd " + hit);
+        }
+
+        @Override
+        public void responseBodyEnd(final long nanoTime, final long byteCount) {
+            mEvents.add("responseBodyEnd");
+        }
+
+        @Override
+        public void parseStart(final long nanoTime) {
+            mEvents.add("parseStart");
+        }
+
+        @Override
+        public void parseEnd(final long nanoTime, final int resultCount) {
+            mEvents.add("parseEnd " + resultCount);
+        }
+
+        @Override
+        public void retry(final long nanoTime, final int attempt,
+                @NonNull final GeocoderException cause, final long delayNanos) {
+            mEvents.add("retry " + attempt);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test {@link Transport} that returns the same response to every call and reports the end of its
+ * body, or fails every call if the response is null. Counts the calls it made.
+ */
+class FixedTransport implements Transport {
+
+    static final String OK_RESPONSE = "{\"results\":[{\"formatted_address\":\"a\"},"
+            + "{\"formatted_address\":\"b\"}],\"status\":\"OK\"}";
+
+    static final String ZERO_RESULTS_RESPONSE = "{\"results\":[],\"status\":\"ZERO_RESULTS\"}";
+
+    static final String OVER_QUERY_LIMIT_RESPONSE
+            = "{\"results\":[],\"status\":\"OVER_QUERY_LIMIT\"}";
+
+    private final AtomicInteger mCalls = new AtomicInteger();
+
+    @Nullable
+    private volatile byte[] mResponse;
+
+    FixedTransport(@Nullable final String response) {
+        setResponse(response);
+    }
+
+    /**
+     * Sets the response to return from now on, or null to fail the calls
+     */
+    final void setResponse(@Nullable final String response) {
+        mResponse = response != null ? response.getBytes(Charset.forName("UTF-8")) : null;
+    }
+
+    /**
+     * Returns the number of calls executed so far
+     */
+    final int getCallCount() {
+        return mCalls.get();
+    }
+
+    /**
+     * Returns the body for the URL. Overridden to block or to answer URLs differently.
+     *
+     * @param response the response set when the call was executed
+     */
+    @NonNull
+    InputStream open(@NonNull final String url, @Nullable final byte[] response)
+            throws IOException {
+        if (response == null) {
+            throw new IOException("Connection refused");
+        }
+        return new ByteArrayInputStream(response);
+    }
+
+    @NonNull
+    @Override
+    public final Call newCall(@NonNull final String url, @Nullable final EventListener listener) {
+        return new Call() {
+
+            @NonNull
+            @Override
+            public InputStream execute() throws IOException {
+                mCalls.incrementAndGet();
+                final byte[] response = mResponse;
+                return new FilterInputStream(open(url, response)) {
+
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        if (listener != null && response != null) {
+                            listener.responseBodyEnd(System.nanoTime(), response.length);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link GeocoderCache}
+ */
+public final class GeocoderCacheTest {
+
+    @Test
+    public void testKeyNormalization() throws Throwable {
+        assertEquals(GeocoderCache.key("Mountain View, CA", "en", "key", true),
+                GeocoderCache.key("  mountain   view,\tca ", "en", "key", true));
+        assertFalse(GeocoderCache.key("Mountain View", "en", "key", true)
+                .equals(GeocoderCache.key("Mountain View", "de", "key", true)));
+        assertFalse(GeocoderCache.key("Mountain View", "en", "key", true)
+                .equals(GeocoderCache.key("Mountain View", "en", "other", true)));
+        assertFalse(GeocoderCache.key("Mountain View", "en", "key", true)
+                .equals(GeocoderCache.key("Mountain View", "en", "key", false)));
+    }
+
+    @Test
+    public void testCacheScope() throws Throwable {
+        final String scope = GeocoderEngine.cacheScope("https://a/json", "secret");
+        assertEquals(scope, GeocoderEngine.cacheScope("https://a/json", "secret"));
+        assertFalse(scope.contains("secret"));
+        assertFalse(scope.equals(GeocoderEngine.cacheScope("https://b/json", "secret")));
+        assertFalse(scope.equals(GeocoderEngine.cacheScope("https://a/json", "other")));
+        assertFalse(scope.equals(GeocoderEngine.cacheScope("https://a/json", null)));
+    }
+
+    @Test
+    public void testMaxResults() throws Throwable {
+        final GeocoderCache cache = new GeocoderCache(10, 100, 0, TimeUnit.SECONDS);
+        cache.put("full", 2, addresses(2));
+        assertEquals(1, cache.get("full", 1).size());
+        assertEquals(2, cache.get("full", 2).size());
+        // Might have had more results
+        assertNull(cache.get("full", 3));
+
+        cache.put("partial", 5, addresses(2));
+        assertEquals(2, cache.get("partial", 10).size());
+    }
+
+    @Test
+    public void testEviction() throws Throwable {
+        final GeocoderCache cache = new GeocoderCache(2, 100, 0, TimeUnit.SECONDS);
+        cache.put("a", 1, addresses(1));
+        cache.put("b", 1, addresses(1));
+        assertNotNull(cache.get("a", 1));
+        cache.put("c", 1, addresses(1));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+    }
+
+    @Test
+    public void testWeightEviction() throws Throwable {
+        final GeocoderCache cache = new GeocoderCache(10, 6, 0, TimeUnit.SECONDS);
+        cache.put("a", 5, addresses(2));
+        cache.put("b", 5, addresses(2));
+        cache.put("c", 5, addresses(2));
+        assertNull(cache.get("a", 5));
+        assertNotNull(cache.get("c", 5));
+    }
+
+    @Test
+    public void testExpiration() throws Throwable {
+        final GeocoderCache cache = new GeocoderCache(10, 100, 1, TimeUnit.NANOSECONDS);
+        cache.put("a", 1, addresses(1));
+        Thread.sleep(1);
+        assertNull(cache.get("a", 1));
+    }
+
+    private static List<Address> addresses(final int count) {
+        final List<Address> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            addresses.add(new Address());
+        }
+        return addresses;
+    }
+}
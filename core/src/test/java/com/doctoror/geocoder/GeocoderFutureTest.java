@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link GeocoderFuture} returned by the asynchronous {@link GeocoderEngine} queries
+ */
+public final class GeocoderFutureTest {
+
+    @Test
+    public void testCancelAbortsCall() throws Throwable {
+        final BlockingTransport transport = new BlockingTransport(1);
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(transport);
+        final RecordingCallback callback = new RecordingCallback();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GeocoderFuture future = engine.getFromLocationAsync(1.0, 2.0, 5, false,
+                    executor, callback);
+            assertTrue(transport.mStarted.await(5, TimeUnit.SECONDS));
+
+            assertTrue(future.cancel(true));
+            assertTrue(transport.mCanceled.await(5, TimeUnit.SECONDS));
+            assertTrue(transport.mReleased.await(5, TimeUnit.SECONDS));
+
+            // The worker is free for the next task once the query is over
+            assertTrue(executor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                }
+            }, Boolean.TRUE).get(5, TimeUnit.SECONDS));
+            assertEquals(0, callback.mCalls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallbacks() throws Throwable {
+        final FixedTransport transport = new FixedTransport(FixedTransport.OK_RESPONSE);
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(transport);
+        engine.setRetryPolicy(new RetryPolicy(1, 1, 1, 1, 1, TimeUnit.MILLISECONDS));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final RecordingCallback success = new RecordingCallback();
+            final GeocoderFuture future = engine.getFromLocationAsync(1.0, 2.0, 5, false,
+                    executor, success);
+            assertEquals(2, future.get(5, TimeUnit.SECONDS).size());
+            assertTrue(success.mDone.await(5, TimeUnit.SECONDS));
+            assertEquals(2, success.mAddresses.get().size());
+            assertNull(success.mException.get());
+
+            transport.setResponse(FixedTransport.OVER_QUERY_LIMIT_RESPONSE);
+            final RecordingCallback failure = new RecordingCallback();
+            final GeocoderFuture failed = engine.getFromLocationNameAsync("x", 5, false,
+                    executor, failure);
+            try {
+                failed.get(5, TimeUnit.SECONDS);
+                fail("ExecutionException expected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof GeocoderException);
+            }
+            assertTrue(failure.mDone.await(5, TimeUnit.SECONDS));
+            assertNull(failure.mAddresses.get());
+            assertEquals(Status.OVER_QUERY_LIMIT, failure.mException.get().getStatus());
+            assertEquals(1, failure.mCalls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class RecordingCallback implements GeocoderFuture.Callback {
+
+        final AtomicInteger mCalls = new AtomicInteger();
+
+        final AtomicReference<List<Address>> mAddresses = new AtomicReference<>();
+
+        final AtomicReference<GeocoderException> mException = new AtomicReference<>();
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess(@NonNull final List<Address> addresses) {
+            mCalls.incrementAndGet();
+            mAddresses.set(addresses);
+            mDone.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull final GeocoderException e) {
+            mCalls.incrementAndGet();
+            mException.set(e);
+            mDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link GeocoderMetrics} and {@link LatencySnapshot}
+ */
+public final class GeocoderMetricsTest {
+
+    @Test
+    public void testPercentiles() throws Throwable {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        final LatencySnapshot snapshot = histogram.snapshot(false);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500500), snapshot.getMeanNanos());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getPercentileNanos(50));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getPercentileNanos(99));
+        assertEquals(snapshot.getMaxNanos(), snapshot.getPercentileNanos(100));
+
+        long count = 0;
+        for (int i = 0; i < snapshot.getBucketCount(); i++) {
+            if (i != 0) {
+                assertTrue(snapshot.getBucketUpperBoundNanos(i)
+                        > snapshot.getBucketUpperBoundNanos(i - 1));
+            }
+            count += snapshot.getBucketValueCount(i);
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test
+    public void testBucketBounds() throws Throwable {
+        long previous = 0;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS - 1; bucket++) {
+            final long upper = LatencyHistogram.upperBoundMicros(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(previous));
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper - 1));
+            assertTrue(upper - previous <= Math.max(1, previous / 32));
+            previous = upper;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSnapshotAndReset() throws Throwable {
+        final GeocoderMetrics metrics = new GeocoderMetrics();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new FixedTransport(FixedTransport.OK_RESPONSE));
+        engine.setMetrics(metrics);
+
+        engine.getFromLocation(1.0, 2.0, 5, false);
+        engine.getFromLocation(1.0, 2.0, 5, false);
+        assertEquals(2, metrics.snapshot().getLatency(GeocoderMetrics.Operation.REVERSE,
+                Status.OK).getCount());
+
+        final GeocoderMetrics.Snapshot snapshot = metrics.snapshotAndReset();
+        assertEquals(2, snapshot.getLatency(GeocoderMetrics.Operation.REVERSE).getCount());
+        assertEquals(4, snapshot.getResultsParsed());
+
+        final GeocoderMetrics.Snapshot empty = metrics.snapshot();
+        assertEquals(0, empty.getLatency(GeocoderMetrics.Operation.REVERSE).getCount());
+        assertEquals(0, empty.getResultsParsed());
+        assertEquals(0, empty.getBytesDownloaded());
+    }
+
+    @Test
+    public void testOutcomesAndCounters() throws Throwable {
+        final GeocoderMetrics metrics = new GeocoderMetrics();
+        final FixedTransport transport = new FixedTransport(FixedTransport.OK_RESPONSE);
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(transport);
+        engine.setCache(new GeocoderCache(16, 1024 * 1024, 1, TimeUnit.HOURS));
+        engine.setRetryPolicy(new RetryPolicy(2, 1, 1, 1, 1, TimeUnit.MILLISECONDS));
+        engine.setMetrics(metrics);
+
+        engine.getFromLocationName("x", 5, false);
+        engine.getFromLocationName("x", 5, false);
+
+        transport.setResponse(FixedTransport.ZERO_RESULTS_RESPONSE);
+        engine.getFromLocationName("y", 5, false);
+
+        transport.setResponse(FixedTransport.OVER_QUERY_LIMIT_RESPONSE);
+        try {
+            engine.getFromLocationName("z", 5, false);
+            fail("GeocoderException expected");
+        } catch (GeocoderException e) {
+            assertEquals(Status.OVER_QUERY_LIMIT, e.getStatus());
+        }
+
+        transport.setResponse(null);
+        try {
+            engine.getFromLocationName("w", 5, false);
+            fail("GeocoderException expected");
+        } catch (GeocoderException e) {
+            assertNull(e.getStatus());
+        }
+
+        final GeocoderMetrics.Snapshot snapshot = metrics.snapshot();
+        final GeocoderMetrics.Operation forward = GeocoderMetrics.Operation.FORWARD;
+        assertEquals(2, snapshot.getLatency(forward, Status.OK).getCount());
+        assertEquals(1, snapshot.getLatency(forward, Status.ZERO_RESULTS).getCount());
+        assertEquals(1, snapshot.getLatency(forward, Status.OVER_QUERY_LIMIT).getCount());
+        assertEquals(1, snapshot.getLatency(forward, null).getCount());
+        assertEquals(5, snapshot.getLatency(forward).getCount());
+        assertEquals(0, snapshot.getLatency(GeocoderMetrics.Operation.REVERSE).getCount());
+
+        assertEquals(1, snapshot.getCacheHits());
+        assertEquals(4, snapshot.getCacheMisses());
+        assertEquals(1, snapshot.getRetries());
+        assertEquals(2, snapshot.getResultsParsed());
+        assertEquals(FixedTransport.OK_RESPONSE.length()
+                + FixedTransport.ZERO_RESULTS_RESPONSE.length()
+                + 2 * FixedTransport.OVER_QUERY_LIMIT_RESPONSE.length(),
+                snapshot.getBytesDownloaded());
+    }
+
+    @Test
+    public void testStaleCacheHitCountsOneMiss() throws Throwable {
+        final File dir = File.createTempFile("geocoder", "cache");
+        assertTrue(dir.delete() && dir.mkdir());
+        dir.deleteOnExit();
+        final DiskGeocoderCache diskCache = new DiskGeocoderCache(dir, 1024 * 1024, 1,
+                TimeUnit.MILLISECONDS);
+        try {
+            final GeocoderMetrics metrics = new GeocoderMetrics();
+            final FixedTransport transport = new FixedTransport(FixedTransport.OK_RESPONSE);
+            final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+            engine.setTransport(transport);
+            engine.setCache(new GeocoderCache(16, 1024 * 1024, 1, TimeUnit.MILLISECONDS));
+            engine.setDiskCache(diskCache);
+            engine.setCircuitBreaker(new CircuitBreaker(1, 1, 100, 1, TimeUnit.HOURS));
+            engine.setRetryPolicy(new RetryPolicy(1, 1, 1, 1, 1, TimeUnit.MILLISECONDS));
+            engine.setMetrics(metrics);
+
+            assertEquals(2, engine.getFromLocationName("x", 5, false).size());
+            diskCache.flush();
+            TimeUnit.MILLISECONDS.sleep(20);
+
+            // Opens the circuit
+            transport.setResponse(null);
+            try {
+                engine.getFromLocationName("y", 5, false);
+                fail("GeocoderException expected");
+            } catch (GeocoderException e) {
+                assertTrue(e.isCausedByNetworkError());
+            }
+
+            // Expired in both caches, answered from the disk cache while the circuit is open
+            assertEquals(2, engine.getFromLocationName("x", 5, false).size());
+
+            final GeocoderMetrics.Snapshot snapshot = metrics.snapshot();
+            assertEquals(0, snapshot.getCacheHits());
+            assertEquals(3, snapshot.getCacheMisses());
+            assertEquals(1, snapshot.getStaleCacheHits());
+            assertEquals(2, transport.getCallCount());
+        } finally {
+            diskCache.close();
+        }
+    }
+
+    @Test
+    public void testCoalescedQueries() throws Throwable {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch coalesced = new CountDownLatch(1);
+        final GeocoderMetrics metrics = new GeocoderMetrics();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new FixedTransport(FixedTransport.OK_RESPONSE) {
+
+            @NonNull
+            @Override
+            InputStream open(@NonNull final String url, @Nullable final byte[] response)
+                    throws IOException {
+                started.countDown();
+                try {
+                    coalesced.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return super.open(url, response);
+            }
+        });
+        engine.setEventListenerFactory(new EventListener.Factory() {
+
+            @NonNull
+            @Override
+            public EventListener create() {
+                return new EventListener() {
+
+                    @Override
+                    public void coalesced(final long nanoTime) {
+                        coalesced.countDown();
+                    }
+                };
+            }
+        });
+        engine.setMetrics(metrics);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<Address>> leader = executor.submit(
+                    new Callable<List<Address>>() {
+
+                        @Override
+                        public List<Address> call() throws Exception {
+                            return engine.getFromLocation(1.0, 2.0, 5, false);
+                        }
+                    });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(2, engine.getFromLocation(1.0, 2.0, 5, false).size());
+            assertEquals(2, leader.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final GeocoderMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getCoalescedQueries());
+        assertEquals(2, snapshot.getLatency(GeocoderMetrics.Operation.REVERSE, Status.OK)
+                .getCount());
+        assertEquals(2, snapshot.getResultsParsed());
+    }
+
+    private static void assertWithin(final long expectedNanos, final long actualNanos) {
+        assertTrue(actualNanos + " < " + expectedNanos, actualNanos >= expectedNanos);
+        assertTrue(actualNanos + " > " + expectedNanos, actualNanos <= expectedNanos * 1.04);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link HedgePolicy}
+ */
+public final class HedgePolicyTest {
+
+    @Test
+    public void testNoHedgeWithoutSamples() throws Throwable {
+        final HedgePolicy policy = new HedgePolicy(90, 100, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 19; i++) {
+            policy.onResponse(1000);
+        }
+        assertEquals(-1, policy.onQuery());
+        policy.onResponse(1000);
+        assertEquals(1000, policy.onQuery());
+    }
+
+    @Test
+    public void testPercentileDelay() throws Throwable {
+        final HedgePolicy policy = new HedgePolicy(90, 100, 0, TimeUnit.MILLISECONDS);
+        for (int i = 1; i <= 100; i++) {
+            policy.onResponse(i);
+        }
+        final long delay = policy.onQuery();
+        assertTrue("delay == " + delay, delay >= 85 && delay <= 95);
+
+        final HedgePolicy floored = new HedgePolicy(90, 100, 1, TimeUnit.SECONDS);
+        for (int i = 1; i <= 100; i++) {
+            floored.onResponse(i);
+        }
+        assertEquals(TimeUnit.SECONDS.toNanos(1), floored.onQuery());
+    }
+
+    @Test
+    public void testBudget() throws Throwable {
+        final HedgePolicy policy = new HedgePolicy(90, 10, 0, TimeUnit.MILLISECONDS);
+        assertFalse(policy.tryAcquireHedge());
+        for (int i = 0; i < 10; i++) {
+            policy.onQuery();
+        }
+        assertTrue(policy.tryAcquireHedge());
+        assertFalse(policy.tryAcquireHedge());
+    }
+
+    @Test
+    public void testHedgeNotRunOnTimerThread() throws Throwable {
+        final HedgePolicy policy = new HedgePolicy(90, 100, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            policy.onResponse(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        final AtomicInteger calls = new AtomicInteger();
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(new Transport() {
+
+            @NonNull
+            @Override
+            public Call newCall(@NonNull final String url,
+                    @Nullable final EventListener listener) {
+                calls.incrementAndGet();
+                return new Call() {
+
+                    @NonNull
+                    @Override
+                    public InputStream execute() throws IOException {
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return new ByteArrayInputStream(("{\"results\":[],"
+                                + "\"status\":\"ZERO_RESULTS\"}").getBytes(
+                                Charset.forName("UTF-8")));
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                };
+            }
+        });
+        engine.setHedging(policy, new Executor() {
+
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                command.run();
+            }
+        });
+
+        assertTrue(engine.getFromLocation(1.0, 2.0, 5, false).isEmpty());
+        assertEquals(1, calls.get());
+    }
+}
@@ -16,11 +16,11 @@
 
 package com.doctoror.geocoder;
 
-import org.json.JSONException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayInputStream;
 import java.nio.charset.Charset;
 import java.util.List;
 
@@ -34,21 +34,21 @@ public final class ParserTest {
     @Rule
     public final ExpectedException mException = ExpectedException.none();
 
-    //@Test
+    @Test
     public void testEmptyString() throws Throwable {
         final byte[] data = "".getBytes(Charset.forName("UTF-8"));
         mException.expect(GeocoderException.class);
         Parser.parseJson(data, 20, true);
     }
 
-    //@Test
+    @Test
     public void testEmptyObject() throws Throwable {
         final byte[] data = "{}".getBytes(Charset.forName("UTF-8"));
         mException.expect(GeocoderException.class);
         Parser.parseJson(data, 20, true);
     }
 
-    //@Test
+    @Test
     public void testEmptyResults() throws Throwable {
         final byte[] data = "{\"status\" : \"OK\",\"results\" : []}"
                 .getBytes(Charset.forName("UTF-8"));
@@ -57,7 +57,74 @@ public final class ParserTest {
         assertEquals(0, result.size());
     }
 
-    //@Test
+    @Test
+    public void testErrorStatus() throws Throwable {
+        final byte[] data = "{\"results\" : [],\"error_message\" : \"denied\",\"status\" : \"REQUEST_DENIED\"}"
+                .getBytes(Charset.forName("UTF-8"));
+        try {
+            Parser.parseJson(data, 20, true);
+            fail("GeocoderException expected");
+        } catch (GeocoderException e) {
+            assertEquals(Status.REQUEST_DENIED, e.getStatus());
+            assertEquals("denied", e.getErrorMessage());
+            assertFalse(e.isCausedByNetworkError());
+        }
+    }
+
+    @Test
+    public void testMaxResultsFromStream() throws Throwable {
+        final byte[] data = ("{\"results\":[{\"formatted_address\":\"Stra\u00dfe 1, K\u00f6ln\","
+                + "\"geometry\":{\"location\":{\"lat\":50.9375,\"lng\":6.9603}}},"
+                + "{\"formatted_address\":\"second\"}],\"status\":\"OK\"}")
+                .getBytes(Charset.forName("UTF-8"));
+        final List<Address> result = Parser.parseJson(new ByteArrayInputStream(data), 1, false);
+        assertEquals(1, result.size());
+        assertEquals("Stra\u00dfe 1, K\u00f6ln", result.get(0).getFormattedAddress());
+        assertEquals(50.9375, result.get(0).getLocation().latitude, 0);
+        assertEquals(6.9603, result.get(0).getLocation().longitude, 0);
+    }
+
+    @Test
+    public void testStopsReadingAfterMaxResults() throws Throwable {
+        // Everything after the first result is truncated and would fail to parse if read
+        final byte[] data = ("{\"status\":\"OK\",\"results\":[{\"formatted_address\":"
+                + "\"first\"},{\"formatted_addr").getBytes(Charset.forName("UTF-8"));
+        final List<Address> result = Parser.parseJson(new ByteArrayInputStream(data), 1, false);
+        assertEquals(1, result.size());
+        assertEquals("first", result.get(0).getFormattedAddress());
+    }
+
+    @Test
+    public void testReadsStatusAfterMaxResults() throws Throwable {
+        final byte[] data = ("{\"results\":[{\"formatted_address\":\"first\"},"
+                + "{\"formatted_address\":\"second\"}],\"status\":\"REQUEST_DENIED\"}")
+                .getBytes(Charset.forName("UTF-8"));
+        try {
+            Parser.parseJson(new ByteArrayInputStream(data), 1, false);
+            fail("GeocoderException expected");
+        } catch (GeocoderException e) {
+            assertEquals(Status.REQUEST_DENIED, e.getStatus());
+        }
+    }
+
+    @Test
+    public void testZeroMaxResultsStillValidatesStatus() throws Throwable {
+        final byte[] data = "{\"results\":[{\"formatted_address\":\"first\"}],\"status\":\"OK\"}"
+                .getBytes(Charset.forName("UTF-8"));
+        assertEquals(0, Parser.parseJson(data, 0, false).size());
+    }
+
+    @Test
+    public void testNeighborhoodIsNotPremise() throws Throwable {
+        final byte[] data = ("{\"results\":[{\"address_components\":[{\"long_name\":"
+                + "\"Downtown\",\"types\":[\"neighborhood\",\"political\"]}]}],"
+                + "\"status\":\"OK\"}").getBytes(Charset.forName("UTF-8"));
+        final Address address = Parser.parseJson(data, 20, true).get(0);
+        assertEquals("Downtown", address.getNeighborhood());
+        assertNull(address.getPremise());
+    }
+
+    @Test
     public void testAllComponents() throws Throwable {
         final byte[] data
                 = "{\"status\" : \"OK\",\"results\":[{\"address_components\":[{\"long_name\":\"street_number\",\"types\":[\"street_number\"]},{\"long_name\":\"street_address\",\"types\":[\"street_address\"]},{\"long_name\":\"route\",\"types\":[\"route\"]},{\"long_name\":\"intersection\",\"types\":[\"intersection\"]},{\"long_name\":\"political\",\"types\":[\"political\"]},{\"long_name\":\"country\",\"types\":[\"country\"]},{\"long_name\":\"colloquial_area\",\"types\":[\"colloquial_area\"]},{\"long_name\":\"locality\",\"types\":[\"locality\"]},{\"long_name\":\"ward\",\"types\":[\"ward\"]},{\"long_name\":\"administrative_area_level_5\",\"short_name\":\"administrative_area_level_5\",\"types\":[\"administrative_area_level_5\"]},{\"long_name\":\"administrative_area_level_4\",\"short_name\":\"administrative_area_level_4\",\"types\":[\"administrative_area_level_4\"]},{\"long_name\":\"administrative_area_level_3\",\"short_name\":\"administrative_area_level_3\",\"types\":[\"administrative_area_level_3\"]},{\"long_name\":\"administrative_area_level_2\",\"short_name\":\"administrative_area_level_2\",\"types\":[\"administrative_area_level_2\"]},{\"long_name\":\"administrative_area_level_1\",\"short_name\":\"administrative_area_level_1\",\"types\":[\"administrative_area_level_1\"]},{\"long_name\":\"sublocality_level_5\",\"short_name\":\"sublocality_level_5\",\"types\":[\"sublocality_level_5\"]},{\"long_name\":\"sublocality_level_4\",\"short_name\":\"sublocality_level_4\",\"types\":[\"sublocality_level_4\"]},{\"long_name\":\"sublocality_level_3\",\"short_name\":\"sublocality_level_3\",\"types\":[\"sublocality_level_3\"]},{\"long_name\":\"sublocality_level_2\",\"short_name\":\"sublocality_level_2\",\"types\":[\"sublocality_level_2\"]},{\"long_name\":\"sublocality_level_1\",\"short_name\":\"sublocality_level_1\",\"types\":[\"sublocality_level_1\"]},{\"long_name\":\"sublocality\",\"short_name\":\"sublocality\",\"types\":[\"sublocality\"]},{\"long_name\":\"neighborhood\",\"types\":[\"neighborhood\"]},{\"long_name\":\"premise\",\"types\":[\"premise\"]},{\"long_name\":\"subpremise\",\"types\":[\"subpremise\"]},{\"long_name\":\"natural_feature\",\"types\":[\"natural_feature\"]},{\"long_name\":\"country\",\"types\":[\"country\"]},{\"long_name\":\"postal_code\",\"types\":[\"postal_code\"]},{\"long_name\":\"airport\",\"types\":[\"airport\"]},{\"long_name\":\"park\",\"types\":[\"park\"]},{\"long_name\":\"point_of_interest\",\"types\":[\"point_of_interest\"]},{\"long_name\":\"floor\",\"types\":[\"floor\"]},{\"long_name\":\"establishment\",\"types\":[\"establishment\"]},{\"long_name\":\"parking\",\"types\":[\"parking\"]},{\"long_name\":\"post_box\",\"types\":[\"post_box\"]},{\"long_name\":\"postal_town\",\"types\":[\"postal_town\"]},{\"long_name\":\"room\",\"types\":[\"room\"]},{\"long_name\":\"bus_station\",\"types\":[\"bus_station\"]},{\"long_name\":\"train_station\",\"types\":[\"train_station\"]},{\"long_name\":\"transit_station\",\"types\":[\"transit_station\"]}],\"formatted_address\":\"1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA\",\"geometry\":{\"location\":{\"lat\":34.213171,\"lng\":-118.571022},\"location_type\":\"APPROXIMATE\",\"viewport\":{\"southwest\":{\"lat\":34.1947148,\"lng\":-118.6030368},\"northeast\":{\"lat\":34.2316232,\"lng\":-118.5390072}},\"bounds\":{\"southwest\":{\"lat\":34.179105,\"lng\":-118.58832},\"northeast\":{\"lat\":34.235309,\"lng\":-118.5534191}}},\"types\":[\"street_address\"]}],\"status\":\"OK\"}"
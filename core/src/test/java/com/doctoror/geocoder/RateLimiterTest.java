@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link RateLimiter}
+ */
+public final class RateLimiterTest {
+
+    @Test
+    public void testBurst() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(1, 3, 0);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testTimedAcquire() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(20, 1, 0);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(1, TimeUnit.MILLISECONDS));
+        final long start = System.nanoTime();
+        assertTrue(limiter.tryAcquire(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void testDailyBudget() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(1000, 1000, 2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+    }
+
+    @Test
+    public void testShared() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(1, 1, 0);
+        RateLimiter.setShared("key", limiter);
+        assertSame(limiter, RateLimiter.getShared("key"));
+        assertNull(RateLimiter.getShared(null));
+        RateLimiter.setShared("key", null);
+        assertNull(RateLimiter.getShared("key"));
+    }
+
+    @Test
+    public void testCanceledWait() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(0.1, 1, 0);
+        assertTrue(limiter.tryAcquire());
+        final Cancellation cancellation = Cancellation.child(null);
+        Cancellation.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                cancellation.cancel();
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(50));
+        final long start = System.nanoTime();
+        try {
+            limiter.tryAcquire(TimeUnit.MINUTES.toNanos(1), cancellation);
+            fail("InterruptedIOException expected");
+        } catch (InterruptedIOException expected) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+
+    @Test
+    public void testEngineFailsWithoutStatus() throws Throwable {
+        final RateLimiter limiter = new RateLimiter(1000, 1000, 1);
+        assertTrue(limiter.tryAcquire());
+        RateLimiter.setShared("rate-limited", limiter);
+        try {
+            new GeocoderEngine(Locale.US, "rate-limited").getFromLocation(1.0, 2.0, 5, false);
+            fail("RateLimitedException expected");
+        } catch (RateLimitedException e) {
+            assertNull(e.getStatus());
+        } finally {
+            RateLimiter.setShared("rate-limited", null);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link RetryPolicy}
+ */
+public final class RetryPolicyTest {
+
+    @Test
+    public void testAttemptsPerCause() throws Throwable {
+        final RetryPolicy policy = new RetryPolicy(3, 2, 1, 100, 1000, TimeUnit.MILLISECONDS);
+        final GeocoderException overLimit = GeocoderException.forQueryOverLimit();
+        assertTrue(policy.retryDelayNanos(overLimit, 1) >= 0);
+        assertTrue(policy.retryDelayNanos(overLimit, 2) >= 0);
+        assertEquals(-1, policy.retryDelayNanos(overLimit, 3));
+
+        final GeocoderException unknown = GeocoderException.forStatus(Status.UNKNOWN_ERROR);
+        assertTrue(policy.retryDelayNanos(unknown, 1) >= 0);
+        assertEquals(-1, policy.retryDelayNanos(unknown, 2));
+
+        final GeocoderException network = new GeocoderException(new IOException());
+        assertEquals(-1, policy.retryDelayNanos(network, 1));
+
+        final GeocoderException denied = GeocoderException.forStatus(Status.REQUEST_DENIED);
+        assertEquals(-1, policy.retryDelayNanos(denied, 1));
+    }
+
+    @Test
+    public void testInterruptIsNotNetworkError() throws Throwable {
+        final RetryPolicy policy = new RetryPolicy(1, 1, 2, 1, 1, TimeUnit.MILLISECONDS);
+        final GeocoderException timeout = new GeocoderException(new SocketTimeoutException());
+        assertTrue(timeout.isCausedByNetworkError());
+        assertTrue(policy.retryDelayNanos(timeout, 1) >= 0);
+
+        final GeocoderException canceled = new GeocoderException(
+                new InterruptedIOException("Canceled"));
+        assertFalse(canceled.isCausedByNetworkError());
+        assertEquals(-1, policy.retryDelayNanos(canceled, 1));
+    }
+
+    @Test
+    public void testDelayBounds() throws Throwable {
+        final RetryPolicy policy = new RetryPolicy(100, 1, 1, 100, 1000, TimeUnit.MILLISECONDS);
+        final GeocoderException e = GeocoderException.forQueryOverLimit();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.retryDelayNanos(e, 1) < TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(policy.retryDelayNanos(e, 3) < TimeUnit.MILLISECONDS.toNanos(400));
+            assertTrue(policy.retryDelayNanos(e, 99) < TimeUnit.MILLISECONDS.toNanos(1000));
+        }
+    }
+}
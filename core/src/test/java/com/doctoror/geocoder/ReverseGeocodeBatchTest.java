@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link GeocoderEngine#getFromLocations(List, int, boolean, int,
+ * java.util.concurrent.Executor)}
+ */
+public final class ReverseGeocodeBatchTest {
+
+    private static final Pattern LATLNG = Pattern.compile("latlng=([^&]+)");
+
+    @Test
+    public void testDuplicatesQueriedOnceInInputOrder() throws Throwable {
+        final LatLngTransport transport = new LatLngTransport(null);
+        final GeocoderEngine engine = newEngine(transport);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<BatchResult> results = engine.getFromLocations(Arrays.asList(
+                    new Address.Location(1.0, 2.0),
+                    new Address.Location(3.0, 4.0),
+                    new Address.Location(1.0, 2.0)), 5, false, 4, executor);
+
+            assertEquals(2, transport.getCallCount());
+            assertEquals(3, results.size());
+            assertEquals("1.0,2.0", formattedAddress(results.get(0)));
+            assertEquals("3.0,4.0", formattedAddress(results.get(1)));
+            assertEquals("1.0,2.0", formattedAddress(results.get(2)));
+            assertNotSame(results.get(0).getAddresses(), results.get(2).getAddresses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresPerItemAndOverQueryLimit() throws Throwable {
+        final LatLngTransport transport = new LatLngTransport("5.0,6.0");
+        final GeocoderEngine engine = newEngine(transport);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final List<BatchResult> results = engine.getFromLocations(Arrays.asList(
+                    new Address.Location(1.0, 2.0),
+                    new Address.Location(0.0, 0.0),
+                    new Address.Location(3.0, 4.0),
+                    new Address.Location(5.0, 6.0),
+                    new Address.Location(7.0, 8.0),
+                    new Address.Location(9.0, 10.0)), 5, false, 1, executor);
+
+            assertEquals("1.0,2.0", formattedAddress(results.get(0)));
+            // A failed item does not affect the others
+            final GeocoderException networkError = results.get(1).getException();
+            assertNotNull(networkError);
+            assertTrue(networkError.isCausedByNetworkError());
+            assertEquals("3.0,4.0", formattedAddress(results.get(2)));
+
+            // The items after OVER_QUERY_LIMIT fail without a request
+            for (int i = 3; i < results.size(); i++) {
+                final GeocoderException e = results.get(i).getException();
+                assertNotNull(e);
+                assertEquals(Status.OVER_QUERY_LIMIT, e.getStatus());
+            }
+            assertEquals(4, transport.getCallCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptCancelsCalls() throws Throwable {
+        final BlockingTransport transport = new BlockingTransport(2);
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(transport);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread caller = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    engine.getFromLocations(Arrays.asList(new Address.Location(1.0, 2.0),
+                            new Address.Location(3.0, 4.0)), 5, false, 2, executor);
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        try {
+            caller.start();
+            assertTrue(transport.mStarted.await(5, TimeUnit.SECONDS));
+            caller.interrupt();
+            caller.join(5000);
+
+            assertTrue(failure.get() instanceof InterruptedException);
+            assertTrue(transport.mCanceled.await(5, TimeUnit.SECONDS));
+            assertTrue(transport.mReleased.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @NonNull
+    private static GeocoderEngine newEngine(@NonNull final Transport transport) {
+        final GeocoderEngine engine = new GeocoderEngine(Locale.US);
+        engine.setTransport(transport);
+        engine.setRetryPolicy(new RetryPolicy(1, 1, 1, 1, 1, TimeUnit.MILLISECONDS));
+        return engine;
+    }
+
+    @Nullable
+    private static String formattedAddress(@NonNull final BatchResult result) {
+        assertTrue(String.valueOf(result.getException()), result.isSuccessful());
+        final List<Address> addresses = result.getAddresses();
+        assertNotNull(addresses);
+        assertEquals(1, addresses.size());
+        return addresses.get(0).getFormattedAddress();
+    }
+
+    /**
+     * Answers with the queried coordinates as the formatted address. Fails the call for 0,0 and
+     * answers OVER_QUERY_LIMIT for the given coordinates.
+     */
+    private static final class LatLngTransport extends FixedTransport {
+
+        @Nullable
+        private final String mOverQueryLimit;
+
+        LatLngTransport(@Nullable final String overQueryLimit) {
+            super(OK_RESPONSE);
+            mOverQueryLimit = overQueryLimit;
+        }
+
+        @NonNull
+        @Override
+        InputStream open(@NonNull final String url, @Nullable final byte[] response)
+                throws IOException {
+            final Matcher matcher = LATLNG.matcher(url);
+            assertTrue(url, matcher.find());
+            final String latLng = URLDecoder.decode(matcher.group(1), "UTF-8");
+            final String body;
+            if ("0.0,0.0".equals(latLng)) {
+                throw new IOException("Connection reset");
+            } else if (latLng.equals(mOverQueryLimit)) {
+                body = OVER_QUERY_LIMIT_RESPONSE;
+            } else {
+                body = "{\"results\":[{\"formatted_address\":\"" + latLng
+                        + "\"}],\"status\":\"OK\"}";
+            }
+            return new ByteArrayInputStream(body.getBytes(Charset.forName("UTF-8")));
+        }
+    }
+}
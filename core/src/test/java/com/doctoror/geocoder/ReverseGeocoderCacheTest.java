@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link ReverseGeocoderCache}
+ */
+public final class ReverseGeocoderCacheTest {
+
+    @Test
+    public void testNearbyPointsShareCell() throws Throwable {
+        final ReverseGeocoderCache cache = new ReverseGeocoderCache(100, 10, 0,
+                TimeUnit.SECONDS, false);
+        // About 10 meters apart
+        assertEquals(cache.key(50.45010, 30.52340, "en", "", false),
+                cache.key(50.45015, 30.52345, "en", "", false));
+        // About 1 kilometer apart
+        assertFalse(cache.key(50.45010, 30.52340, "en", "", false)
+                .equals(cache.key(50.45910, 30.52340, "en", "", false)));
+    }
+
+    @Test
+    public void testAntimeridian() throws Throwable {
+        final ReverseGeocoderCache cache = new ReverseGeocoderCache(1000, 10, 0,
+                TimeUnit.SECONDS, false);
+        assertEquals(cache.key(0, 180, "en", "", false),
+                cache.key(0, -180, "en", "", false));
+    }
+
+    @Test
+    public void testViewportValidation() throws Throwable {
+        final ReverseGeocoderCache cache = new ReverseGeocoderCache(10000, 10, 0,
+                TimeUnit.SECONDS, true);
+        final Address address = new Address();
+        address.setViewport(new Address.Viewport(new Address.Location(50.0, 30.0),
+                new Address.Location(50.01, 30.01)));
+        final String key = cache.key(50.005, 30.005, "en", "", false);
+        cache.put(key, 1, Collections.singletonList(address));
+
+        assertNotNull(cache.get(key, 50.005, 30.005, 1));
+        assertNull(cache.get(key, 50.02, 30.005, 1));
+    }
+}
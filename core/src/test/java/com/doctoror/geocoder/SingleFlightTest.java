@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link SingleFlight}
+ */
+public final class SingleFlightTest {
+
+    private static final String KEY = "key";
+
+    @Test
+    public void testLeaderRuntimeException() throws Throwable {
+        final IllegalStateException failure = new IllegalStateException();
+        final SingleFlight singleFlight = new SingleFlight();
+        final CountDownLatch coalesced = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<Address>> leader = lead(executor, singleFlight,
+                    new SingleFlight.Query() {
+
+                        @NonNull
+                        @Override
+                        public List<Address> run() throws GeocoderException {
+                            awaitQuietly(coalesced);
+                            throw failure;
+                        }
+                    });
+            try {
+                singleFlight.execute(KEY, failQuery(), null, coalescedListener(coalesced));
+                fail("GeocoderException expected");
+            } catch (GeocoderException e) {
+                assertSame(failure, e.getCause());
+            }
+            try {
+                leader.get(5, TimeUnit.SECONDS);
+                fail("ExecutionException expected");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitersGetOwnException() throws Throwable {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CountDownLatch coalesced = new CountDownLatch(1);
+        final GeocoderException failure = GeocoderException.forStatus(Status.REQUEST_DENIED);
+        failure.setErrorMessage("denied");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            lead(executor, singleFlight, new SingleFlight.Query() {
+
+                @NonNull
+                @Override
+                public List<Address> run() throws GeocoderException {
+                    awaitQuietly(coalesced);
+                    throw failure;
+                }
+            });
+            try {
+                singleFlight.execute(KEY, failQuery(), null, coalescedListener(coalesced));
+                fail("GeocoderException expected");
+            } catch (GeocoderException e) {
+                assertNotSame(failure, e);
+                assertEquals(Status.REQUEST_DENIED, e.getStatus());
+                assertEquals("denied", e.getErrorMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptedLeaderIsNotShared() throws Throwable {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CountDownLatch coalesced = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            lead(executor, singleFlight, new SingleFlight.Query() {
+
+                @NonNull
+                @Override
+                public List<Address> run() throws GeocoderException {
+                    awaitQuietly(coalesced);
+                    Thread.currentThread().interrupt();
+                    throw new GeocoderException(new InterruptedIOException("Interrupted"));
+                }
+            });
+            final List<Address> result = singleFlight.execute(KEY, new SingleFlight.Query() {
+
+                @NonNull
+                @Override
+                public List<Address> run() {
+                    return Collections.singletonList(new Address());
+                }
+            }, null, coalescedListener(coalesced));
+            assertEquals(1, result.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @NonNull
+    private static Future<List<Address>> lead(@NonNull final ExecutorService executor,
+            @NonNull final SingleFlight singleFlight, @NonNull final SingleFlight.Query query) {
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<List<Address>> future = executor.submit(new Callable<List<Address>>() {
+
+            @Override
+            public List<Address> call() throws Exception {
+                return singleFlight.execute(KEY, new SingleFlight.Query() {
+
+                    @NonNull
+                    @Override
+                    public List<Address> run() throws GeocoderException {
+                        started.countDown();
+                        return query.run();
+                    }
+                }, null, null);
+            }
+        });
+        awaitQuietly(started);
+        return future;
+    }
+
+    @NonNull
+    private static SingleFlight.Query failQuery() {
+        return new SingleFlight.Query() {
+
+            @NonNull
+            @Override
+            public List<Address> run() {
+                throw new AssertionError("Must not lead");
+            }
+        };
+    }
+
+    @NonNull
+    private static EventListener coalescedListener(@NonNull final CountDownLatch coalesced) {
+        return new EventListener() {
+
+            @Override
+            public void coalesced(final long nanoTime) {
+                coalesced.countDown();
+            }
+        };
+    }
+
+    private static void awaitQuietly(@NonNull final CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for {@link UrlConnectionTransport} against a local HTTP server
+ */
+public final class UrlConnectionTransportTest {
+
+    private static final byte[] BODY = FixedTransport.OK_RESPONSE.getBytes();
+
+    @Test
+    public void testIdentityBody() throws Throwable {
+        final StubHandler handler = new StubHandler(BODY, false);
+        final HttpServer server = startServer(handler);
+        try {
+            final BodyEndListener listener = new BodyEndListener();
+            final InputStream in = new UrlConnectionTransport()
+                    .newCall(url(server), listener).execute();
+            assertArrayEquals(BODY, readAll(in));
+            in.close();
+
+            assertEquals("gzip", handler.mAcceptEncoding);
+            assertEquals(BODY.length, listener.mByteCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGzipBody() throws Throwable {
+        final byte[] gzipped = gzip(BODY);
+        final StubHandler handler = new StubHandler(gzipped, true);
+        final HttpServer server = startServer(handler);
+        try {
+            final BodyEndListener listener = new BodyEndListener();
+            final InputStream in = new UrlConnectionTransport()
+                    .newCall(url(server), listener).execute();
+            assertArrayEquals(BODY, readAll(in));
+            in.close();
+
+            assertEquals("gzip", handler.mAcceptEncoding);
+            // Counted before inflating
+            assertEquals(gzipped.length, listener.mByteCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGzipBodyInflatedWhileStreaming() throws Throwable {
+        final int half = BODY.length / 2;
+        final CountDownLatch firstHalfRead = new CountDownLatch(1);
+        final HttpServer server = startServer(new HttpHandler() {
+
+            @Override
+            public void handle(@NonNull final HttpExchange exchange) throws IOException {
+                try {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    final OutputStream out = new GZIPOutputStream(
+                            exchange.getResponseBody(), true);
+                    out.write(BODY, 0, half);
+                    out.flush();
+                    // The rest is only sent once the client has inflated the first half
+                    if (firstHalfRead.await(5, TimeUnit.SECONDS)) {
+                        out.write(BODY, half, BODY.length - half);
+                    }
+                    out.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        try {
+            // Fails with SocketTimeoutException if the whole body is awaited before inflating
+            final InputStream in = new UrlConnectionTransport(5, 5, TimeUnit.SECONDS)
+                    .newCall(url(server), null).execute();
+            final byte[] firstHalf = new byte[half];
+            int read = 0;
+            while (read < half) {
+                final int r = in.read(firstHalf, read, half - read);
+                assertTrue(r != -1);
+                read += r;
+            }
+            assertArrayEquals(Arrays.copyOf(BODY, half), firstHalf);
+
+            firstHalfRead.countDown();
+            assertArrayEquals(Arrays.copyOfRange(BODY, half, BODY.length), readAll(in));
+            in.close();
+        } finally {
+            firstHalfRead.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testEarlyCloseDrainsSmallRemainder() throws Throwable {
+        final byte[] body = new byte[UrlConnectionTransport.MAX_DRAIN_BYTES / 2];
+        final HttpServer server = startServer(new StubHandler(body, false));
+        try {
+            final BodyEndListener listener = new BodyEndListener();
+            final InputStream in = new UrlConnectionTransport()
+                    .newCall(url(server), listener).execute();
+            assertTrue(in.read() != -1);
+            in.close();
+
+            // Read to the end so the connection can be reused
+            assertEquals(body.length, listener.mByteCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testEarlyCloseDrainsAtMostMaxDrainBytes() throws Throwable {
+        final byte[] body = new byte[UrlConnectionTransport.MAX_DRAIN_BYTES * 16];
+        final HttpServer server = startServer(new StubHandler(body, false));
+        try {
+            final BodyEndListener listener = new BodyEndListener();
+            final InputStream in = new UrlConnectionTransport()
+                    .newCall(url(server), listener).execute();
+            assertTrue(in.read() != -1);
+            in.close();
+
+            assertEquals(1 + UrlConnectionTransport.MAX_DRAIN_BYTES, listener.mByteCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @NonNull
+    private static HttpServer startServer(@NonNull final HttpHandler handler)
+            throws IOException {
+        final HttpServer server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    @NonNull
+    private static String url(@NonNull final HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull final byte[] data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    @NonNull
+    private static byte[] readAll(@NonNull final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class StubHandler implements HttpHandler {
+
+        @NonNull
+        private final byte[] mBody;
+
+        private final boolean mGzip;
+
+        @Nullable
+        volatile String mAcceptEncoding;
+
+        StubHandler(@NonNull final byte[] body, final boolean gzip) {
+            mBody = body;
+            mGzip = gzip;
+        }
+
+        @Override
+        public void handle(@NonNull final HttpExchange exchange) throws IOException {
+            mAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            try {
+                if (mGzip) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(200, mBody.length);
+                exchange.getResponseBody().write(mBody);
+            } catch (IOException ignored) {
+                // The client dropped the connection without reading the whole body
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static final class BodyEndListener extends EventListener {
+
+        final AtomicLong mByteCount = new AtomicLong(-1);
+
+        @Override
+        public void responseBodyEnd(final long nanoTime, final long byteCount) {
+            mByteCount.set(byteCount);
+        }
+    }
+}
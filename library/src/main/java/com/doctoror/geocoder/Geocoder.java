@@ -18,20 +18,13 @@
 package com.doctoror.geocoder;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.content.SharedPreferences.Editor;
-import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A class for handling geocoding and reverse geocoding. Geocoding is the
@@ -42,30 +35,15 @@ import java.util.Locale;
  * example one might contain the full street address of the closest building,
  * while another might contain only a city name and postal code.
  *
- * This is a replacement of built-in Geocoder which is not always available.
+ * This is a replacement of built-in Geocoder which is not always available. It is an Android
+ * front end for {@link GeocoderEngine}, which can be used directly on any JVM.
  *
  * For more information visit https://developers.google.com/maps/documentation/geocoding/
  */
 public final class Geocoder {
 
-    private static final String PREFERENCES_GEOCODER = "com.doctoror.geocoder.preferences";
-
-    private static final String KEY_ALLOW = "com.doctoror.geocoder.preferences.keys.allow";
-
-    private static final String ENDPOINT_URL = "https://maps.googleapis.com/maps/api/geocode/json";
-
-    @NonNull
-    private final Context mContext;
-
     @NonNull
-    private final Locale mLocale;
-
-    @Nullable
-    private final String mApiKey;
-
-    private SharedPreferences mSharedPreferences;
-
-    private long mAllowedDate;
+    private final GeocoderEngine mEngine;
 
     /**
      * Constructs a Geocoder whose responses will be localized for the given {@link Locale} with no
@@ -94,23 +72,179 @@ public final class Geocoder {
         if (context == null) {
             throw new NullPointerException("context == null");
         }
-        //noinspection ConstantConditions
-        if (locale == null) {
-            throw new NullPointerException("locale == null");
-        }
-        mContext = context;
-        mLocale = locale;
-        mApiKey = apiKey;
+        mEngine = new GeocoderEngine(locale, apiKey);
     }
 
+    /**
+     * Returns the engine that runs the queries of this Geocoder
+     */
     @NonNull
-    private Uri.Builder buildBaseRequestUri() {
-        final Uri.Builder uriBuilder = Uri.parse(ENDPOINT_URL).buildUpon()
-                .appendQueryParameter("language", mLocale.getLanguage());
-        if (mApiKey != null && !mApiKey.isEmpty()) {
-            uriBuilder.appendQueryParameter("key", mApiKey);
-        }
-        return uriBuilder;
+    public GeocoderEngine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Sets the URL of the Geocoding API endpoint, for example to target a local stub server in
+     * load tests. Query parameters are appended to it, so it must not have a query. The default
+     * is the Google Maps Geocoding API JSON endpoint. Should be called before making queries.
+     *
+     * @param endpointUrl the endpoint URL
+     */
+    public void setEndpoint(@NonNull final String endpointUrl) {
+        mEngine.setEndpoint(endpointUrl);
+    }
+
+    /**
+     * Sets the {@link Transport} used for requests. The default is
+     * {@link UrlConnectionTransport}, which reuses keep-alive connections to the endpoint.
+     * Should be called before making queries.
+     *
+     * @param transport the Transport to use
+     */
+    public void setTransport(@NonNull final Transport transport) {
+        mEngine.setTransport(transport);
+    }
+
+    /**
+     * Sets whether identical queries made concurrently share a single request. When enabled,
+     * which is the default, callers that ask for the same query while it is in flight wait for
+     * it and receive the same {@link Address} objects. Should be called before making queries.
+     *
+     * @param coalesce true to share in-flight requests
+     */
+    public void setCoalesceRequests(final boolean coalesce) {
+        mEngine.setCoalesceRequests(coalesce);
+    }
+
+    /**
+     * Sets the cache for {@link #getFromLocationName(String, int, boolean)} results. Cache hits
+     * are returned without making a request. No cache is used by default. Should be called
+     * before making queries.
+     *
+     * @param cache the cache to use, or null to disable caching
+     */
+    public void setCache(@Nullable final GeocoderCache cache) {
+        mEngine.setCache(cache);
+    }
+
+    /**
+     * Sets the cache for {@link #getFromLocation(double, double, int, boolean)} results. Cache
+     * hits are returned without making a request. No cache is used by default. Should be called
+     * before making queries.
+     *
+     * @param cache the cache to use, or null to disable caching
+     */
+    public void setReverseCache(@Nullable final ReverseGeocoderCache cache) {
+        mEngine.setReverseCache(cache);
+    }
+
+    /**
+     * Sets the persistent cache consulted when the in-memory caches miss. It is used for
+     * {@link #getFromLocationName(String, int, boolean)} results, and for
+     * {@link #getFromLocation(double, double, int, boolean)} results when a
+     * {@link ReverseGeocoderCache} is set, sharing its cells. No cache is used by default. Should
+     * be called before making queries.
+     *
+     * @param cache the cache to use, or null to disable it
+     */
+    public void setDiskCache(@Nullable final DiskGeocoderCache cache) {
+        mEngine.setDiskCache(cache);
+    }
+
+    /**
+     * Sets the policy for retrying failed queries. The default is {@link RetryPolicy#DEFAULT}.
+     * Should be called before making queries.
+     *
+     * @param retryPolicy the policy to use, {@link RetryPolicy#NONE} to disable retries
+     */
+    public void setRetryPolicy(@NonNull final RetryPolicy retryPolicy) {
+        mEngine.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Sets how long a query may wait for the {@link RateLimiter} registered for this Geocoder's
+     * API key before failing with {@link RateLimitedException}. By default queries wait as
+     * long as the rate requires. A query fails right away when the daily budget is used up.
+     * Should be called before making queries.
+     *
+     * @param timeout max time to wait, 0 to never wait
+     * @param unit    the unit of timeout
+     */
+    public void setRateLimitTimeout(final long timeout, @NonNull final TimeUnit unit) {
+        mEngine.setRateLimitTimeout(timeout, unit);
+    }
+
+    /**
+     * Sets the max time a query may take, including retries and the waits before them. When it
+     * passes, the request in flight is aborted and the query fails with
+     * {@link GeocoderTimeoutException}. Cache hits are not affected. There is no call timeout by
+     * default, only the connect and read timeouts of the {@link Transport}. Should be called
+     * before making queries.
+     *
+     * @param timeout max time a query may take, 0 for no limit
+     * @param unit    the unit of timeout
+     */
+    public void setCallTimeout(final long timeout, @NonNull final TimeUnit unit) {
+        mEngine.setCallTimeout(timeout, unit);
+    }
+
+    /**
+     * Sets the limit on requests in flight that adapts to {@link Status#OVER_QUERY_LIMIT}
+     * responses and latency. Queries wait while the limit is reached. No limit is used by
+     * default. Should be called before making queries.
+     *
+     * @param limiter the limiter to use, or null to disable it
+     */
+    public void setConcurrencyLimiter(@Nullable final ConcurrencyLimiter limiter) {
+        mEngine.setConcurrencyLimiter(limiter);
+    }
+
+    /**
+     * Sets the circuit breaker that stops sending requests while the endpoint is failing. While
+     * it is open, queries fail with {@link CircuitOpenException}, unless the result is cached.
+     * Expired results in the {@link DiskGeocoderCache} are returned in that case too. No circuit
+     * breaker is used by default. Should be called before making queries.
+     *
+     * @param circuitBreaker the circuit breaker to use, or null to disable it
+     */
+    public void setCircuitBreaker(@Nullable final CircuitBreaker circuitBreaker) {
+        mEngine.setCircuitBreaker(circuitBreaker);
+    }
+
+    /**
+     * Enables hedged requests. When a request is slow to respond, as decided by the
+     * {@link HedgePolicy}, an identical request is sent on the given {@link Executor} and the
+     * response that arrives first is used. The other request is canceled. Hedges need a permit
+     * from the {@link RateLimiter}, if any, but never wait for one. Hedging is disabled by
+     * default. Should be called before making queries.
+     *
+     * @param policy   the policy to use, or null to disable hedging
+     * @param executor the Executor to send hedges on. Ignored if policy is null
+     */
+    public void setHedging(@Nullable final HedgePolicy policy, @Nullable final Executor executor) {
+        mEngine.setHedging(policy, executor);
+    }
+
+    /**
+     * Sets the factory of {@link EventListener}s that receive the phases of every query, such as
+     * cache lookup, connect, time to first byte and parsing, with nanosecond timestamps. No
+     * events are measured by default. Should be called before making queries.
+     *
+     * @param factory the factory to use, or null to disable events
+     */
+    public void setEventListenerFactory(@Nullable final EventListener.Factory factory) {
+        mEngine.setEventListenerFactory(factory);
+    }
+
+    /**
+     * Sets the metrics that record the latency and outcome of every query, cache hits, retries
+     * and downloaded bytes. Metrics may be shared by several Geocoders. No metrics are recorded
+     * by default. Should be called before making queries.
+     *
+     * @param metrics the metrics to record to, or null to disable recording
+     */
+    public void setMetrics(@Nullable final GeocoderMetrics metrics) {
+        mEngine.setMetrics(metrics);
     }
 
     /**
@@ -142,29 +276,60 @@ public final class Geocoder {
     public List<Address> getFromLocation(final double latitude, final double longitude,
             final int maxResults, final boolean parseAddressComponents)
             throws GeocoderException {
-        if (latitude < -90.0 || latitude > 90.0) {
-            throw new IllegalArgumentException("latitude == " + latitude);
-        }
-        if (longitude < -180.0 || longitude > 180.0) {
-            throw new IllegalArgumentException("longitude == " + longitude);
-        }
-
-        if (isLimitExceeded()) {
-            throw GeocoderException.forQueryOverLimit();
-        }
-
-        final Uri.Builder uriBuilder = buildBaseRequestUri()
-                .appendQueryParameter("sensor", "true")
-                .appendQueryParameter("latlng", latitude + "," + longitude);
+        return mEngine.getFromLocation(latitude, longitude, maxResults, parseAddressComponents);
+    }
 
-        final byte[] data;
-        try {
-            data = download(uriBuilder.toString());
-        } catch (IOException e) {
-            throw new GeocoderException(e);
-        }
+    /**
+     * Asynchronous version of {@link #getFromLocation(double, double, int, boolean)}. The query
+     * runs on the given {@link Executor} and canceling the returned future aborts the HTTP
+     * request.
+     *
+     * @param latitude               the latitude a point for the search
+     * @param longitude              the longitude a point for the search
+     * @param maxResults             max number of addresses to return. Smaller numbers (1 to 5)
+     *                               are recommended
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param executor               the Executor to run the query on
+     * @param callback               optional callback, called on the executor thread
+     * @return the future result
+     * @throws IllegalArgumentException if latitude is less than -90 or greater than 90
+     * @throws IllegalArgumentException if longitude is less than -180 or greater than 180
+     */
+    @NonNull
+    public GeocoderFuture getFromLocationAsync(final double latitude, final double longitude,
+            final int maxResults, final boolean parseAddressComponents,
+            @NonNull final Executor executor, @Nullable final GeocoderFuture.Callback callback) {
+        return mEngine.getFromLocationAsync(latitude, longitude, maxResults,
+                parseAddressComponents, executor, callback);
+    }
 
-        return Parser.parseJson(data, maxResults, parseAddressComponents);
+    /**
+     * Runs {@link #getFromLocation(double, double, int, boolean)} for every location and blocks
+     * until all of them are finished. At most {@code parallelism} queries are in flight at a time
+     * and identical coordinates are queried only once. After a query fails with
+     * {@link Status#OVER_QUERY_LIMIT} the remaining ones fail with the same status without
+     * being sent. With a {@link ConcurrencyLimiter} set, fewer than {@code parallelism} queries
+     * may be in flight while the server pushes back.
+     *
+     * @param locations              the points to search for
+     * @param maxResults             max number of addresses to return per location
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param parallelism            max number of queries in flight
+     * @param executor               the Executor to run the queries on. It should be able to run
+     *                               {@code parallelism} tasks at once
+     * @return a result for every location, in the order of input locations. Every result has
+     * its own list of addresses, but identical coordinates share the {@link Address} objects.
+     * @throws IllegalArgumentException if any latitude is less than -90 or greater than 90
+     * @throws IllegalArgumentException if any longitude is less than -180 or greater than 180
+     * @throws IllegalArgumentException if parallelism is less than 1
+     * @throws InterruptedException     if interrupted while waiting. Queries in flight are aborted
+     */
+    @NonNull
+    public List<BatchResult> getFromLocations(@NonNull final List<Address.Location> locations,
+            final int maxResults, final boolean parseAddressComponents, final int parallelism,
+            @NonNull final Executor executor) throws InterruptedException {
+        return mEngine.getFromLocations(locations, maxResults, parseAddressComponents,
+                parallelism, executor);
     }
 
     /**
@@ -195,146 +360,27 @@ public final class Geocoder {
     public List<Address> getFromLocationName(final String locationName, final int maxResults,
             final boolean parseAddressComponents)
             throws GeocoderException {
-        if (locationName == null) {
-            throw new IllegalArgumentException("locationName == null");
-        }
-
-        if (isLimitExceeded()) {
-            throw GeocoderException.forQueryOverLimit();
-        }
-
-        final Uri.Builder uriBuilder = buildBaseRequestUri()
-                .appendQueryParameter("sensor", "false")
-                .appendQueryParameter("address", locationName);
-
-        final String url = uriBuilder.toString();
-        byte[] data;
-        try {
-            data = download(url);
-        } catch (IOException e) {
-            throw new GeocoderException(e);
-        }
-
-        try {
-            return Parser.parseJson(data, maxResults, parseAddressComponents);
-        } catch (GeocoderException e) {
-            if (e.getStatus() == Status.OVER_QUERY_LIMIT) {
-                // OVER_QUERY_LIMIT could be thrown if too many calls per second
-                // If after two seconds, it is thrown again - then it means there are too much calls
-                // per 24 hours
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException e1) {
-                    // Safely abort when interrupted
-                    return new ArrayList<>();
-                }
-
-                try {
-                    data = download(url);
-                } catch (IOException ioe) {
-                    throw new GeocoderException(ioe);
-                }
-
-                try {
-                    return Parser.parseJson(data, maxResults, parseAddressComponents);
-                } catch (GeocoderException e1) {
-                    if (e1.getStatus() == Status.OVER_QUERY_LIMIT) {
-                        // available in 24 hours
-                        setAllowedDate(System.currentTimeMillis() + 86400000L);
-                    }
-                    throw e1;
-                }
-            } else {
-                throw e;
-            }
-        }
+        return mEngine.getFromLocationName(locationName, maxResults, parseAddressComponents);
     }
 
     /**
-     * Downloads data to buffer
+     * Asynchronous version of {@link #getFromLocationName(String, int, boolean)}. The query runs
+     * on the given {@link Executor} and canceling the returned future aborts the HTTP request.
      *
-     * @param url Data location
-     * @return downloaded data or null if error occurred
+     * @param locationName           a user-supplied description of a location
+     * @param maxResults             max number of results to return. Smaller numbers (1 to 5) are
+     *                               recommended
+     * @param parseAddressComponents If set to true, will parse "address_components"
+     * @param executor               the Executor to run the query on
+     * @param callback               optional callback, called on the executor thread
+     * @return the future result
+     * @throws IllegalArgumentException if locationName is null
      */
     @NonNull
-    private static byte[] download(String url) throws IOException {
-        InputStream is = null;
-        ByteArrayOutputStream os = null;
-
-        try {
-
-            final URL u = new URL(url);
-            final URLConnection connection = u.openConnection();
-            connection.connect();
-
-            is = connection.getInputStream();
-            os = new ByteArrayOutputStream();
-
-            final byte[] buffer = new byte[4096];
-            int read;
-
-            while (true) {
-                read = is.read(buffer, 0, buffer.length);
-                if (read == -1) {
-                    break;
-                }
-                os.write(buffer, 0, read);
-            }
-
-            return os.toByteArray();
-        } finally {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (IOException ignored) {
-                }
-            }
-            if (os != null) {
-                try {
-                    os.close();
-                } catch (IOException ignored) {
-                }
-            }
-        }
-    }
-
-    /**
-     * Returns true if limit is exceeded and next query is not allowed
-     *
-     * @return true if limit is exceeded and next query is not allowed; false
-     * otherwise
-     */
-    private boolean isLimitExceeded() {
-        return System.currentTimeMillis() <= getAllowedDate();
-    }
-
-    /**
-     * Sets date after which next geocoding query is allowed
-     *
-     * @param date the date after which next geocoding query is allowed
-     */
-    private void setAllowedDate(final long date) {
-        mAllowedDate = date;
-        if (mSharedPreferences == null) {
-            mSharedPreferences = mContext.getSharedPreferences(
-                    PREFERENCES_GEOCODER, Context.MODE_PRIVATE);
-        }
-        final Editor e = mSharedPreferences.edit();
-        e.putLong(KEY_ALLOW, date);
-        e.apply();
-    }
-
-    /**
-     * Returns date after which the next geocoding query is allowed
-     *
-     * @return date after which the next geocoding query is allowed
-     */
-    private long getAllowedDate() {
-        if (mSharedPreferences == null) {
-            mSharedPreferences = mContext
-                    .getSharedPreferences(PREFERENCES_GEOCODER, Context.MODE_PRIVATE);
-            mAllowedDate = mSharedPreferences.getLong(KEY_ALLOW, 0);
-        }
-        return mAllowedDate;
+    public GeocoderFuture getFromLocationNameAsync(final String locationName,
+            final int maxResults, final boolean parseAddressComponents,
+            @NonNull final Executor executor, @Nullable final GeocoderFuture.Callback callback) {
+        return mEngine.getFromLocationNameAsync(locationName, maxResults,
+                parseAddressComponents, executor, callback);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+
+/**
+ * {@link Parcelable} wrapper of {@link Address}, for passing results between Android components.
+ *
+ * The parcel holds presence flags, the component bitmask, only the strings that are present and
+ * the geometry as raw doubles.
+ */
+public final class ParcelableAddress implements Parcelable {
+
+    private static final int HAS_LOCATION = 1;
+
+    private static final int HAS_VIEWPORT = 1 << 1;
+
+    private static final int HAS_BOUNDS = 1 << 2;
+
+    private static final int HAS_FORMATTED_ADDRESS = 1 << 3;
+
+    private static final int HAS_LOCATION_TYPE = 1 << 4;
+
+    @NonNull
+    private final Address mAddress;
+
+    public ParcelableAddress(@NonNull final Address address) {
+        //noinspection ConstantConditions
+        if (address == null) {
+            throw new NullPointerException("address == null");
+        }
+        mAddress = address;
+    }
+
+    private ParcelableAddress(@NonNull final Parcel p) {
+        final Address address = new Address();
+        final int flags = p.readInt();
+        final long componentMask = p.readLong();
+        final String[] components = new String[Long.bitCount(componentMask)];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = p.readString();
+        }
+        address.setComponents(componentMask, components);
+        if ((flags & HAS_FORMATTED_ADDRESS) != 0) {
+            address.setFormattedAddress(p.readString());
+        }
+        if ((flags & HAS_LOCATION_TYPE) != 0) {
+            address.setLocationType(p.readString());
+        }
+        if ((flags & HAS_LOCATION) != 0) {
+            address.setLocation(p.readDouble(), p.readDouble());
+        }
+        if ((flags & HAS_VIEWPORT) != 0) {
+            address.setViewport(p.readDouble(), p.readDouble(), p.readDouble(), p.readDouble());
+        }
+        if ((flags & HAS_BOUNDS) != 0) {
+            address.setBounds(p.readDouble(), p.readDouble(), p.readDouble(), p.readDouble());
+        }
+        mAddress = address;
+    }
+
+    @NonNull
+    public Address getAddress() {
+        return mAddress;
+    }
+
+    @Override
+    public void writeToParcel(final Parcel p, final int flags) {
+        final Address a = mAddress;
+        final String formattedAddress = a.getFormattedAddress();
+        final String locationType = a.getLocationType();
+        int presence = 0;
+        if (a.hasLocation()) {
+            presence |= HAS_LOCATION;
+        }
+        if (a.hasViewport()) {
+            presence |= HAS_VIEWPORT;
+        }
+        if (a.hasBounds()) {
+            presence |= HAS_BOUNDS;
+        }
+        if (formattedAddress != null) {
+            presence |= HAS_FORMATTED_ADDRESS;
+        }
+        if (locationType != null) {
+            presence |= HAS_LOCATION_TYPE;
+        }
+        p.writeInt(presence);
+        p.writeLong(a.getComponentMask());
+        for (final String component : a.getComponentValues()) {
+            p.writeString(component);
+        }
+        if (formattedAddress != null) {
+            p.writeString(formattedAddress);
+        }
+        if (locationType != null) {
+            p.writeString(locationType);
+        }
+        if (a.hasLocation()) {
+            p.writeDouble(a.getLatitude());
+            p.writeDouble(a.getLongitude());
+        }
+        if (a.hasViewport()) {
+            p.writeDouble(a.getViewportSouthwestLatitude());
+            p.writeDouble(a.getViewportSouthwestLongitude());
+            p.writeDouble(a.getViewportNortheastLatitude());
+            p.writeDouble(a.getViewportNortheastLongitude());
+        }
+        if (a.hasBounds()) {
+            p.writeDouble(a.getBoundsSouthwestLatitude());
+            p.writeDouble(a.getBoundsSouthwestLongitude());
+            p.writeDouble(a.getBoundsNortheastLatitude());
+            p.writeDouble(a.getBoundsNortheastLongitude());
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ParcelableAddress{" + mAddress + '}';
+    }
+
+    public static final Creator<ParcelableAddress> CREATOR = new Creator<ParcelableAddress>() {
+
+        @Override
+        public ParcelableAddress createFromParcel(final Parcel source) {
+            return new ParcelableAddress(source);
+        }
+
+        @Override
+        public ParcelableAddress[] newArray(final int size) {
+            return new ParcelableAddress[size];
+        }
+    };
+}
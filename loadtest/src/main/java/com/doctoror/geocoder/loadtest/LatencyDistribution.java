@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder.loadtest;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+
+/**
+ * Distribution of the latency {@link StubGeocodingServer} adds before responding
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * z-score of the 99th percentile of the standard normal distribution
+     */
+    private static final double Z_99 = 2.3263;
+
+    public static final LatencyDistribution NONE = constant(0);
+
+    /**
+     * Returns the next latency, in milliseconds
+     */
+    public abstract long nextMillis(@NonNull Random random);
+
+    /**
+     * Every response is delayed by the same time
+     */
+    @NonNull
+    public static LatencyDistribution constant(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis == " + millis);
+        }
+        return new LatencyDistribution() {
+
+            @Override
+            public long nextMillis(@NonNull final Random random) {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "const:" + millis;
+            }
+        };
+    }
+
+    /**
+     * Delays are spread evenly between min and max, inclusive
+     */
+    @NonNull
+    public static LatencyDistribution uniform(final long minMillis, final long maxMillis) {
+        if (minMillis < 0) {
+            throw new IllegalArgumentException("minMillis == " + minMillis);
+        }
+        if (maxMillis < minMillis) {
+            throw new IllegalArgumentException("maxMillis == " + maxMillis);
+        }
+        return new LatencyDistribution() {
+
+            @Override
+            public long nextMillis(@NonNull final Random random) {
+                return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+            }
+
+            @Override
+            public String toString() {
+                return "uniform:" + minMillis + ':' + maxMillis;
+            }
+        };
+    }
+
+    /**
+     * Delays are exponentially distributed with the given mean
+     */
+    @NonNull
+    public static LatencyDistribution exponential(final long meanMillis) {
+        if (meanMillis < 0) {
+            throw new IllegalArgumentException("meanMillis == " + meanMillis);
+        }
+        return new LatencyDistribution() {
+
+            @Override
+            public long nextMillis(@NonNull final Random random) {
+                return Math.round(-meanMillis * Math.log(1.0 - random.nextDouble()));
+            }
+
+            @Override
+            public String toString() {
+                return "exp:" + meanMillis;
+            }
+        };
+    }
+
+    /**
+     * Delays are log-normally distributed, which is close to what real services show: most
+     * responses are near the median and a long tail reaches the 99th percentile and beyond
+     */
+    @NonNull
+    public static LatencyDistribution logNormal(final long medianMillis, final long p99Millis) {
+        if (medianMillis <= 0) {
+            throw new IllegalArgumentException("medianMillis == " + medianMillis);
+        }
+        if (p99Millis < medianMillis) {
+            throw new IllegalArgumentException("p99Millis == " + p99Millis);
+        }
+        final double mu = Math.log(medianMillis);
+        final double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        return new LatencyDistribution() {
+
+            @Override
+            public long nextMillis(@NonNull final Random random) {
+                return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal:" + medianMillis + ':' + p99Millis;
+            }
+        };
+    }
+
+    /**
+     * Parses a distribution from "const:MS", "uniform:MIN:MAX", "exp:MEAN" or
+     * "lognormal:MEDIAN:P99", all in milliseconds
+     *
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    @NonNull
+    public static LatencyDistribution parse(@NonNull final String spec) {
+        final String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "const":
+                    if (parts.length == 2) {
+                        return constant(Long.parseLong(parts[1]));
+                    }
+                    break;
+
+                case "uniform":
+                    if (parts.length == 3) {
+                        return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    }
+                    break;
+
+                case "exp":
+                    if (parts.length == 2) {
+                        return exponential(Long.parseLong(parts[1]));
+                    }
+                    break;
+
+                case "lognormal":
+                    if (parts.length == 3) {
+                        return logNormal(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    }
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("spec == " + spec, e);
+        }
+        throw new IllegalArgumentException("spec == " + spec);
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder.loadtest;
+
+import android.support.annotation.NonNull;
+
+import com.doctoror.geocoder.Address;
+import com.doctoror.geocoder.BatchResult;
+import com.doctoror.geocoder.GeocoderEngine;
+import com.doctoror.geocoder.GeocoderException;
+import com.doctoror.geocoder.GeocoderFuture;
+import com.doctoror.geocoder.RetryPolicy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs lookups against a {@link StubGeocodingServer} and reports throughput, latency
+ * percentiles and failures
+ *
+ * Options, all optional, are passed as --name=value:
+ * <ul>
+ * <li>api: sync, async or batch. Default sync</li>
+ * <li>concurrency: max queries in flight. Default 500</li>
+ * <li>requests: number of queries to measure. Default 20000</li>
+ * <li>warmup: number of queries to run before measuring. Default 2000</li>
+ * <li>latency: stub server latency, see {@link LatencyDistribution#parse(String)}. Default
+ * lognormal:40:250</li>
+ * <li>server-errors: percentage of HTTP 500 responses. Default 0</li>
+ * <li>over-query-limit: percentage of OVER_QUERY_LIMIT responses. Default 0</li>
+ * <li>forward: true to query addresses instead of coordinates, not with batch. Default false</li>
+ * <li>components: whether to parse address components. Default true</li>
+ * <li>retries: whether to use {@link RetryPolicy#DEFAULT} instead of no retries. Default
+ * false</li>
+ * <li>batch-size: locations per batch with the batch api. Default 1000</li>
+ * </ul>
+ *
+ * Every query is for a different coordinate or address, so none are coalesced.
+ */
+public final class LoadDriver {
+
+    private static final int MAX_RESULTS = 5;
+
+    private enum Api {
+        SYNC, ASYNC, BATCH
+    }
+
+    private final Api mApi;
+
+    private final int mConcurrency;
+
+    private final boolean mForward;
+
+    private final boolean mParseAddressComponents;
+
+    private final int mBatchSize;
+
+    @NonNull
+    private final GeocoderEngine mEngine;
+
+    @NonNull
+    private final ExecutorService mExecutor;
+
+    /**
+     * Offset that keeps the queries of consecutive runs distinct
+     */
+    private int mQueryOffset;
+
+    private LoadDriver(@NonNull final Map<String, String> options,
+            @NonNull final String endpointUrl) {
+        mApi = Api.valueOf(option(options, "api", "sync").toUpperCase(Locale.US));
+        mConcurrency = Integer.parseInt(option(options, "concurrency", "500"));
+        mForward = Boolean.parseBoolean(option(options, "forward", "false"));
+        mParseAddressComponents = Boolean.parseBoolean(option(options, "components", "true"));
+        mBatchSize = Integer.parseInt(option(options, "batch-size", "1000"));
+        if (mConcurrency < 1) {
+            throw new IllegalArgumentException("concurrency == " + mConcurrency);
+        }
+        if (mForward && mApi == Api.BATCH) {
+            throw new IllegalArgumentException("forward is not supported with batch api");
+        }
+
+        mEngine = new GeocoderEngine(Locale.US);
+        mEngine.setEndpoint(endpointUrl);
+        mEngine.setRetryPolicy(Boolean.parseBoolean(option(options, "retries", "false"))
+                ? RetryPolicy.DEFAULT : RetryPolicy.NONE);
+        mExecutor = Executors.newFixedThreadPool(mConcurrency);
+    }
+
+    public static void main(@NonNull final String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final int requests = Integer.parseInt(option(options, "requests", "20000"));
+        final int warmup = Integer.parseInt(option(options, "warmup", "2000"));
+
+        final int concurrency = Integer.parseInt(option(options, "concurrency", "500"));
+        if (System.getProperty("http.maxConnections") == null) {
+            // The default keep-alive pool holds 5 connections, which would make most of the
+            // queries reconnect
+            System.setProperty("http.maxConnections", Integer.toString(concurrency));
+        }
+
+        final StubGeocodingServer server = new StubGeocodingServer(0);
+        server.setLatency(LatencyDistribution.parse(
+                option(options, "latency", "lognormal:40:250")));
+        server.setServerErrorPercent(Double.parseDouble(option(options, "server-errors", "0")));
+        server.setOverQueryLimitPercent(
+                Double.parseDouble(option(options, "over-query-limit", "0")));
+        server.start();
+
+        final PrintStream out = System.out;
+        try {
+            final LoadDriver driver = new LoadDriver(options, server.getEndpointUrl());
+            out.println("options: " + options);
+            if (warmup > 0) {
+                driver.run(warmup);
+            }
+            final long requestsBefore = server.getRequestCount();
+            final long serverErrorsBefore = server.getServerErrorCount();
+            final long overQueryLimitsBefore = server.getOverQueryLimitCount();
+            final long start = System.nanoTime();
+            final LoadStats stats = driver.run(requests);
+            final long elapsed = System.nanoTime() - start;
+            stats.print(out, driver.mApi == Api.BATCH ? "batch" : "query", elapsed);
+            out.printf("server:     %d requests, %d injected 500, %d injected OVER_QUERY_LIMIT%n",
+                    server.getRequestCount() - requestsBefore,
+                    server.getServerErrorCount() - serverErrorsBefore,
+                    server.getOverQueryLimitCount() - overQueryLimitsBefore);
+            driver.mExecutor.shutdownNow();
+        } finally {
+            server.stop(0, TimeUnit.SECONDS);
+        }
+    }
+
+    @NonNull
+    private LoadStats run(final int requests) throws InterruptedException {
+        final LoadStats stats = new LoadStats(requests);
+        switch (mApi) {
+            case SYNC:
+                runSync(stats, requests);
+                break;
+
+            case ASYNC:
+                runAsync(stats, requests);
+                break;
+
+            case BATCH:
+                runBatch(stats, requests);
+                break;
+        }
+        mQueryOffset += requests;
+        return stats;
+    }
+
+    /**
+     * Every executor thread makes blocking queries one after another
+     */
+    private void runSync(@NonNull final LoadStats stats, final int requests)
+            throws InterruptedException {
+        final AtomicInteger next = new AtomicInteger();
+        final List<Runnable> workers = new ArrayList<>(mConcurrency);
+        for (int i = 0; i < mConcurrency; i++) {
+            workers.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        final long start = System.nanoTime();
+                        try {
+                            query(index);
+                            stats.recordSuccess();
+                        } catch (GeocoderException e) {
+                            stats.recordFailure(e);
+                        }
+                        stats.recordLatency(System.nanoTime() - start);
+                    }
+                }
+            });
+        }
+        runAll(workers);
+    }
+
+    /**
+     * Queries are submitted from this thread, keeping at most concurrency of them in flight.
+     * The latency is measured from submission to the callback.
+     */
+    private void runAsync(@NonNull final LoadStats stats, final int requests)
+            throws InterruptedException {
+        final Semaphore inFlight = new Semaphore(mConcurrency);
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            final long start = System.nanoTime();
+            final GeocoderFuture.Callback callback = new GeocoderFuture.Callback() {
+
+                @Override
+                public void onSuccess(@NonNull final List<Address> addresses) {
+                    stats.recordSuccess();
+                    stats.recordLatency(System.nanoTime() - start);
+                    inFlight.release();
+                }
+
+                @Override
+                public void onFailure(@NonNull final GeocoderException e) {
+                    stats.recordFailure(e);
+                    stats.recordLatency(System.nanoTime() - start);
+                    inFlight.release();
+                }
+            };
+            final int index = mQueryOffset + i;
+            if (mForward) {
+                mEngine.getFromLocationNameAsync(addressOf(index), MAX_RESULTS,
+                        mParseAddressComponents, mExecutor, callback);
+            } else {
+                mEngine.getFromLocationAsync(latitudeOf(index), longitudeOf(index),
+                        MAX_RESULTS, mParseAddressComponents, mExecutor, callback);
+            }
+        }
+        inFlight.acquire(mConcurrency);
+    }
+
+    /**
+     * Batches are run one after another, each with concurrency queries in flight. The latency
+     * is measured per batch.
+     */
+    private void runBatch(@NonNull final LoadStats stats, final int requests)
+            throws InterruptedException {
+        for (int offset = 0; offset < requests; offset += mBatchSize) {
+            final int size = Math.min(mBatchSize, requests - offset);
+            final List<Address.Location> locations = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final int index = mQueryOffset + offset + i;
+                locations.add(new Address.Location(latitudeOf(index), longitudeOf(index)));
+            }
+            final long start = System.nanoTime();
+            final List<BatchResult> results = mEngine.getFromLocations(locations, MAX_RESULTS,
+                    mParseAddressComponents, mConcurrency, mExecutor);
+            stats.recordLatency(System.nanoTime() - start);
+            for (final BatchResult result : results) {
+                final GeocoderException e = result.getException();
+                if (e == null) {
+                    stats.recordSuccess();
+                } else {
+                    stats.recordFailure(e);
+                }
+            }
+        }
+    }
+
+    private void query(final int index) throws GeocoderException {
+        final int i = mQueryOffset + index;
+        if (mForward) {
+            mEngine.getFromLocationName(addressOf(i), MAX_RESULTS, mParseAddressComponents);
+        } else {
+            mEngine.getFromLocation(latitudeOf(i), longitudeOf(i), MAX_RESULTS,
+                    mParseAddressComponents);
+        }
+    }
+
+    private void runAll(@NonNull final List<Runnable> workers) throws InterruptedException {
+        final Semaphore done = new Semaphore(0);
+        for (final Runnable worker : workers) {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        worker.run();
+                    } finally {
+                        done.release();
+                    }
+                }
+            });
+        }
+        done.acquire(workers.size());
+    }
+
+    /*
+     * A distinct point on a 0.01 degree grid for every index
+     */
+
+    private static double latitudeOf(final int index) {
+        return -80.0 + (index % 16000) * 0.01;
+    }
+
+    private static double longitudeOf(final int index) {
+        return -170.0 + (index / 16000 % 34000) * 0.01;
+    }
+
+    @NonNull
+    private static String addressOf(final int index) {
+        return index + " Amphitheatre Parkway, Mountain View";
+    }
+
+    @NonNull
+    private static Map<String, String> parseOptions(@NonNull final String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator == -1) {
+                throw new IllegalArgumentException("arg == " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    @NonNull
+    private static String option(@NonNull final Map<String, String> options,
+            @NonNull final String name, @NonNull final String defaultValue) {
+        final String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder.loadtest;
+
+import android.support.annotation.NonNull;
+
+import com.doctoror.geocoder.CircuitOpenException;
+import com.doctoror.geocoder.GeocoderException;
+import com.doctoror.geocoder.GeocoderTimeoutException;
+import com.doctoror.geocoder.Status;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and outcomes of a load test run. Every latency is kept, so percentiles are exact.
+ * Safe for concurrent use while recording.
+ */
+final class LoadStats {
+
+    static final String OK = "OK";
+
+    @NonNull
+    private final long[] mLatencies;
+
+    private final AtomicInteger mLatencyCount = new AtomicInteger();
+
+    private final ConcurrentMap<String, AtomicLong> mOutcomes = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity max number of latencies to record. The ones past it are dropped.
+     */
+    LoadStats(final int capacity) {
+        mLatencies = new long[capacity];
+    }
+
+    void recordLatency(final long nanos) {
+        final int index = mLatencyCount.getAndIncrement();
+        if (index < mLatencies.length) {
+            mLatencies[index] = nanos;
+        }
+    }
+
+    void recordSuccess() {
+        recordOutcome(OK);
+    }
+
+    void recordFailure(@NonNull final GeocoderException e) {
+        recordOutcome(outcomeOf(e));
+    }
+
+    private void recordOutcome(@NonNull final String outcome) {
+        AtomicLong count = mOutcomes.get(outcome);
+        if (count == null) {
+            final AtomicLong created = new AtomicLong();
+            count = mOutcomes.putIfAbsent(outcome, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @NonNull
+    private static String outcomeOf(@NonNull final GeocoderException e) {
+        if (e instanceof GeocoderTimeoutException) {
+            return "TIMEOUT";
+        }
+        if (e instanceof CircuitOpenException) {
+            return "CIRCUIT_OPEN";
+        }
+        final Status status = e.getStatus();
+        if (status != null) {
+            return status.name();
+        }
+        return e.isCausedByNetworkError() ? "NETWORK_ERROR" : "ERROR";
+    }
+
+    /**
+     * Prints throughput of queries, latency percentiles of operations and counts of outcomes
+     *
+     * @param out           where to print
+     * @param operation     what a recorded latency measures, for example "query" or "batch"
+     * @param elapsedNanos  wall time of the run
+     */
+    void print(@NonNull final PrintStream out, @NonNull final String operation,
+            final long elapsedNanos) {
+        final Map<String, Long> outcomes = new TreeMap<>();
+        long queries = 0;
+        long failures = 0;
+        for (final Map.Entry<String, AtomicLong> entry : mOutcomes.entrySet()) {
+            final long count = entry.getValue().get();
+            outcomes.put(entry.getKey(), count);
+            queries += count;
+            if (!OK.equals(entry.getKey())) {
+                failures += count;
+            }
+        }
+
+        final double seconds = elapsedNanos / 1e9;
+        out.printf("queries:    %d in %.2f s, %.1f/s%n", queries, seconds, queries / seconds);
+        out.printf("failures:   %d (%.2f%%)%n", failures,
+                queries == 0 ? 0.0 : failures * 100.0 / queries);
+        for (final Map.Entry<String, Long> entry : outcomes.entrySet()) {
+            out.printf("  %-20s %d%n", entry.getKey(), entry.getValue());
+        }
+
+        final int count = Math.min(mLatencyCount.get(), mLatencies.length);
+        if (count == 0) {
+            return;
+        }
+        final long[] sorted = Arrays.copyOf(mLatencies, count);
+        Arrays.sort(sorted);
+        out.printf("%s latency, ms: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                operation,
+                toMillis(percentile(sorted, 50.0)),
+                toMillis(percentile(sorted, 90.0)),
+                toMillis(percentile(sorted, 99.0)),
+                toMillis(percentile(sorted, 99.9)),
+                toMillis(sorted[count - 1]));
+    }
+
+    private static long percentile(@NonNull final long[] sorted, final double percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
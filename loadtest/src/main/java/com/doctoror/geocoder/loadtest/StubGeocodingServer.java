@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2015 Yaroslav Mytkalyk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doctoror.geocoder.loadtest;
+
+import android.support.annotation.NonNull;
+
+import com.doctoror.geocoder.Fixtures;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server that stands in for the Geocoding API in load tests
+ *
+ * It replays recorded responses from the "fixtures" resources: reverse geocoding requests get
+ * the reverse fixture and forward geocoding requests get the forward one. Every response is
+ * delayed by a time drawn from a {@link LatencyDistribution}. A share of the requests can fail
+ * with HTTP 500 or get an OVER_QUERY_LIMIT response. Responses are gzipped when the client
+ * accepts it, like the real endpoint does.
+ *
+ * The configuration may be changed while the server is running.
+ */
+public final class StubGeocodingServer {
+
+    private static final String PATH = "/maps/api/geocode/json";
+
+    private static final String CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    private static final int BACKLOG = 1024;
+
+    @NonNull
+    private final HttpServer mServer;
+
+    @NonNull
+    private final ExecutorService mExecutor;
+
+    private final AtomicLong mRequests = new AtomicLong();
+
+    private final AtomicLong mServerErrors = new AtomicLong();
+
+    private final AtomicLong mOverQueryLimits = new AtomicLong();
+
+    @NonNull
+    private volatile LatencyDistribution mLatency = LatencyDistribution.NONE;
+
+    private volatile double mServerErrorPercent;
+
+    private volatile double mOverQueryLimitPercent;
+
+    @NonNull
+    private volatile Response mReverse;
+
+    @NonNull
+    private volatile Response mForward;
+
+    @NonNull
+    private final Response mOverQueryLimit;
+
+    /**
+     * Creates a server bound to the loopback address. It does not accept requests until
+     * {@link #start()} is called.
+     *
+     * @param port the port to listen on, or 0 to use any free port
+     * @throws IOException if the port can't be bound or the fixtures can't be read
+     */
+    public StubGeocodingServer(final int port) throws IOException {
+        mReverse = new Response(Fixtures.load("reverse_5"));
+        mForward = new Response(Fixtures.load("forward"));
+        mOverQueryLimit = new Response(Fixtures.load("over_query_limit"));
+
+        // The JDK server writes headers and body separately, so with Nagle's algorithm on every
+        // response would wait for the client's delayed ACK, adding ~40 ms. This must be set
+        // before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        mServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        mServer.createContext(PATH, new GeocodeHandler());
+
+        // Latency is simulated by sleeping, so every request in flight needs its own thread
+        mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicLong mCount = new AtomicLong();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                final Thread thread = new Thread(r, "Stub server " + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mServer.setExecutor(mExecutor);
+    }
+
+    /**
+     * Sets the distribution of delays added before responding. The default is no delay.
+     */
+    public void setLatency(@NonNull final LatencyDistribution latency) {
+        //noinspection ConstantConditions
+        if (latency == null) {
+            throw new NullPointerException("latency == null");
+        }
+        mLatency = latency;
+    }
+
+    /**
+     * Sets the percentage of requests that fail with HTTP 500
+     *
+     * @param percent 0 to 100
+     */
+    public void setServerErrorPercent(final double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("percent == " + percent);
+        }
+        mServerErrorPercent = percent;
+    }
+
+    /**
+     * Sets the percentage of requests that get an OVER_QUERY_LIMIT response
+     *
+     * @param percent 0 to 100
+     */
+    public void setOverQueryLimitPercent(final double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("percent == " + percent);
+        }
+        mOverQueryLimitPercent = percent;
+    }
+
+    /**
+     * Sets the fixtures replayed for reverse and forward geocoding requests. The defaults are
+     * "reverse_5" and "forward".
+     *
+     * @param reverse the reverse geocoding fixture name, without the ".json" extension
+     * @param forward the forward geocoding fixture name, without the ".json" extension
+     * @throws IOException if a fixture can't be read
+     */
+    public void setFixtures(@NonNull final String reverse, @NonNull final String forward)
+            throws IOException {
+        mReverse = new Response(Fixtures.load(reverse));
+        mForward = new Response(Fixtures.load(forward));
+    }
+
+    public void start() {
+        mServer.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given time for the ones in flight
+     */
+    public void stop(final long timeout, @NonNull final TimeUnit unit) {
+        mServer.stop((int) Math.max(0, unit.toSeconds(timeout)));
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the URL to pass to {@code GeocoderEngine.setEndpoint(String)}
+     */
+    @NonNull
+    public String getEndpointUrl() {
+        final InetSocketAddress address = mServer.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ':' + address.getPort() + PATH;
+    }
+
+    /**
+     * Returns the number of requests received
+     */
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * Returns the number of requests that failed with an injected HTTP 500
+     */
+    public long getServerErrorCount() {
+        return mServerErrors.get();
+    }
+
+    /**
+     * Returns the number of injected OVER_QUERY_LIMIT responses
+     */
+    public long getOverQueryLimitCount() {
+        return mOverQueryLimits.get();
+    }
+
+    /**
+     * A response body, with its gzipped form computed once
+     */
+    private static final class Response {
+
+        final byte[] mPlain;
+
+        final byte[] mGzipped;
+
+        Response(@NonNull final byte[] plain) throws IOException {
+            mPlain = plain;
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length);
+            final GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(plain);
+            gzip.close();
+            mGzipped = out.toByteArray();
+        }
+    }
+
+    private final class GeocodeHandler implements HttpHandler {
+
+        @Override
+        public void handle(@NonNull final HttpExchange exchange) throws IOException {
+            mRequests.incrementAndGet();
+            try {
+                // The request body is empty, but it must be consumed for keep-alive
+                drain(exchange.getRequestBody());
+
+                final Random random = ThreadLocalRandom.current();
+                final long delay = mLatency.nextMillis(random);
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+
+                final double roll = random.nextDouble() * 100.0;
+                if (roll < mServerErrorPercent) {
+                    mServerErrors.incrementAndGet();
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+
+                final Response response;
+                if (roll < mServerErrorPercent + mOverQueryLimitPercent) {
+                    mOverQueryLimits.incrementAndGet();
+                    response = mOverQueryLimit;
+                } else {
+                    final String query = exchange.getRequestURI().getRawQuery();
+                    response = query != null && query.contains("latlng=")
+                            ? mReverse : mForward;
+                }
+                send(exchange, response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void send(@NonNull final HttpExchange exchange, @NonNull final Response response)
+                throws IOException {
+            final String acceptEncoding = exchange.getRequestHeaders()
+                    .getFirst("Accept-Encoding");
+            final boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            final byte[] body = gzip ? response.mGzipped : response.mPlain;
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            final OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+
+        private void drain(@NonNull final InputStream in) throws IOException {
+            final byte[] buffer = new byte[512];
+            //noinspection StatementWithEmptyBody
+            while (in.read(buffer) != -1) {
+            }
+            in.close();
+        }
+    }
+}